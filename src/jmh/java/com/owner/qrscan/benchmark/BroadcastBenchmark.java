@@ -0,0 +1,108 @@
+package com.owner.qrscan.benchmark;
+
+import com.owner.qrscan.socket.OutboundSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de un broadcast (lo que tarda el hilo que reparte) con un 1% de clientes lentos, que tardan
+ * 1 ms en aceptar cada mensaje. Con las colas de salida solo se encola y el costo crece con la cantidad
+ * de sesiones, no con los lentos; el envío secuencial anterior (legacySequential) espera a cada uno.
+ * perRecipientMessage copia la lista de sesiones y arma un TextMessage por destinatario, como antes de
+ * compartir el mensaje: comparar gc.alloc.rate.norm con fanOut (perfil jmh corre con -prof gc).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+	private static final long SLOW_SEND_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Param({"100", "1000", "10000"})
+	public int sessions;
+
+	@Param({"DROP_OLDEST", "COALESCE"})
+	public OutboundSession.OverflowPolicy policy;
+
+	private final String payload = "Un nuevo cliente se ha conectado. Total: 1000";
+	private final TextMessage message = new TextMessage(payload);
+	private ExecutorService writers;
+	private OutboundSession[] outbound;
+	private StubSession[] raw;
+
+	@Setup
+	public void connect() {
+		writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory());
+		outbound = new OutboundSession[sessions];
+		raw = new StubSession[sessions];
+		for (int i = 0; i < sessions; i++) {
+			raw[i] = new StubSession("session-" + i, i % 100 == 0 ? SLOW_SEND_NANOS : 0);
+			outbound[i] = new OutboundSession(raw[i], 64, policy, writers);
+		}
+	}
+
+	@TearDown
+	public void close() {
+		writers.shutdownNow();
+	}
+
+	@Benchmark
+	public int fanOut() {
+		int sent = 0;
+		for (OutboundSession session : outbound) {
+			if (session.send(message, "presence")) {
+				sent++;
+			}
+		}
+		return sent;
+	}
+
+	@Benchmark
+	public int perRecipientMessage() {
+		int sent = 0;
+		for (OutboundSession session : List.of(outbound)) {
+			if (session.send(new TextMessage(payload), "presence")) {
+				sent++;
+			}
+		}
+		return sent;
+	}
+
+	/**
+	 * Camino anterior: synchronized por sesión y sendMessage bloqueante, una sesión detrás de otra
+	 */
+	@Benchmark
+	public int legacySequential() throws IOException {
+		int sent = 0;
+		for (WebSocketSession session : raw) {
+			synchronized (session) {
+				if (session.isOpen()) {
+					session.sendMessage(message);
+					sent++;
+				}
+			}
+		}
+		return sent;
+	}
+}
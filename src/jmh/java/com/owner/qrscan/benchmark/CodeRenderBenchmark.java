@@ -0,0 +1,77 @@
+package com.owner.qrscan.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.owner.qrscan.generator.CodeRenderer;
+import com.owner.qrscan.generator.CodeSpec;
+import com.owner.qrscan.generator.PngEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación de un QR de una URL típica: pngEncoder es solo la codificación de la matriz a PNG de 1 bit,
+ * imageIoPng la de antes (MatrixToImageWriter arma un BufferedImage y lo pasa por ImageIO);
+ * renderPng y renderSvg son el camino completo de un pedido que no está en el caché.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeRenderBenchmark {
+
+	@Param({"200", "1000"})
+	public int size;
+
+	private final CodeRenderer renderer = new CodeRenderer();
+	private BitMatrix matrix;
+	private CodeSpec png;
+	private CodeSpec svg;
+
+	@Setup
+	public void encode() throws WriterException {
+		String text = "https://example.com/products/4006381333931?lot=2024-11&store=42";
+		matrix = new MultiFormatWriter().encode(text, BarcodeFormat.QR_CODE, size, size);
+		png = new CodeSpec(text, BarcodeFormat.QR_CODE, size, size, null, null, CodeSpec.Output.PNG);
+		svg = new CodeSpec(text, BarcodeFormat.QR_CODE, size, size, null, null, CodeSpec.Output.SVG);
+	}
+
+	@Benchmark
+	public byte[] pngEncoder() {
+		return PngEncoder.encode(matrix);
+	}
+
+	@Benchmark
+	public byte[] imageIoPng() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MatrixToImageWriter.writeToStream(matrix, "png", out);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] renderPng() {
+		return renderer.render(png).body();
+	}
+
+	@Benchmark
+	public byte[] renderSvg() {
+		return renderer.render(svg).body();
+	}
+}
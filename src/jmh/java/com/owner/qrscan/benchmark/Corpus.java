@@ -0,0 +1,83 @@
+package com.owner.qrscan.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Corpus de imágenes de los benchmarks, leído del classpath (src/jmh/resources/corpus).
+ * El manifiesto indica archivo, formato y texto esperado de cada imagen.
+ */
+public final class Corpus {
+
+	static final String MANIFEST = "corpus.csv";
+	private static final String ROOT = "/corpus/";
+
+	private Corpus() {
+	}
+
+	public static List<Entry> entries() {
+		List<Entry> entries = new ArrayList<>();
+		try (InputStream in = open(MANIFEST);
+			 BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (line.isBlank() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split(",", 4);
+				entries.add(new Entry(fields[0], fields[1], fields[2], fields[3]));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return entries;
+	}
+
+	public static Entry entry(String name) {
+		return entries().stream()
+				.filter(entry -> entry.name().equals(name))
+				.findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("No existe la imagen " + name + " en el corpus"));
+	}
+
+	private static InputStream open(String file) throws IOException {
+		InputStream in = Corpus.class.getResourceAsStream(ROOT + file);
+		if (in == null) {
+			throw new IOException("No se encontró " + ROOT + file + " en el classpath");
+		}
+		return in;
+	}
+
+	/**
+	 * Imagen del corpus; {@code format} vacío indica que no contiene ningún código
+	 */
+	public record Entry(String name, String file, String format, String text) {
+
+		public byte[] bytes() {
+			try (InputStream in = open(file)) {
+				return in.readAllBytes();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		public BufferedImage image() {
+			try (InputStream in = open(file)) {
+				return ImageIO.read(in);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		public boolean hasCode() {
+			return !format.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.owner.qrscan.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.client.j2se.MatrixToImageConfig;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Genera el corpus de imágenes sintéticas de los benchmarks con los writers de ZXing.
+ * Las imágenes quedan versionadas en src/jmh/resources/corpus para que los resultados sean
+ * comparables entre corridas; solo hace falta volver a generarlas si cambia {@link #SPECS}:
+ * ./mvnw -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.owner.qrscan.benchmark.CorpusGenerator
+ */
+public final class CorpusGenerator {
+
+	// nombre, formato, texto, ancho x alto de la foto, lado del código, rotación en grados,
+	// ruido (sigma), desenfoque (radio), colores invertidos y extensión
+	static final List<Spec> SPECS = List.of(
+			new Spec("qr-small-clean", BarcodeFormat.QR_CODE, "https://example.com/ticket/0001", 640, 480, 240, 0, 0, 0, false, "png"),
+			new Spec("qr-hd-noisy", BarcodeFormat.QR_CODE, "https://example.com/ticket/0002", 1920, 1080, 300, 0, 18, 0, false, "jpg"),
+			new Spec("qr-hd-tilted", BarcodeFormat.QR_CODE, "https://example.com/ticket/0003", 1920, 1080, 320, 17, 6, 1, false, "jpg"),
+			new Spec("qr-photo-blur", BarcodeFormat.QR_CODE, "https://example.com/ticket/0004", 4000, 3000, 520, 8, 4, 2, false, "jpg"),
+			new Spec("qr-inverted", BarcodeFormat.QR_CODE, "https://example.com/ticket/0005", 1280, 960, 360, 0, 4, 0, true, "jpg"),
+			new Spec("code128-hd", BarcodeFormat.CODE_128, "PAL-2024-000123", 1920, 1080, 640, 0, 8, 1, false, "jpg"),
+			new Spec("code128-hd-rot90", BarcodeFormat.CODE_128, "PAL-2024-000124", 1920, 1080, 640, 90, 4, 0, false, "jpg"),
+			new Spec("ean13-small", BarcodeFormat.EAN_13, "5901234123457", 800, 600, 380, 0, 4, 1, false, "jpg"),
+			new Spec("datamatrix-small", BarcodeFormat.DATA_MATRIX, "LOT:A17-SN:009931", 640, 480, 200, 0, 4, 0, false, "png"),
+			new Spec("pdf417-hd", BarcodeFormat.PDF_417, "DOC:2024/77;NAME:EJEMPLO;EXP:2030-01-01", 1920, 1080, 720, 0, 6, 0, false, "jpg"),
+			new Spec("empty-hd-noise", null, "", 1920, 1080, 0, 0, 12, 1, false, "jpg")
+	);
+
+	private CorpusGenerator() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path dir = Path.of(args.length > 0 ? args[0] : "src/jmh/resources/corpus");
+		Files.createDirectories(dir);
+		try (PrintWriter manifest = new PrintWriter(Files.newBufferedWriter(dir.resolve(Corpus.MANIFEST), StandardCharsets.UTF_8))) {
+			manifest.println("# name,file,format,text");
+			for (Spec spec : SPECS) {
+				String file = spec.name() + "." + spec.extension();
+				write(render(spec), dir.resolve(file), spec.extension());
+				manifest.println(String.join(",", spec.name(), file,
+						spec.format() == null ? "" : spec.format().name(), spec.text()));
+				System.out.println("Generada " + file);
+			}
+		}
+	}
+
+	static BufferedImage render(Spec spec) {
+		BufferedImage image = new BufferedImage(spec.width(), spec.height(), BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = image.createGraphics();
+		// Fondo con un degradé suave, como la iluminación despareja de una foto
+		Color light = spec.inverted() ? new Color(40, 40, 44) : new Color(236, 232, 224);
+		Color dark = spec.inverted() ? new Color(16, 16, 20) : new Color(196, 192, 186);
+		g.setPaint(new GradientPaint(0, 0, light, spec.width(), spec.height(), dark));
+		g.fillRect(0, 0, spec.width(), spec.height());
+		if (spec.format() != null) {
+			BufferedImage code = encode(spec);
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.rotate(Math.toRadians(spec.rotation()), spec.width() / 2.0, spec.height() / 2.0);
+			g.drawImage(code, (spec.width() - code.getWidth()) / 2, (spec.height() - code.getHeight()) / 2, null);
+		}
+		g.dispose();
+		if (spec.blur() > 0) {
+			image = blur(image, spec.blur());
+		}
+		if (spec.noise() > 0) {
+			addNoise(image, spec.noise(), spec.name().hashCode());
+		}
+		return image;
+	}
+
+	private static BufferedImage encode(Spec spec) {
+		boolean linear = spec.format() != BarcodeFormat.QR_CODE && spec.format() != BarcodeFormat.DATA_MATRIX;
+		int height = linear ? spec.codeSize() / 3 : spec.codeSize();
+		try {
+			BitMatrix matrix = new MultiFormatWriter().encode(spec.text(), spec.format(), spec.codeSize(), height,
+					Map.of(EncodeHintType.MARGIN, linear ? 10 : 4));
+			MatrixToImageConfig colors = spec.inverted()
+					? new MatrixToImageConfig(0xFFF0F0F0, 0xFF101010)
+					: new MatrixToImageConfig(0xFF141414, 0xFFF4F4F4);
+			return MatrixToImageWriter.toBufferedImage(matrix, colors);
+		} catch (Exception e) {
+			throw new IllegalStateException("No se pudo generar " + spec.name(), e);
+		}
+	}
+
+	private static BufferedImage blur(BufferedImage image, int radius) {
+		int side = radius * 2 + 1;
+		float[] kernel = new float[side * side];
+		Arrays.fill(kernel, 1f / kernel.length);
+		BufferedImage target = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+		return new ConvolveOp(new Kernel(side, side, kernel), ConvolveOp.EDGE_NO_OP, null).filter(image, target);
+	}
+
+	private static void addNoise(BufferedImage image, double sigma, long seed) {
+		Random random = new Random(seed);
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				int rgb = image.getRGB(x, y);
+				int delta = (int) Math.round(random.nextGaussian() * sigma);
+				int r = clamp(((rgb >> 16) & 0xFF) + delta);
+				int gr = clamp(((rgb >> 8) & 0xFF) + delta);
+				int b = clamp((rgb & 0xFF) + delta);
+				image.setRGB(x, y, (r << 16) | (gr << 8) | b);
+			}
+		}
+	}
+
+	private static int clamp(int value) {
+		return Math.max(0, Math.min(255, value));
+	}
+
+	private static void write(BufferedImage image, Path file, String extension) throws IOException {
+		if (!"jpg".equals(extension)) {
+			ImageIO.write(image, extension, file.toFile());
+			return;
+		}
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setCompressionQuality(0.85f);
+		Files.deleteIfExists(file);
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	record Spec(String name, BarcodeFormat format, String text, int width, int height, int codeSize,
+				int rotation, double noise, int blur, boolean inverted, String extension) {
+	}
+}
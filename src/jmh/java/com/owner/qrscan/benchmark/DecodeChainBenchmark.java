@@ -0,0 +1,76 @@
+package com.owner.qrscan.benchmark;
+
+import com.google.zxing.ReaderException;
+import com.owner.qrscan.decoder.DecodeAttempt;
+import com.owner.qrscan.decoder.DecodeContext;
+import com.owner.qrscan.decoder.DecodeResult;
+import com.owner.qrscan.decoder.DecodeTier;
+import com.owner.qrscan.decoder.LuminanceBufferPool;
+import com.owner.qrscan.decoder.LuminancePlane;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cadena completa de niveles contra el camino original, por imagen del corpus.
+ * Parte de la imagen ya leída por ImageIO e incluye la conversión a luminancia. La cadena corre
+ * secuencial en un solo hilo para que los bytes por operación de -prof gc sean comparables;
+ * el reparto en paralelo de los niveles caros no entra en la medición.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeChainBenchmark {
+
+	@Param({"qr-small-clean", "qr-hd-noisy", "qr-hd-tilted", "qr-photo-blur", "qr-inverted", "code128-hd",
+			"code128-hd-rot90", "ean13-small", "datamatrix-small", "pdf417-hd", "empty-hd-noise"})
+	public String image;
+
+	private final List<DecodeTier> chain = Arrays.stream(DecodeTier.DEFAULT_CHAIN.split(","))
+			.map(DecodeTier::valueOf)
+			.toList();
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(8, 128L * 1024 * 1024);
+	private BufferedImage picture;
+
+	@Setup
+	public void load() {
+		picture = Corpus.entry(image).image();
+	}
+
+	@Benchmark
+	public String legacy() {
+		return LegacyDecoder.detectCode(picture);
+	}
+
+	@Benchmark
+	public DecodeResult chain() {
+		try (DecodeContext context = new DecodeContext(LuminancePlane.fromImage(picture, pool), pool)) {
+			for (DecodeTier tier : chain) {
+				for (DecodeAttempt attempt : tier.attempts(context)) {
+					try {
+						return DecodeResult.of(attempt.decode(), attempt);
+					} catch (ReaderException e) {
+						// Siguiente intento
+					}
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.owner.qrscan.benchmark;
+
+import com.google.zxing.ReaderException;
+import com.owner.qrscan.decoder.DecodeAttempt;
+import com.owner.qrscan.decoder.DecodeContext;
+import com.owner.qrscan.decoder.DecodeResult;
+import com.owner.qrscan.decoder.DecodeTier;
+import com.owner.qrscan.decoder.LuminanceBufferPool;
+import com.owner.qrscan.decoder.LuminancePlane;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de cada nivel de la cadena por separado, sobre la imagen ya convertida a escala de grises.
+ * Un nivel que no encuentra el código igual se mide: es lo que paga la cadena al pasar por él.
+ * Para acotar la corrida: -p image=qr-hd-noisy -p tier=TRY_HARDER
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeTierBenchmark {
+
+	@Param({"qr-small-clean", "qr-hd-noisy", "qr-hd-tilted", "qr-photo-blur", "qr-inverted", "code128-hd",
+			"code128-hd-rot90", "ean13-small", "datamatrix-small", "pdf417-hd", "empty-hd-noise"})
+	public String image;
+
+	@Param({"REGIONS", "DOWNSCALED", "QR_FAST", "ALL_FORMATS", "TRY_HARDER", "ROTATED", "INVERTED"})
+	public DecodeTier tier;
+
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(8, 128L * 1024 * 1024);
+	private BufferedImage gray;
+
+	/**
+	 * La imagen se pasa a escala de grises una sola vez: armar el plano en cada operación queda
+	 * reducido a copiar los bytes del raster y no ensucia la medición del nivel.
+	 */
+	@Setup
+	public void load() {
+		BufferedImage picture = Corpus.entry(image).image();
+		gray = new BufferedImage(picture.getWidth(), picture.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+		try (LuminancePlane plane = LuminancePlane.fromImage(picture, pool)) {
+			gray.getRaster().setDataElements(0, 0, plane.width(), plane.height(), plane.data());
+		}
+	}
+
+	/**
+	 * El contexto es nuevo en cada operación para que el nivel pague también lo que calcula
+	 * de forma perezosa (versión reducida, zonas candidatas)
+	 */
+	@Benchmark
+	public DecodeResult tier() {
+		try (DecodeContext context = new DecodeContext(LuminancePlane.fromImage(gray, pool), pool)) {
+			for (DecodeAttempt attempt : tier.attempts(context)) {
+				try {
+					return DecodeResult.of(attempt.decode(), attempt);
+				} catch (ReaderException e) {
+					// Siguiente intento
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.owner.qrscan.benchmark;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.common.HybridBinarizer;
+import com.owner.qrscan.decoder.DecodeAttempt;
+import com.owner.qrscan.decoder.DecodeContext;
+import com.owner.qrscan.decoder.DecodeResult;
+import com.owner.qrscan.decoder.DecodeTier;
+import com.owner.qrscan.decoder.DecoderEngine;
+import com.owner.qrscan.decoder.LuminanceBufferPool;
+import com.owner.qrscan.decoder.LuminancePlane;
+import com.owner.qrscan.decoder.ScanOptions;
+import com.owner.qrscan.metrics.ScanMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cadena de niveles con un MultiFormatReader nuevo (y su setHints) por intento, como antes, contra los lectores
+ * del pool de DecodeReaders; engine es el camino completo de DecoderEngine con la cadena secuencial.
+ * Los tres parten del BufferedImage ya leído e incluyen la misma conversión a luminancia.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecoderEngineBenchmark {
+
+	@Param({"qr-small-clean", "qr-hd-noisy", "code128-hd", "ean13-small", "qr-inverted", "empty-hd-noise"})
+	public String image;
+
+	private final List<DecodeTier> chain = Arrays.stream(DecodeTier.DEFAULT_CHAIN.split(","))
+			.map(DecodeTier::valueOf)
+			.toList();
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(8, 128L * 1024 * 1024);
+	private ExecutorService executor;
+	private DecoderEngine engine;
+	private BufferedImage picture;
+
+	@Setup
+	public void load() {
+		picture = Corpus.entry(image).image();
+		executor = Executors.newSingleThreadExecutor();
+		engine = new DecoderEngine(pool, new ScanMetrics(new SimpleMeterRegistry()), executor, chain, null, 60_000, 1024);
+	}
+
+	@TearDown
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public DecodeResult freshReaders() {
+		try (DecodeContext context = new DecodeContext(LuminancePlane.fromImage(picture, pool), pool)) {
+			for (DecodeTier tier : chain) {
+				for (DecodeAttempt attempt : tier.attempts(context)) {
+					try {
+						MultiFormatReader reader = new MultiFormatReader();
+						reader.setHints(attempt.hints());
+						return DecodeResult.of(reader.decode(new BinaryBitmap(new HybridBinarizer(attempt.source()))), attempt);
+					} catch (ReaderException e) {
+						// Siguiente intento
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	@Benchmark
+	public DecodeResult pooledReaders() {
+		try (DecodeContext context = new DecodeContext(LuminancePlane.fromImage(picture, pool), pool)) {
+			for (DecodeTier tier : chain) {
+				for (DecodeAttempt attempt : tier.attempts(context)) {
+					try {
+						return DecodeResult.of(attempt.decode(), attempt);
+					} catch (ReaderException e) {
+						// Siguiente intento
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	@Benchmark
+	public DecodeResult engine() {
+		return engine.decode(LuminancePlane.fromImage(picture, pool), ScanOptions.DEFAULT);
+	}
+}
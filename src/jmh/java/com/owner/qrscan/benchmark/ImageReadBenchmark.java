@@ -0,0 +1,65 @@
+package com.owner.qrscan.benchmark;
+
+import com.owner.qrscan.decoder.LuminanceBufferPool;
+import com.owner.qrscan.decoder.LuminancePlane;
+import com.owner.qrscan.decoder.LuminanceReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de la foto codificada hasta el plano de luminancia: imageIo es el camino anterior (ImageIO.read a un
+ * BufferedImage RGB y conversión a luminancia), luminanceReader el actual (reader reutilizado y, en los JPEG,
+ * solo el canal Y). Con maxMegapixels &gt; 0 la imagen se lee submuestreada hasta ese tamaño.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageReadBenchmark {
+
+	@Param({"qr-hd-noisy", "qr-photo-blur", "code128-hd", "qr-small-clean"})
+	public String image;
+
+	@Param({"0", "1"})
+	public long maxMegapixels;
+
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(8, 128L * 1024 * 1024);
+	private LuminanceReader reader;
+	private byte[] bytes;
+
+	@Setup
+	public void load() {
+		bytes = Corpus.entry(image).bytes();
+		reader = new LuminanceReader(pool, maxMegapixels * 1_000_000);
+	}
+
+	@Benchmark
+	public int imageIo() throws IOException {
+		try (LuminancePlane plane = LuminancePlane.fromImage(ImageIO.read(new ByteArrayInputStream(bytes)), pool)) {
+			return plane.width();
+		}
+	}
+
+	@Benchmark
+	public int luminanceReader() throws IOException {
+		try (LuminancePlane plane = reader.read(bytes, bytes.length).plane()) {
+			return plane.width();
+		}
+	}
+}
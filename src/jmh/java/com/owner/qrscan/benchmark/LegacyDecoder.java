@@ -0,0 +1,97 @@
+package com.owner.qrscan.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copia del camino de decodificación original de PhotoServiceImpl (detectCode, tryRotating y
+ * turnImage): todos los formatos con TRY_HARDER sobre un BufferedImageLuminanceSource y, si no
+ * encuentra nada, copias rotadas de la imagen. Sirve de línea base para comparar la cadena de niveles.
+ */
+final class LegacyDecoder {
+
+	private LegacyDecoder() {
+	}
+
+	static String detectCode(BufferedImage imagen) {
+		Map<DecodeHintType, Object> hints = new HashMap<>();
+		hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+		hints.put(DecodeHintType.POSSIBLE_FORMATS, Arrays.asList(
+				BarcodeFormat.QR_CODE,
+				BarcodeFormat.CODE_128,
+				BarcodeFormat.CODE_39,
+				BarcodeFormat.EAN_13,
+				BarcodeFormat.EAN_8,
+				BarcodeFormat.UPC_A,
+				BarcodeFormat.UPC_E,
+				BarcodeFormat.DATA_MATRIX,
+				BarcodeFormat.PDF_417
+		));
+
+		LuminanceSource source = new BufferedImageLuminanceSource(imagen);
+		BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+		MultiFormatReader reader = new MultiFormatReader();
+		reader.setHints(hints);
+		try {
+			return reader.decode(bitmap).getText();
+		} catch (NotFoundException e) {
+			return tryRotating(imagen, hints);
+		}
+	}
+
+	private static String tryRotating(BufferedImage image, Map<DecodeHintType, Object> hints) {
+		for (int angle : new int[]{90, 180, 270}) {
+			BufferedImage imagenRotada = turnImage(image, angle);
+
+			LuminanceSource source = new BufferedImageLuminanceSource(imagenRotada);
+			BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+			MultiFormatReader reader = new MultiFormatReader();
+			reader.setHints(hints);
+			try {
+				Result resultado = reader.decode(bitmap);
+				return resultado.getText();
+			} catch (NotFoundException e) {
+				// Continuar con la siguiente rotación
+			}
+		}
+		return null;
+	}
+
+	private static BufferedImage turnImage(BufferedImage image, int angle) {
+		int ancho = image.getWidth();
+		int alto = image.getHeight();
+
+		BufferedImage imagenRotada;
+		if (angle == 90 || angle == 270) {
+			imagenRotada = new BufferedImage(alto, ancho, image.getType());
+		} else {
+			imagenRotada = new BufferedImage(ancho, alto, image.getType());
+		}
+
+		Graphics2D g2d = imagenRotada.createGraphics();
+		if (angle == 90 || angle == 270) {
+			g2d.translate(alto / 2, ancho / 2);
+		} else {
+			g2d.translate(ancho / 2, alto / 2);
+		}
+		g2d.rotate(Math.toRadians(angle));
+		g2d.translate(-ancho / 2, -alto / 2);
+		g2d.drawImage(image, 0, 0, null);
+		g2d.dispose();
+
+		return imagenRotada;
+	}
+}
@@ -0,0 +1,101 @@
+package com.owner.qrscan.benchmark;
+
+import com.owner.qrscan.socket.SessionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de conectar/desconectar, buscar y contar sesiones según cuántas haya conectadas.
+ * Con {@link SessionRegistry} debe quedar plano; el mapa único anterior (legacy*) crece con la cantidad.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionRegistryBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int sessions;
+
+	private final SessionRegistry<StubSession> registry = new SessionRegistry<>();
+	// Mapa de SocketConnectionHandler antes del registro: la misma sesión bajo sessionId y socketId
+	private final ConcurrentMap<String, WebSocketSession> legacy = new ConcurrentHashMap<>();
+	private StubSession[] connected;
+	private String[] socketIds;
+	private int next;
+
+	@Setup
+	public void connect() {
+		connected = new StubSession[sessions];
+		socketIds = new String[sessions];
+		for (int i = 0; i < sessions; i++) {
+			connected[i] = new StubSession("session-" + i);
+			socketIds[i] = "kiosk-" + i;
+			registry.register(connected[i], socketIds[i]);
+			legacy.put(connected[i].getId(), connected[i]);
+			legacy.put(socketIds[i], connected[i]);
+		}
+	}
+
+	private int nextIndex() {
+		int index = next;
+		next = index + 1 == sessions ? 0 : index + 1;
+		return index;
+	}
+
+	/**
+	 * Un kiosco se desconecta y vuelve a conectar con el mismo socketId
+	 */
+	@Benchmark
+	public WebSocketSession reconnect() {
+		int i = nextIndex();
+		registry.unregister(connected[i].getId());
+		return registry.register(connected[i], socketIds[i]);
+	}
+
+	@Benchmark
+	public WebSocketSession lookup() {
+		return registry.find(socketIds[nextIndex()]);
+	}
+
+	@Benchmark
+	public int count() {
+		return registry.size();
+	}
+
+	@Benchmark
+	public WebSocketSession legacyReconnect() {
+		int i = nextIndex();
+		String sessionId = connected[i].getId();
+		legacy.remove(sessionId);
+		legacy.entrySet().removeIf(entry -> sessionId.equals(entry.getValue().getId()));
+		legacy.put(sessionId, connected[i]);
+		return legacy.put(socketIds[i], connected[i]);
+	}
+
+	@Benchmark
+	public int legacyCount() {
+		legacy.entrySet().removeIf(entry -> !entry.getValue().isOpen());
+		return (int) legacy.values().stream()
+				.filter(WebSocketSession::isOpen)
+				.map(WebSocketSession::getId)
+				.distinct()
+				.count();
+	}
+}
@@ -0,0 +1,119 @@
+package com.owner.qrscan.benchmark;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sesión WebSocket mínima para los benchmarks: solo tiene id y estado abierto, y descarta lo que se le envía.
+ * Con {@code sendDelayNanos} simula un cliente lento que tarda en aceptar cada mensaje.
+ */
+final class StubSession implements WebSocketSession {
+
+	private final String id;
+	private final long sendDelayNanos;
+	private volatile boolean open = true;
+
+	StubSession(String id) {
+		this(id, 0);
+	}
+
+	StubSession(String id, long sendDelayNanos) {
+		this.id = id;
+		this.sendDelayNanos = sendDelayNanos;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public URI getUri() {
+		return null;
+	}
+
+	@Override
+	public HttpHeaders getHandshakeHeaders() {
+		return HttpHeaders.EMPTY;
+	}
+
+	@Override
+	public Map<String, Object> getAttributes() {
+		return Map.of();
+	}
+
+	@Override
+	public Principal getPrincipal() {
+		return null;
+	}
+
+	@Override
+	public InetSocketAddress getLocalAddress() {
+		return null;
+	}
+
+	@Override
+	public InetSocketAddress getRemoteAddress() {
+		return null;
+	}
+
+	@Override
+	public String getAcceptedProtocol() {
+		return null;
+	}
+
+	@Override
+	public void setTextMessageSizeLimit(int messageSizeLimit) {
+	}
+
+	@Override
+	public int getTextMessageSizeLimit() {
+		return 0;
+	}
+
+	@Override
+	public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+	}
+
+	@Override
+	public int getBinaryMessageSizeLimit() {
+		return 0;
+	}
+
+	@Override
+	public List<WebSocketExtension> getExtensions() {
+		return List.of();
+	}
+
+	@Override
+	public void sendMessage(WebSocketMessage<?> message) {
+		if (sendDelayNanos > 0) {
+			LockSupport.parkNanos(sendDelayNanos);
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() {
+		open = false;
+	}
+
+	@Override
+	public void close(CloseStatus status) {
+		open = false;
+	}
+}
@@ -0,0 +1,34 @@
+package com.owner.qrscan.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Bus entre nodos para entregar mensajes a sockets que están conectados en otra instancia.
+ * La entrega es best-effort: si un nodo está caído sus mensajes se pierden, y el cliente
+ * conserva el GET de respaldo (/api/jobs/{jobId}).
+ */
+public interface ClusterBus extends AutoCloseable {
+
+    /**
+     * Identificador de este nodo, el que figura como origen de sus mensajes
+     */
+    String nodeId();
+
+    /**
+     * Envía el mensaje a todos los demás nodos; devuelve a cuántos
+     */
+    int publish(ClusterMessage message);
+
+    /**
+     * Envía el mensaje a un nodo; devuelve false si el nodo no se conoce
+     */
+    boolean send(String nodeId, ClusterMessage message);
+
+    /**
+     * Recibe los mensajes que llegan de otros nodos
+     */
+    void subscribe(Consumer<ClusterMessage> listener);
+
+    @Override
+    void close();
+}
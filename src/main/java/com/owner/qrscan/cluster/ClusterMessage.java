@@ -0,0 +1,20 @@
+package com.owner.qrscan.cluster;
+
+/**
+ * Mensaje entre nodos. {@code origin} es el nodo que lo emitió y {@code target} depende del tipo:
+ * socketId para DIRECT/SOCKET_UP/SOCKET_DOWN, nombre de la sala para ROOM, null para BROADCAST.
+ */
+public record ClusterMessage(Type type, String origin, String target, String payload) {
+
+    public enum Type {
+        // Mensaje para el cliente con ese socketId, lo entrega el nodo que tenga su socket
+        DIRECT,
+        // Mensaje para los miembros de la sala en cada nodo
+        ROOM,
+        // Mensaje para todos los clientes de cada nodo
+        BROADCAST,
+        // El socketId se conectó / desconectó en el nodo origen (directorio de sockets)
+        SOCKET_UP,
+        SOCKET_DOWN
+    }
+}
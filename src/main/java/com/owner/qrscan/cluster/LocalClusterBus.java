@@ -0,0 +1,75 @@
+package com.owner.qrscan.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Bus dentro del mismo proceso: los nodos que comparten un {@link Hub} se ven entre sí y la entrega es
+ * una llamada directa. Con un hub propio (la configuración por defecto) es una instancia sola y
+ * publicar no llega a nadie.
+ */
+public class LocalClusterBus implements ClusterBus {
+
+    /**
+     * Nodos del mismo proceso que se ven entre sí
+     */
+    public static final class Hub {
+        private final Map<String, LocalClusterBus> nodes = new ConcurrentHashMap<>();
+    }
+
+    private final String nodeId;
+    private final Hub hub;
+    private final List<Consumer<ClusterMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    public LocalClusterBus(String nodeId, Hub hub) {
+        this.nodeId = nodeId;
+        this.hub = hub;
+        if (hub.nodes.putIfAbsent(nodeId, this) != null) {
+            throw new IllegalStateException("Ya hay un nodo " + nodeId + " en el hub");
+        }
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public int publish(ClusterMessage message) {
+        int reached = 0;
+        for (LocalClusterBus node : hub.nodes.values()) {
+            if (node != this) {
+                node.deliver(message);
+                reached++;
+            }
+        }
+        return reached;
+    }
+
+    @Override
+    public boolean send(String nodeId, ClusterMessage message) {
+        LocalClusterBus node = hub.nodes.get(nodeId);
+        if (node == null || node == this) {
+            return false;
+        }
+        node.deliver(message);
+        return true;
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterMessage> listener) {
+        listeners.add(listener);
+    }
+
+    private void deliver(ClusterMessage message) {
+        listeners.forEach(listener -> listener.accept(message));
+    }
+
+    @Override
+    public void close() {
+        hub.nodes.remove(nodeId, this);
+    }
+}
@@ -0,0 +1,33 @@
+package com.owner.qrscan.cluster;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * En qué nodo está conectado cada socketId, según los avisos SOCKET_UP / SOCKET_DOWN del bus.
+ * Es una pista para mandar el mensaje solo a ese nodo: un nodo que arrancó después no conoce los
+ * sockets previos, y en ese caso el mensaje se publica a todos y lo entrega quien tenga el socket.
+ */
+public class SocketDirectory {
+
+    private final ConcurrentMap<String, String> nodeBySocketId = new ConcurrentHashMap<>();
+
+    public void bind(String socketId, String nodeId) {
+        nodeBySocketId.put(socketId, nodeId);
+    }
+
+    /**
+     * Quita el vínculo solo si sigue apuntando a ese nodo (el cliente pudo reconectarse en otro)
+     */
+    public void unbind(String socketId, String nodeId) {
+        nodeBySocketId.remove(socketId, nodeId);
+    }
+
+    public String nodeOf(String socketId) {
+        return nodeBySocketId.get(socketId);
+    }
+
+    public int size() {
+        return nodeBySocketId.size();
+    }
+}
@@ -0,0 +1,256 @@
+package com.owner.qrscan.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bus por TCP entre JVMs, sin broker: cada nodo escucha en un puerto y mantiene una conexión saliente
+ * por cada par configurado, por la que manda una línea JSON por mensaje. El id de cada nodo es su
+ * dirección host:puerto, así que la lista de pares sirve también de lista de nodos.
+ * Cada par tiene una cola acotada y un escritor propio (hilo virtual) que reconecta si se cae la
+ * conexión; con la cola llena se descarta el mensaje más viejo. Pensado para pruebas y despliegues
+ * chicos en una red de confianza: no hay autenticación.
+ */
+public class TcpClusterBus implements ClusterBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpClusterBus.class);
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final long RECONNECT_DELAY_MS = 1000;
+
+    private final String nodeId;
+    private final ObjectMapper objectMapper;
+    private final ServerSocket server;
+    private final Map<String, Peer> peers = new LinkedHashMap<>();
+    private final List<Consumer<ClusterMessage>> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("cluster-bus-", 0).factory());
+    private volatile boolean closed;
+
+    public TcpClusterBus(String nodeId, String bindAddress, int port, List<String> peerAddresses,
+                         int queueCapacity, ObjectMapper objectMapper) {
+        this.nodeId = nodeId;
+        this.objectMapper = objectMapper;
+        try {
+            this.server = new ServerSocket();
+            server.bind(new InetSocketAddress(bindAddress, port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el puerto del bus " + bindAddress + ":" + port, e);
+        }
+        for (String address : peerAddresses) {
+            if (!address.isBlank() && !address.equals(nodeId)) {
+                peers.put(address, new Peer(address, queueCapacity));
+            }
+        }
+        threads.execute(this::acceptLoop);
+        peers.values().forEach(peer -> threads.execute(peer::writeLoop));
+        logger.info("🛰️ Bus TCP del nodo {} escuchando en {}:{} con {} pares", nodeId, bindAddress, port, peers.size());
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public int publish(ClusterMessage message) {
+        if (peers.isEmpty()) {
+            return 0;
+        }
+        // Se serializa una vez para todos los pares
+        String line = serialize(message);
+        if (line == null) {
+            return 0;
+        }
+        peers.values().forEach(peer -> peer.offer(line));
+        return peers.size();
+    }
+
+    @Override
+    public boolean send(String nodeId, ClusterMessage message) {
+        Peer peer = peers.get(nodeId);
+        if (peer == null) {
+            return false;
+        }
+        String line = serialize(message);
+        if (line == null) {
+            return false;
+        }
+        peer.offer(line);
+        return true;
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterMessage> listener) {
+        listeners.add(listener);
+    }
+
+    private String serialize(ClusterMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            logger.error("⚠️ No se pudo serializar el mensaje del bus {}", message.type(), e);
+            return null;
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                threads.execute(() -> readLoop(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.error("⚠️ Error aceptando conexiones del bus: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee los mensajes de un par, una línea JSON por mensaje, hasta que cierre la conexión
+     */
+    private void readLoop(Socket socket) {
+        try (socket; BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                ClusterMessage message;
+                try {
+                    message = objectMapper.readValue(line, ClusterMessage.class);
+                } catch (JsonProcessingException e) {
+                    logger.warn("⚠️ Mensaje del bus inválido desde {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+                    continue;
+                }
+                for (Consumer<ClusterMessage> listener : listeners) {
+                    try {
+                        listener.accept(message);
+                    } catch (RuntimeException e) {
+                        logger.error("⚠️ Error atendiendo mensaje del bus {}", message.type(), e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                logger.debug("Conexión del bus cerrada desde {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            logger.debug("No se pudo cerrar el puerto del bus: {}", e.getMessage());
+        }
+        threads.shutdownNow();
+    }
+
+    /**
+     * Conexión saliente a un par, con su cola acotada y un único escritor
+     */
+    private final class Peer {
+
+        private final String address;
+        private final String host;
+        private final int port;
+        private final BlockingQueue<String> queue;
+        private final AtomicLong dropped = new AtomicLong();
+
+        Peer(String address, int capacity) {
+            int colon = address.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Par del bus inválido (se espera host:puerto): " + address);
+            }
+            this.address = address;
+            this.host = address.substring(0, colon);
+            this.port = Integer.parseInt(address.substring(colon + 1));
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void offer(String line) {
+            while (!queue.offer(line)) {
+                // Par caído o lento: se descarta el más viejo para no frenar a quien publica
+                if (queue.poll() != null && dropped.incrementAndGet() % 1000 == 1) {
+                    logger.warn("🐢 Cola del bus hacia {} llena: {} mensajes descartados", address, dropped.get());
+                }
+            }
+        }
+
+        void writeLoop() {
+            boolean warned = false;
+            while (!closed) {
+                try (Socket socket = connect();
+                     Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                    logger.info("🛰️ Conectado al nodo {}", address);
+                    warned = false;
+                    while (!closed) {
+                        out.write(queue.take());
+                        out.write('\n');
+                        // Agrupar en una escritura lo que se haya acumulado mientras tanto
+                        if (queue.isEmpty()) {
+                            out.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    if (!closed && !warned) {
+                        logger.warn("⚠️ Sin conexión con el nodo {}: {} (se reintenta)", address, e.getMessage());
+                        warned = true;
+                    }
+                    if (!pause()) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private Socket connect() throws IOException {
+            Socket socket = new Socket();
+            try {
+                // Se resuelve en cada intento: el par puede arrancar después que este nodo
+                socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+                socket.setTcpNoDelay(true);
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        private boolean pause() {
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+                return true;
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.owner.qrscan.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.owner.qrscan.cluster.ClusterBus;
+import com.owner.qrscan.cluster.LocalClusterBus;
+import com.owner.qrscan.cluster.TcpClusterBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.UUID;
+
+//Bus entre nodos para entregar resultados a sockets conectados en otra instancia
+@Configuration
+public class ClusterConfig {
+
+    /**
+     * local: una sola instancia (o varias dentro del mismo proceso), publicar no sale de la JVM.
+     * tcp: cada nodo escucha en qrscan.cluster.tcp.port y se conecta a los pares de qrscan.cluster.tcp.peers;
+     * su id es qrscan.cluster.tcp.advertise (host:puerto tal como lo listan los demás).
+     */
+    @Bean(destroyMethod = "close")
+    public ClusterBus clusterBus(
+            @Value("${qrscan.cluster.bus:local}") String type,
+            @Value("${qrscan.cluster.tcp.bind:127.0.0.1}") String bindAddress,
+            @Value("${qrscan.cluster.tcp.port:7001}") int port,
+            @Value("${qrscan.cluster.tcp.advertise:}") String advertise,
+            @Value("${qrscan.cluster.tcp.peers:}") List<String> peers,
+            @Value("${qrscan.cluster.tcp.queue-capacity:1024}") int queueCapacity,
+            ObjectMapper objectMapper) {
+        if ("tcp".equalsIgnoreCase(type)) {
+            String nodeId = advertise.isBlank() ? "localhost:" + port : advertise;
+            return new TcpClusterBus(nodeId, bindAddress, port, peers, queueCapacity, objectMapper);
+        }
+        if (!"local".equalsIgnoreCase(type)) {
+            throw new IllegalArgumentException("qrscan.cluster.bus debe ser local o tcp: " + type);
+        }
+        return new LocalClusterBus(UUID.randomUUID().toString(), new LocalClusterBus.Hub());
+    }
+}
@@ -0,0 +1,124 @@
+package com.owner.qrscan.config;
+
+import com.owner.qrscan.decoder.LuminanceBufferPool;
+import com.owner.qrscan.decoder.LuminanceReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Beans compartidos por el pipeline de decodificación de fotos
+@Configuration
+public class DecoderConfig {
+
+    @Bean
+    public LuminanceBufferPool luminanceBufferPool(
+            @Value("${qrscan.decode.pool.max-buffers:8}") int maxBuffers,
+            @Value("${qrscan.decode.pool.max-retained-mb:128}") long maxRetainedMb) {
+        return new LuminanceBufferPool(maxBuffers, maxRetainedMb * 1024 * 1024);
+    }
+
+    @Bean
+    public LuminanceReader luminanceReader(LuminanceBufferPool pool,
+                                           @Value("${qrscan.decode.read.max-megapixels:16}") long maxMegapixels) {
+        return new LuminanceReader(pool, maxMegapixels * 1_000_000);
+    }
+
+    /**
+     * Pool de plataforma, uno por núcleo, donde corre la decodificación de las fotos de /photo.
+     * Los hilos de las peticiones (virtuales si spring.threads.virtual.enabled) solo hacen la E/S y esperan.
+     * Con la cola llena la tarea se rechaza enseguida y la petición responde 503, en vez de sumar
+     * más trabajo de CPU del que los núcleos pueden atender.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor scanExecutor(
+            @Value("${qrscan.scan.executor.threads:0}") int threads,
+            @Value("${qrscan.scan.executor.queue-capacity:64}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("scan-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Executor acotado para los intentos de decodificación en paralelo (rotaciones, niveles caros).
+     * Si la cola se llena el intento corre en el hilo que lo pidió, así la carga nunca se descarta.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor decodeExecutor(
+            @Value("${qrscan.decode.executor.threads:0}") int threads,
+            @Value("${qrscan.decode.executor.queue-capacity:256}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("decode-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Pool compartido para las imágenes de los lotes: cada imagen se decodifica apenas llega su parte.
+     * Con la cola llena decodifica el hilo que está leyendo el lote, lo que frena la lectura
+     * y acota cuántas imágenes hay en memoria.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor batchExecutor(
+            @Value("${qrscan.batch.executor.threads:0}") int threads,
+            @Value("${qrscan.batch.executor.queue-capacity:32}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("batch-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Workers de los trabajos asíncronos, uno por núcleo. La cola ordena por prioridad y está acotada:
+     * absorbe ráfagas y, llena, rechaza (503) en vez de acumular imágenes en memoria.
+     * Solo acepta tareas Comparable (usar execute, no submit).
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor jobExecutor(
+            @Value("${qrscan.jobs.executor.threads:0}") int threads,
+            @Value("${qrscan.jobs.queue-capacity:64}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                new BoundedPriorityBlockingQueue(queueCapacity), namedThreads("job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * PriorityBlockingQueue no tiene límite: offer devuelve false al llegar a la capacidad
+     * y el executor aplica su política de rechazo
+     */
+    static class BoundedPriorityBlockingQueue extends PriorityBlockingQueue<Runnable> {
+
+        private final int capacity;
+
+        BoundedPriorityBlockingQueue(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public synchronized boolean offer(Runnable task) {
+            return size() < capacity && super.offer(task);
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, capacity - size());
+        }
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package com.owner.qrscan.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Beans de la generación de códigos
+@Configuration
+public class GeneratorConfig {
+
+    /**
+     * Pool propio para la generación masiva, separado del common pool (que usan parallel streams y
+     * CompletableFuture) y de los pools de decodificación: una corrida de 100k etiquetas no les quita hilos.
+     * Un ForkJoinPool porque el hilo que espera un código (join) lo dibuja él mismo si nadie lo tomó todavía.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ForkJoinPool generatePool(@Value("${qrscan.generate.bulk.threads:0}") int threads) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        return new ForkJoinPool(size, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("generate-" + counter.incrementAndGet());
+            return thread;
+        }, null, false);
+    }
+}
@@ -0,0 +1,144 @@
+package com.owner.qrscan.config;
+
+import com.owner.qrscan.decoder.AdmissionController;
+import com.owner.qrscan.decoder.AdmissionRejectedException;
+import com.owner.qrscan.decoder.LuminanceBufferPool;
+import com.owner.qrscan.generator.RenderedCodeCache;
+import com.owner.qrscan.history.ScanHistoryWriter;
+import com.owner.qrscan.socket.SocketConnectionHandler;
+import com.owner.qrscan.web.UploadBufferPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+//Gauges de estado (sesiones, colas, pools, admisión) que se leen recién cuando Prometheus consulta
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Hilos activos, tareas en cola y completadas de cada pool (executor.active, executor.queued, ...):
+     * la saturación se ve comparando active con pool.size y queued con la capacidad de la cola
+     */
+    @Bean
+    public MeterBinder executorMetrics(@Qualifier("scanExecutor") ThreadPoolExecutor scanExecutor,
+                                       @Qualifier("decodeExecutor") ThreadPoolExecutor decodeExecutor,
+                                       @Qualifier("batchExecutor") ThreadPoolExecutor batchExecutor,
+                                       @Qualifier("jobExecutor") ThreadPoolExecutor jobExecutor,
+                                       @Qualifier("generatePool") ForkJoinPool generatePool) {
+        return registry -> {
+            // Se monitorean sin envolverlos: los beans siguen siendo los mismos ThreadPoolExecutor
+            new ExecutorServiceMetrics(scanExecutor, "scan", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(decodeExecutor, "decode", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(batchExecutor, "batch", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(jobExecutor, "job", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(generatePool, "generate", Tags.empty()).bindTo(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder admissionMetrics(AdmissionController admission) {
+        return registry -> {
+            Gauge.builder("qrscan.admission.limit", admission, AdmissionController::limit)
+                    .description("Límite de decodificaciones simultáneas")
+                    .register(registry);
+            Gauge.builder("qrscan.admission.in.flight", admission, AdmissionController::inFlight)
+                    .description("Decodificaciones admitidas en curso")
+                    .register(registry);
+            Gauge.builder("qrscan.admission.pixels.in.flight", admission, AdmissionController::pixelsInFlight)
+                    .description("Píxeles decodificados en memoria")
+                    .register(registry);
+            FunctionCounter.builder("qrscan.admission.admitted", admission, AdmissionController::admitted)
+                    .register(registry);
+            for (AdmissionRejectedException.Reason reason : AdmissionRejectedException.Reason.values()) {
+                FunctionCounter.builder("qrscan.admission.rejected", admission, a -> a.rejected(reason))
+                        .tag("reason", reason.name())
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder bufferPoolMetrics(LuminanceBufferPool pool) {
+        return registry -> {
+            Gauge.builder("qrscan.decode.pool.buffers", pool, LuminanceBufferPool::size)
+                    .description("Planos de luminancia libres en el pool")
+                    .register(registry);
+            Gauge.builder("qrscan.decode.pool.retained", pool, LuminanceBufferPool::retainedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder uploadPoolMetrics(UploadBufferPool pool) {
+        return registry -> {
+            Gauge.builder("qrscan.upload.pool.buffers", pool, UploadBufferPool::size)
+                    .description("Buffers de subida libres en el pool")
+                    .register(registry);
+            Gauge.builder("qrscan.upload.pool.retained", pool, UploadBufferPool::retainedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder historyMetrics(ScanHistoryWriter history) {
+        return registry -> {
+            Gauge.builder("qrscan.history.pending", history, ScanHistoryWriter::pending)
+                    .description("Lecturas esperando a guardarse en el historial")
+                    .register(registry);
+            FunctionCounter.builder("qrscan.history.written", history, ScanHistoryWriter::written)
+                    .register(registry);
+            FunctionCounter.builder("qrscan.history.dropped", history, ScanHistoryWriter::dropped)
+                    .description("Lecturas descartadas con la cola del historial llena")
+                    .register(registry);
+            FunctionCounter.builder("qrscan.history.failed", history, ScanHistoryWriter::failed)
+                    .description("Lecturas de lotes que no se pudieron guardar")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder generatorCacheMetrics(RenderedCodeCache cache) {
+        return registry -> {
+            Gauge.builder("qrscan.generate.cache.size", cache, RenderedCodeCache::weightedSize)
+                    .description("Bytes de imágenes generadas en el caché")
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("qrscan.generate.cache.hits", cache, c -> c.stats().hitCount())
+                    .register(registry);
+            FunctionCounter.builder("qrscan.generate.cache.misses", cache, c -> c.stats().missCount())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder socketMetrics(SocketConnectionHandler handler) {
+        return registry -> {
+            Gauge.builder("qrscan.socket.sessions", handler, SocketConnectionHandler::getConnectedClientsCount)
+                    .description("Sesiones WebSocket conectadas a este nodo")
+                    .register(registry);
+            Gauge.builder("qrscan.socket.rooms", handler, SocketConnectionHandler::getRoomCount)
+                    .register(registry);
+            Gauge.builder("qrscan.socket.outbound.pending", handler, SocketConnectionHandler::getOutboundPending)
+                    .description("Mensajes esperando en las colas de salida")
+                    .register(registry);
+            FunctionCounter.builder("qrscan.socket.outbound.dropped", handler, SocketConnectionHandler::getOutboundDropped)
+                    .description("Mensajes descartados por desborde o coalescencia")
+                    .register(registry);
+            FunctionCounter.builder("qrscan.socket.frames.received", handler, SocketConnectionHandler::getFramesReceived)
+                    .register(registry);
+            FunctionCounter.builder("qrscan.socket.frames.skipped", handler, SocketConnectionHandler::getFramesSkipped)
+                    .description("Cuadros descartados sin decodificar")
+                    .register(registry);
+        };
+    }
+}
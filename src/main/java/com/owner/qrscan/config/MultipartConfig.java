@@ -0,0 +1,29 @@
+package com.owner.qrscan.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.util.Set;
+
+//Reemplaza el resolver multipart de Spring Boot para dejar pasar sin parsear las rutas que leen el cuerpo como stream
+@Configuration
+public class MultipartConfig {
+
+    // Rutas que parsean su multipart a mano con MultipartStreamReader
+    public static final Set<String> STREAMING_PATHS = Set.of("/api/photos/batch");
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver() {
+        return new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                return !STREAMING_PATHS.contains(path) && super.isMultipart(request);
+            }
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.owner.qrscan.controllers;
+
+import com.owner.qrscan.models.ScanJob;
+import com.owner.qrscan.services.ScanJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("api")
+public class JobController {
+    @Autowired
+    private ScanJobService scanJobService;
+
+    /**
+     * Estado y resultado de un trabajo asíncrono, para clientes que no recibieron el mensaje por el socket
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ScanJob> getJob(@PathVariable String jobId) {
+        return ResponseEntity.of(scanJobService.getJob(jobId));
+    }
+}
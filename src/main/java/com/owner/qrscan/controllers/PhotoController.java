@@ -1,29 +1,65 @@
 package com.owner.qrscan.controllers;
 
-import com.google.zxing.*;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
-import com.google.zxing.common.HybridBinarizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.owner.qrscan.decoder.AdmissionRejectedException;
+import com.owner.qrscan.decoder.Region;
+import com.owner.qrscan.decoder.ScanOptions;
+import com.owner.qrscan.metrics.ScanMetrics;
+import com.owner.qrscan.models.ScanJob;
 import com.owner.qrscan.services.PhotoService;
-import com.owner.qrscan.socket.SocketConnectionHandler;
+import com.owner.qrscan.services.ScanJobService;
+import com.owner.qrscan.socket.RoomIndex;
+import com.owner.qrscan.web.MultipartStreamReader;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("api")
 public class PhotoController {
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private PhotoService photoService;
+    @Autowired
+    private ScanJobService scanJobService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ScanMetrics metrics;
+    // Límites propios del lote, que no pasa por el resolver multipart de Spring
+    @Value("${qrscan.batch.max-part-size:10485760}")
+    private long batchMaxPartSize;
+    @Value("${qrscan.batch.max-parts:200}")
+    private int batchMaxParts;
 
     @PostMapping("/photo/{id}")
-    public ResponseEntity<?> processPhotoForUser(@RequestParam("photo") MultipartFile file, @PathVariable String id) throws IOException {
+    public ResponseEntity<?> processPhotoForUser(@RequestParam("photo") MultipartFile file, @PathVariable String id,
+                                                 @RequestParam(required = false) Integer x, @RequestParam(required = false) Integer y,
+                                                 @RequestParam(required = false) Integer w, @RequestParam(required = false) Integer h,
+                                                 @RequestParam(defaultValue = "false") boolean multi,
+                                                 @RequestParam(required = false) String room,
+                                                 @RequestParam(defaultValue = "false") boolean async,
+                                                 @RequestParam(defaultValue = "NORMAL") ScanJob.Priority priority) throws IOException {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body("No se recibió ningún archivo.");
         }
@@ -31,11 +67,37 @@ public class PhotoController {
         if (contentType == null || !contentType.startsWith("image/")) {
             return ResponseEntity.badRequest().body("El archivo debe ser una imagen.");
         }
-        return ResponseEntity.of(photoService.processPhotoForUser(file, id));
+        ScanOptions options = scanOptions(x, y, w, h, multi);
+        if (options == null) {
+            return ResponseEntity.badRequest().body("La región (x, y, w, h) debe venir completa y con valores positivos.");
+        }
+        if (room != null && !RoomIndex.isValidName(room)) {
+            return ResponseEntity.badRequest().body("El nombre de la sala no es válido.");
+        }
+        if (async) {
+            if (multi) {
+                return ResponseEntity.badRequest().body("El modo asíncrono no admite multi-detección.");
+            }
+            // La subida responde apenas se encola; el resultado llega por el socket o por GET /api/jobs/{jobId}
+            ScanJob job = scanJobService.submit(metrics.readMultipart(file), id, room, options, priority);
+            Map<String, String> body = new LinkedHashMap<>();
+            body.put("jobId", job.getId());
+            body.put("status", job.getStatus().name());
+            body.put("statusUrl", "/api/jobs/" + job.getId());
+            return ResponseEntity.accepted().location(URI.create(body.get("statusUrl"))).body(body);
+        }
+        if (multi) {
+            return ResponseEntity.of(photoService.processImageMulti(metrics.readMultipart(file), id, room, options));
+        }
+        return ResponseEntity.of(photoService.processPhotoForUser(file, id, room, options));
     }
 
     @PostMapping("/photo")
-    public ResponseEntity<?> processPhoto(@RequestParam("photo") MultipartFile file) throws IOException {
+    public ResponseEntity<?> processPhoto(@RequestParam("photo") MultipartFile file,
+                                          @RequestParam(required = false) Integer x, @RequestParam(required = false) Integer y,
+                                          @RequestParam(required = false) Integer w, @RequestParam(required = false) Integer h,
+                                          @RequestParam(defaultValue = "false") boolean multi,
+                                          @RequestParam(required = false) String room) throws IOException {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body("No se recibió ningún archivo.");
         }
@@ -43,8 +105,205 @@ public class PhotoController {
         if (contentType == null || !contentType.startsWith("image/")) {
             return ResponseEntity.badRequest().body("El archivo debe ser una imagen.");
         }
-        return ResponseEntity.of(photoService.processPhoto(file));
+        ScanOptions options = scanOptions(x, y, w, h, multi);
+        if (options == null) {
+            return ResponseEntity.badRequest().body("La región (x, y, w, h) debe venir completa y con valores positivos.");
+        }
+        if (room != null && !RoomIndex.isValidName(room)) {
+            return ResponseEntity.badRequest().body("El nombre de la sala no es válido.");
+        }
+        if (multi) {
+            return ResponseEntity.of(photoService.processImageMulti(metrics.readMultipart(file), null, room, options));
+        }
+        if (room != null) {
+            // Sin id de cliente, el resultado solo se publica en la sala
+            return ResponseEntity.of(photoService.processPhotoForUser(file, null, room, options));
+        }
+        return ResponseEntity.of(photoService.processPhoto(file, options));
+
+    }
+
+    /**
+     * La imagen como cuerpo de la petición (Content-Type image/png, image/jpeg...) en lugar de multipart: se lee
+     * del stream directo a un buffer del pool, sin archivo temporal ni copias, y se rechaza con 415 o 413 apenas
+     * llega la cabecera si no es una imagen o es demasiado grande
+     */
+    @PostMapping(value = {"/photo", "/photo/{id}"}, consumes = "image/*")
+    public ResponseEntity<?> processRawPhoto(HttpServletRequest request, @PathVariable(required = false) String id,
+                                             @RequestParam(required = false) Integer x, @RequestParam(required = false) Integer y,
+                                             @RequestParam(required = false) Integer w, @RequestParam(required = false) Integer h,
+                                             @RequestParam(required = false) String room) throws IOException {
+        ScanOptions options = scanOptions(x, y, w, h, false);
+        if (options == null) {
+            return ResponseEntity.badRequest().body("La región (x, y, w, h) debe venir completa y con valores positivos.");
+        }
+        if (room != null && !RoomIndex.isValidName(room)) {
+            return ResponseEntity.badRequest().body("El nombre de la sala no es válido.");
+        }
+        return ResponseEntity.of(photoService.processRawImage(request.getInputStream(), request.getContentLengthLong(),
+                id, room, options));
+    }
+
+    /**
+     * Arma las opciones de escaneo; la ROI es opcional pero si viene tiene que estar completa.
+     * Devuelve null si la ROI es inválida.
+     */
+    private static ScanOptions scanOptions(Integer x, Integer y, Integer w, Integer h, boolean multi) {
+        if (x == null && y == null && w == null && h == null) {
+            return new ScanOptions(null, multi);
+        }
+        if (x == null || y == null || w == null || h == null || x < 0 || y < 0 || w <= 0 || h <= 0) {
+            return null;
+        }
+        return new ScanOptions(new Region(x, y, w, h), multi);
+    }
+
+    @GetMapping("/photo/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(photoService.getCacheStats());
+    }
+
+    @GetMapping("/photo/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionStats() {
+        return ResponseEntity.ok(photoService.getAdmissionStats());
+    }
+
+    /**
+     * Lote de imágenes en un solo multipart. Las partes se leen como stream (sin el límite de
+     * spring.servlet.multipart.max-request-size) y cada imagen se manda a decodificar apenas llega.
+     * Los resultados salen en el orden de las partes, como NDJSON si se pide application/x-ndjson
+     * o como un arreglo JSON que se va escribiendo a medida que terminan.
+     */
+    @PostMapping(value = "/photos/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public void processBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String boundary = MultipartStreamReader.boundaryOf(request.getContentType());
+        if (boundary == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Falta el boundary del multipart.");
+            return;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        boolean ndjson = accept != null && accept.contains(NDJSON);
+        response.setContentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        MultipartStreamReader reader = new MultipartStreamReader(request.getInputStream(), boundary, batchMaxPartSize);
+        OutputStream out = response.getOutputStream();
+        Deque<BatchItem> pending = new ArrayDeque<>();
+        int index = 0;
+        boolean first = true;
+        if (!ndjson) {
+            out.write('[');
+        }
+        // Motivo por el que se dejó de leer el cuerpo; la respuesta ya empezó (200 y parte del arreglo),
+        // así que se informa como un último elemento y lo que se leyó hasta ahí se termina normalmente
+        String stopReason = null;
+        String stopName = null;
+        while (true) {
+            MultipartStreamReader.Part part;
+            try {
+                part = reader.next();
+            } catch (MaxUploadSizeExceededException e) {
+                stopReason = "La imagen supera los " + batchMaxPartSize + " bytes.";
+                break;
+            } catch (IOException e) {
+                stopReason = "El multipart no es válido: " + e.getMessage();
+                break;
+            }
+            if (part == null) {
+                break;
+            }
+            if (!part.isFile()) {
+                continue;
+            }
+            if (index >= batchMaxParts) {
+                // El resto del cuerpo no se lee
+                stopReason = "El lote supera las " + batchMaxParts + " imágenes.";
+                stopName = part.filename();
+                break;
+            }
+            pending.add(new BatchItem(index++, part.filename(), submitPart(part)));
+            // Escribir lo que ya esté listo sin esperar al resto del lote
+            while (!pending.isEmpty() && pending.peek().result().isDone()) {
+                first = writeBatchItem(out, pending.poll(), ndjson, first);
+            }
+        }
+        while (!pending.isEmpty()) {
+            first = writeBatchItem(out, pending.poll(), ndjson, first);
+        }
+        if (stopReason != null) {
+            writeBatchItem(out, new BatchItem(index, stopName, CompletableFuture.completedFuture(errorResult(stopReason))),
+                    ndjson, first);
+        }
+        if (!ndjson) {
+            out.write(']');
+        }
+        out.flush();
+    }
+
+    private CompletableFuture<Map<String, String>> submitPart(MultipartStreamReader.Part part) {
+        String contentType = part.contentType();
+        if (part.data().length == 0) {
+            return CompletableFuture.completedFuture(errorResult("No se recibió ningún archivo."));
+        }
+        if (contentType == null || !contentType.startsWith("image/")) {
+            return CompletableFuture.completedFuture(errorResult("El archivo debe ser una imagen."));
+        }
+        return photoService.processImageAsync(part.data())
+                .exceptionally(e -> errorResult("Error procesando imagen: " + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage())));
+    }
+
+    private boolean writeBatchItem(OutputStream out, BatchItem item, boolean ndjson, boolean first) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", item.index());
+        line.put("name", item.name());
+        line.putAll(item.result().join());
+        if (!ndjson && !first) {
+            out.write(',');
+        }
+        out.write(objectMapper.writeValueAsBytes(line));
+        if (ndjson) {
+            out.write('\n');
+        }
+        out.flush();
+        return false;
+    }
+
+    /**
+     * El pool de decodificación o la cola de trabajos está saturada: se responde enseguida para que el cliente reintente
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleRejected(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResult("El servidor está procesando demasiadas imágenes, intente de nuevo en unos segundos."));
+    }
+
+    /**
+     * El control de admisión no dejó pasar la imagen: 429 si es por concurrencia (el cliente debe bajar el ritmo),
+     * 503 si falta memoria para más imágenes y 413 si la imagen sola supera el presupuesto
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleNotAdmitted(AdmissionRejectedException e) {
+        HttpStatus status = switch (e.getReason()) {
+            case CONCURRENCY -> HttpStatus.TOO_MANY_REQUESTS;
+            case MEMORY -> HttpStatus.SERVICE_UNAVAILABLE;
+            case TOO_LARGE -> HttpStatus.PAYLOAD_TOO_LARGE;
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (e.getRetryAfterSeconds() > 0) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        }
+        return response.body(errorResult(e.getMessage()));
+    }
+
+    private static Map<String, String> errorResult(String message) {
+        Map<String, String> result = new HashMap<>();
+        result.put("status", "error");
+        result.put("message", message);
+        return result;
+    }
 
+    private record BatchItem(int index, String name, CompletableFuture<Map<String, String>> result) {
     }
 
 
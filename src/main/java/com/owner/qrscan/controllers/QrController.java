@@ -1,20 +1,141 @@
 package com.owner.qrscan.controllers;
 
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.owner.qrscan.generator.BulkSpec;
+import com.owner.qrscan.generator.CodeSpec;
+import com.owner.qrscan.generator.RenderedCode;
+import com.owner.qrscan.models.QrMinuteCount;
+import com.owner.qrscan.models.QrScanPage;
 import com.owner.qrscan.services.QrService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("api")
 public class QrController {
     @Autowired
     private QrService qrService;
+    // La imagen depende solo de la URL, así que navegadores y proxies pueden guardarla sin volver a preguntar
+    @Value("${qrscan.generate.max-age-seconds:86400}")
+    private long maxAgeSeconds;
+
+    /**
+     * Genera un código: GET /api/qr?text=...&format=QR_CODE&size=300&ec=M&output=PNG|SVG|MATRIX.
+     * Con If-None-Match igual al ETag contesta 304 sin dibujar nada; si no, sale del caché de imágenes o se dibuja.
+     */
+    @GetMapping("/qr")
+    public ResponseEntity<byte[]> getQr(@RequestParam String text,
+                                        @RequestParam(defaultValue = "QR_CODE") BarcodeFormat format,
+                                        @RequestParam(defaultValue = "300") int size,
+                                        @RequestParam(required = false) Integer height,
+                                        @RequestParam(required = false) Integer margin,
+                                        @RequestParam(name = "ec", required = false) ErrorCorrectionLevel errorCorrection,
+                                        @RequestParam(defaultValue = "PNG") CodeSpec.Output output,
+                                        WebRequest request) {
+        CodeSpec spec = new CodeSpec(text, format, size, height != null ? height : size, margin, errorCorrection, output);
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+        if (request.checkNotModified(spec.etag())) {
+            return ResponseEntity.status(304).cacheControl(cacheControl).build();
+        }
+        RenderedCode code = qrService.generate(spec);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(code.contentType()))
+                .eTag(code.etag())
+                .cacheControl(cacheControl)
+                .body(code.body());
+    }
+
+    /**
+     * Generación masiva: el cuerpo es un CSV (texto[,nombre] por línea) y la respuesta, un ZIP con un PNG por línea
+     * o un PDF con hojas A4 de columns x rows etiquetas. La respuesta empieza a salir antes de terminar de leer el CSV;
+     * las líneas que no se pueden codificar quedan en errores.txt (ZIP) o marcadas en su celda (PDF).
+     */
+    @PostMapping(value = "/qr/batch", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public void generateBatch(@RequestParam(defaultValue = "QR_CODE") BarcodeFormat format,
+                              @RequestParam(defaultValue = "300") int size,
+                              @RequestParam(required = false) Integer height,
+                              @RequestParam(required = false) Integer margin,
+                              @RequestParam(name = "ec", required = false) ErrorCorrectionLevel errorCorrection,
+                              @RequestParam(defaultValue = "ZIP") BulkSpec.Output output,
+                              @RequestParam(defaultValue = "4") int columns,
+                              @RequestParam(defaultValue = "6") int rows,
+                              @RequestParam(defaultValue = "true") boolean labels,
+                              @RequestParam(defaultValue = "false") boolean header,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BulkSpec spec = new BulkSpec(format, size, height != null ? height : size, margin, errorCorrection, output,
+                columns, rows, labels, header);
+        // Sin charset en el Content-Type el CSV se lee como UTF-8, no como el ISO-8859-1 de la especificación de servlets
+        Charset charset = request.getCharacterEncoding() != null ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+        response.setContentType(output.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("codigos." + output.name().toLowerCase()).build().toString());
+        try (Reader csv = new InputStreamReader(request.getInputStream(), charset)) {
+            qrService.generateBulk(spec, csv, response.getOutputStream());
+        }
+    }
+
+    @GetMapping("/qr/cache")
+    public ResponseEntity<Map<String, Object>> getGenerationStats() {
+        return ResponseEntity.ok(qrService.getGenerationStats());
+    }
+
+    /**
+     * Historial de lecturas de un cliente (?clientId=) o de un código (?text=), de la más nueva a la más vieja,
+     * opcionalmente entre from y to (ISO-8601). Para la página siguiente se repite la consulta con ?cursor=nextCursor.
+     */
+    @GetMapping("/scans")
+    public ResponseEntity<QrScanPage> getScans(@RequestParam(required = false) String clientId,
+                                               @RequestParam(required = false) String text,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(qrService.findScans(clientId, text, from, to, cursor, limit));
+    }
+
+    /**
+     * Lecturas por minuto y formato en [from, to), de los contadores que se mantienen al guardar el historial
+     */
+    @GetMapping("/scans/per-minute")
+    public ResponseEntity<List<QrMinuteCount>> getScansPerMinute(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                                 @RequestParam(required = false) String format) {
+        return ResponseEntity.ok(qrService.getMinuteCounts(from, to, format));
+    }
+
+    @GetMapping("/scans/stats")
+    public ResponseEntity<Map<String, Object>> getHistoryStats() {
+        return ResponseEntity.ok(qrService.getHistoryStats());
+    }
 
-    @GetMapping("/tasks/getQr")
-    public ResponseEntity<Object> getQr() {
-        return ResponseEntity.ok(null);
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidQuery(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
     }
 }
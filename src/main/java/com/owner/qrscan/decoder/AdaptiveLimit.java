@@ -0,0 +1,41 @@
+package com.owner.qrscan.decoder;
+
+/**
+ * Límite de concurrencia AIMD: sube de a uno por cada "ventana" de decodificaciones que terminan dentro
+ * de la latencia objetivo mientras el límite se está usando, y baja un porcentaje cuando una se pasa.
+ * Así el límite se acomoda solo a la cantidad de núcleos y al tamaño de las imágenes, y en una ráfaga
+ * se frena antes de que todas las peticiones se vuelvan lentas a la vez. No es thread-safe: lo usa
+ * {@link AdmissionController} bajo su lock.
+ */
+final class AdaptiveLimit {
+
+    private final int min;
+    private final int max;
+    private final long targetNanos;
+    private final double backoff;
+    private double limit;
+
+    AdaptiveLimit(int initial, int min, int max, long targetNanos, double backoff) {
+        this.min = min;
+        this.max = max;
+        this.targetNanos = targetNanos;
+        this.backoff = backoff;
+        this.limit = Math.max(min, Math.min(max, initial));
+    }
+
+    /**
+     * Registra una decodificación terminada; {@code inFlight} son las que seguían corriendo
+     */
+    void onSample(long latencyNanos, int inFlight) {
+        if (latencyNanos > targetNanos) {
+            limit = Math.max(min, limit * backoff);
+        } else if (inFlight + 1 >= (int) limit) {
+            // Solo crece si el límite actual se estaba usando; si sobra capacidad no hay nada que aprender
+            limit = Math.min(max, limit + 1.0 / limit);
+        }
+    }
+
+    int get() {
+        return (int) limit;
+    }
+}
@@ -0,0 +1,245 @@
+package com.owner.qrscan.decoder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Control de admisión delante de la decodificación. Cada imagen necesita un permiso que cuenta contra
+ * dos límites: cuántas decodificaciones corren a la vez (adaptativo, ver {@link AdaptiveLimit}) y
+ * cuántos píxeles decodificados hay en memoria. Si no hay lugar se espera un rato corto y después se
+ * rechaza con {@link AdmissionRejectedException}, en vez de dejar que todo se vuelva lento o que se llene el heap.
+ * Hay dos carriles: las fotos interactivas pasan antes que los lotes y los trabajos asíncronos, que
+ * además solo pueden ocupar una parte del límite.
+ */
+@Component
+public class AdmissionController {
+
+    public enum Lane {
+        // /photo, /photo/{id}, multi-detección y cuadros de cámara: alguien está esperando la respuesta
+        INTERACTIVE,
+        // Lotes y trabajos asíncronos
+        BATCH
+    }
+
+    /**
+     * Permiso de una decodificación; cerrarlo libera el lugar y registra la latencia
+     */
+    public final class Permit implements AutoCloseable {
+        private final long pixels;
+        private final long start = System.nanoTime();
+        private boolean released;
+
+        private Permit(long pixels) {
+            this.pixels = pixels;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition interactiveTurn = lock.newCondition();
+    private final Condition batchTurn = lock.newCondition();
+    private final AdaptiveLimit limit;
+    private final boolean enabled;
+    private final long pixelBudget;
+    private final double batchShare;
+    private final long interactiveWaitNanos;
+    private final long batchWaitNanos;
+    private int inFlight;
+    private long pixelsInFlight;
+    private int interactiveWaiting;
+    // Latencia media (EWMA) para estimar el Retry-After
+    private double averageLatencyNanos;
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejectedConcurrency = new AtomicLong();
+    private final AtomicLong rejectedMemory = new AtomicLong();
+    private final AtomicLong rejectedTooLarge = new AtomicLong();
+
+    public AdmissionController(@Value("${qrscan.admission.enabled:true}") boolean enabled,
+                               @Value("${qrscan.admission.initial-limit:0}") int initialLimit,
+                               @Value("${qrscan.admission.max-limit:0}") int maxLimit,
+                               @Value("${qrscan.admission.target-latency-ms:2000}") long targetLatencyMs,
+                               @Value("${qrscan.admission.max-megapixels:128}") long maxMegapixels,
+                               @Value("${qrscan.admission.batch-share:0.75}") double batchShare,
+                               @Value("${qrscan.admission.interactive-wait-ms:250}") long interactiveWaitMs,
+                               @Value("${qrscan.admission.batch-wait-ms:2000}") long batchWaitMs) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.enabled = enabled;
+        this.limit = new AdaptiveLimit(initialLimit > 0 ? initialLimit : cores * 2, 1,
+                maxLimit > 0 ? maxLimit : cores * 8, TimeUnit.MILLISECONDS.toNanos(targetLatencyMs), 0.9);
+        this.pixelBudget = maxMegapixels * 1_000_000;
+        this.batchShare = batchShare;
+        this.interactiveWaitNanos = TimeUnit.MILLISECONDS.toNanos(interactiveWaitMs);
+        this.batchWaitNanos = TimeUnit.MILLISECONDS.toNanos(batchWaitMs);
+        this.averageLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs) / 4.0;
+    }
+
+    /**
+     * Rechaza con TOO_LARGE una imagen que sola supera el presupuesto, sin pedir lugar. Sirve para cortar
+     * una subida apenas se conoce el tamaño, antes de leer el resto del cuerpo.
+     */
+    public void checkSize(long pixels) {
+        if (enabled && pixels > pixelBudget) {
+            rejectedTooLarge.incrementAndGet();
+            throw new AdmissionRejectedException(AdmissionRejectedException.Reason.TOO_LARGE, 0,
+                    "La imagen tiene " + pixels / 1_000_000 + " MP y el máximo es " + pixelBudget / 1_000_000 + " MP.");
+        }
+    }
+
+    /**
+     * Pide lugar para decodificar una imagen de {@code pixels} píxeles. Espera como mucho el tiempo del carril
+     * y si no hay lugar lanza AdmissionRejectedException.
+     */
+    public Permit acquire(Lane lane, long pixels) {
+        if (!enabled) {
+            return new Permit(0);
+        }
+        checkSize(pixels);
+        boolean interactive = lane == Lane.INTERACTIVE;
+        lock.lock();
+        try {
+            long remaining = interactive ? interactiveWaitNanos : batchWaitNanos;
+            if (interactive) {
+                interactiveWaiting++;
+            }
+            try {
+                while (!fits(lane, pixels)) {
+                    if (remaining <= 0) {
+                        throw reject(pixelsInFlight + pixels > pixelBudget);
+                    }
+                    remaining = (interactive ? interactiveTurn : batchTurn).awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject(false);
+            } finally {
+                // La última interactiva que deja de esperar (admitida o no) destraba a los lotes
+                if (interactive && --interactiveWaiting == 0) {
+                    batchTurn.signalAll();
+                }
+            }
+            inFlight++;
+            pixelsInFlight += pixels;
+        } finally {
+            lock.unlock();
+        }
+        admitted.incrementAndGet();
+        return new Permit(pixels);
+    }
+
+    private boolean fits(Lane lane, long pixels) {
+        int cap = limit.get();
+        if (lane == Lane.BATCH) {
+            // Los lotes ceden el paso si hay una foto interactiva esperando y nunca ocupan todo el límite
+            if (interactiveWaiting > 0) {
+                return false;
+            }
+            cap = Math.max(1, (int) (cap * batchShare));
+        }
+        return inFlight < cap && pixelsInFlight + pixels <= pixelBudget;
+    }
+
+    private AdmissionRejectedException reject(boolean memory) {
+        // Lo que tarda en promedio en liberarse un lugar, redondeado al segundo (mínimo de Retry-After)
+        long retryAfter = Math.max(1, (long) Math.ceil(averageLatencyNanos / limit.get() / 1e9));
+        if (memory) {
+            rejectedMemory.incrementAndGet();
+            return new AdmissionRejectedException(AdmissionRejectedException.Reason.MEMORY, retryAfter,
+                    "El servidor tiene demasiadas imágenes en memoria, intente de nuevo en unos segundos.");
+        }
+        rejectedConcurrency.incrementAndGet();
+        return new AdmissionRejectedException(AdmissionRejectedException.Reason.CONCURRENCY, retryAfter,
+                "El servidor está procesando demasiadas imágenes, intente de nuevo en unos segundos.");
+    }
+
+    private void release(Permit permit) {
+        long latency = System.nanoTime() - permit.start;
+        lock.lock();
+        try {
+            if (permit.released || !enabled) {
+                return;
+            }
+            permit.released = true;
+            inFlight--;
+            pixelsInFlight -= permit.pixels;
+            limit.onSample(latency, inFlight);
+            averageLatencyNanos = averageLatencyNanos * 0.9 + latency * 0.1;
+            // Primero las interactivas; los lotes vuelven a mirar si no queda ninguna esperando
+            interactiveTurn.signalAll();
+            batchTurn.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return limit.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long pixelsInFlight() {
+        lock.lock();
+        try {
+            return pixelsInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long admitted() {
+        return admitted.get();
+    }
+
+    public long rejected(AdmissionRejectedException.Reason reason) {
+        return switch (reason) {
+            case CONCURRENCY -> rejectedConcurrency.get();
+            case MEMORY -> rejectedMemory.get();
+            case TOO_LARGE -> rejectedTooLarge.get();
+        };
+    }
+
+    /**
+     * Estado actual para dimensionar los límites
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            result.put("enabled", enabled);
+            result.put("limit", limit.get());
+            result.put("inFlight", inFlight);
+            result.put("megapixelsInFlight", pixelsInFlight / 1_000_000.0);
+            result.put("averageLatencyMs", (long) (averageLatencyNanos / 1_000_000));
+        } finally {
+            lock.unlock();
+        }
+        result.put("admitted", admitted.get());
+        result.put("rejectedConcurrency", rejectedConcurrency.get());
+        result.put("rejectedMemory", rejectedMemory.get());
+        result.put("rejectedTooLarge", rejectedTooLarge.get());
+        return result;
+    }
+}
@@ -0,0 +1,34 @@
+package com.owner.qrscan.decoder;
+
+/**
+ * La decodificación no se admitió: el pipeline está al límite (se puede reintentar en
+ * {@link #getRetryAfterSeconds()} segundos) o la imagen sola supera el presupuesto de memoria.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    public enum Reason {
+        // Límite de concurrencia: el cliente debería bajar el ritmo (429)
+        CONCURRENCY,
+        // Presupuesto de píxeles en memoria agotado por otras imágenes (503)
+        MEMORY,
+        // La imagen por sí sola es más grande que el presupuesto completo (413)
+        TOO_LARGE
+    }
+
+    private final Reason reason;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(Reason reason, long retryAfterSeconds, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,36 @@
+package com.owner.qrscan.decoder;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mide los bytes asignados en el heap por el hilo actual, para reportar cuánta basura
+ * genera cada petición de decodificación.
+ */
+public final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * Bytes asignados hasta ahora por el hilo actual, o -1 si la JVM no lo soporta
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (THREADS == null) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        }
+        return null;
+    }
+}
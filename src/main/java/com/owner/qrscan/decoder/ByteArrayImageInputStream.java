@@ -0,0 +1,67 @@
+package com.owner.qrscan.decoder;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+
+/**
+ * ImageInputStream sobre un arreglo en memoria, sin copiarlo. ImageIO.read(InputStream) envuelve el stream
+ * en un FileCacheImageInputStream (con el caché de ImageIO activado, que es el valor por defecto) y escribe
+ * toda la imagen en un archivo temporal para poder volver atrás; acá los bytes ya están en memoria.
+ */
+public final class ByteArrayImageInputStream extends ImageInputStreamImpl {
+
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+
+    public ByteArrayImageInputStream(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public ByteArrayImageInputStream(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return data[offset + (int) streamPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos >= length) {
+            return -1;
+        }
+        int n = (int) Math.min(len, length - streamPos);
+        System.arraycopy(data, offset + (int) streamPos, b, off, n);
+        streamPos += n;
+        return n;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public boolean isCached() {
+        return true;
+    }
+
+    @Override
+    public boolean isCachedMemory() {
+        return true;
+    }
+}
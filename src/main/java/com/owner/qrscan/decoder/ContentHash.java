@@ -0,0 +1,58 @@
+package com.owner.qrscan.decoder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32C;
+
+/**
+ * Huella rápida del contenido subido: un hash de 64 bits que lee de a 8 bytes (mezcla al estilo
+ * xxHash64), más un CRC32C calculado por hardware y el largo. Sirve como clave del caché de
+ * resultados sin tener que decodificar la imagen.
+ */
+public record ContentHash(long hash, int crc, int length) {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+
+    public static ContentHash of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static ContentHash of(byte[] data, int offset, int length) {
+        long h = P3 + length;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            long k = (long) LONGS.get(data, i);
+            k *= P2;
+            k = Long.rotateLeft(k, 31);
+            k *= P1;
+            h ^= k;
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        for (; i < end; i++) {
+            h ^= (data[i] & 0xFFL) * P3;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+
+        CRC32C crc = new CRC32C();
+        crc.update(data, offset, length);
+        return new ContentHash(h, (int) crc.getValue(), length);
+    }
+
+    /**
+     * Representación hexadecimal, útil para logs y para guardar junto al resultado
+     */
+    public String toHex() {
+        return String.format("%016x%08x", hash, crc);
+    }
+}
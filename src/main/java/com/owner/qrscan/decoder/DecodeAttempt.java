@@ -0,0 +1,28 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.util.Map;
+
+/**
+ * Un intento concreto de decodificación: una vista de luminancia más un conjunto de hints.
+ * {@code scale} indica cuántos píxeles originales representa cada píxel de la vista.
+ */
+public record DecodeAttempt(DecodeTier tier, String label, LuminanceSource source,
+                            Map<DecodeHintType, Object> hints, int scale) {
+
+    /**
+     * Decodifica con un lector del pool ya configurado para estos hints ({@link DecodeReaders}), sin armar
+     * uno nuevo por intento
+     */
+    public Result decode() throws ReaderException {
+        try (DecodeReaders readers = DecodeReaders.acquire()) {
+            return readers.decode(new BinaryBitmap(new HybridBinarizer(source)), hints);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.owner.qrscan.decoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estado de una decodificación: el plano de luminancia de la foto y, si algún nivel lo pide,
+ * una versión reducida calculada una sola vez.
+ * Los intentos que corren en otros hilos toman una referencia con {@link #retain()} (o se lanzan con
+ * {@link #submit}); los buffers vuelven al pool cuando se cierra la última, aunque la petición ya haya respondido.
+ */
+public final class DecodeContext implements AutoCloseable {
+
+    // Lado mayor objetivo de la versión reducida
+    private static final int DOWNSCALED_MAX_SIDE = 1024;
+    // Zonas candidatas que se prueban a resolución completa antes que la imagen entera
+    private static final int MAX_REGIONS = 4;
+
+    private final LuminancePlane plane;
+    private final LuminanceBufferPool pool;
+    private final ScanOptions options;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private LuminancePlane downscaled;
+    private boolean downscaledComputed;
+    private List<Region> regions;
+
+    public DecodeContext(LuminancePlane plane, LuminanceBufferPool pool) {
+        this(plane, pool, ScanOptions.DEFAULT);
+    }
+
+    public DecodeContext(LuminancePlane plane, LuminanceBufferPool pool, ScanOptions options) {
+        this.plane = plane;
+        this.pool = pool;
+        this.options = options;
+    }
+
+    public ScanOptions options() {
+        return options;
+    }
+
+    public LuminancePlane plane() {
+        return plane;
+    }
+
+    /**
+     * Factor entero de reducción para llegar a {@link #DOWNSCALED_MAX_SIDE}; 1 si la foto ya es chica
+     */
+    public int downscaleFactor() {
+        int side = Math.max(plane.width(), plane.height());
+        return Math.max(1, (side + DOWNSCALED_MAX_SIDE - 1) / DOWNSCALED_MAX_SIDE);
+    }
+
+    /**
+     * Plano reducido por promedio de bloques, o null si la foto ya es chica
+     */
+    public synchronized LuminancePlane downscaled() {
+        if (!downscaledComputed) {
+            downscaledComputed = true;
+            int factor = downscaleFactor();
+            if (factor > 1) {
+                downscaled = plane.downscale(factor, pool);
+            }
+        }
+        return downscaled;
+    }
+
+    /**
+     * Zonas a probar a resolución completa: primero la indicada por el cliente y después
+     * las que encuentra {@link RegionDetector} sobre la versión reducida
+     */
+    public synchronized List<Region> regions() {
+        if (regions == null) {
+            List<Region> result = new ArrayList<>();
+            if (options.roi() != null) {
+                Region roi = options.roi().clampTo(plane.width(), plane.height());
+                if (roi != null) {
+                    result.add(roi);
+                }
+            }
+            LuminancePlane reduced = downscaled();
+            int scale = reduced != null ? downscaleFactor() : 1;
+            result.addAll(RegionDetector.detect(reduced != null ? reduced : plane, scale,
+                    plane.width(), plane.height(), MAX_REGIONS));
+            regions = result;
+        }
+        return regions;
+    }
+
+    /**
+     * Suma una referencia para un intento que corre en otro hilo; se libera con {@link #close()}
+     */
+    public DecodeContext retain() {
+        references.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * Lanza {@code task} en {@code executor} con una referencia propia al contexto, que se libera al terminar la
+     * tarea o al cancelarla antes de que empiece: una tarea cancelada en la cola del executor nunca corre, y si
+     * la liberara ella misma el contexto no volvería nunca al pool. Al terminar (o cancelarse) la tarea se
+     * agrega a {@code completed}, si no es null.
+     */
+    public <T> Future<T> submit(Executor executor, Callable<T> task, Queue<Future<T>> completed) {
+        ReferenceTask<T> future = new ReferenceTask<>(retain(), task, completed);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.cancel(false);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Hace abortar a los intentos que todavía estén leyendo los planos
+     */
+    public synchronized void cancel() {
+        plane.cancel();
+        if (downscaled != null) {
+            downscaled.cancel();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (references.decrementAndGet() > 0) {
+            return;
+        }
+        synchronized (this) {
+            if (downscaled != null) {
+                downscaled.close();
+            }
+            plane.close();
+        }
+    }
+
+    /**
+     * Tarea con una referencia al contexto: la cierra quien llegue primero, el hilo que la corre (al terminar)
+     * o la cancelación (si todavía no había empezado)
+     */
+    private static final class ReferenceTask<T> extends FutureTask<T> {
+
+        private final DecodeContext reference;
+        private final Queue<Future<T>> completed;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        ReferenceTask(DecodeContext reference, Callable<T> task, Queue<Future<T>> completed) {
+            super(task);
+            this.reference = reference;
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                // Cancelada antes de empezar: la referencia ya se liberó
+                return;
+            }
+            try {
+                super.run();
+            } finally {
+                reference.close();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() && claimed.compareAndSet(false, true)) {
+                reference.close();
+            }
+            if (completed != null) {
+                completed.add(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conjuntos de hints inmutables y compartidos, para no armar un HashMap por cada intento
+ */
+public final class DecodeHints {
+
+    public static final List<BarcodeFormat> ALL_FORMATS_LIST = List.of(
+            BarcodeFormat.QR_CODE,
+            BarcodeFormat.CODE_128,
+            BarcodeFormat.CODE_39,
+            BarcodeFormat.EAN_13,
+            BarcodeFormat.EAN_8,
+            BarcodeFormat.UPC_A,
+            BarcodeFormat.UPC_E,
+            BarcodeFormat.DATA_MATRIX,
+            BarcodeFormat.PDF_417
+    );
+
+    // Solo QR y sin TRY_HARDER: el caso más común (código limpio y derecho)
+    public static final Map<DecodeHintType, Object> QR_ONLY = hints(List.of(BarcodeFormat.QR_CODE), false);
+
+    // Todos los formatos soportados sin TRY_HARDER
+    public static final Map<DecodeHintType, Object> ALL_FORMATS = hints(ALL_FORMATS_LIST, false);
+
+    // Todos los formatos menos QR, para combinar con QRCodeMultiReader sin buscar los QR dos veces.
+    // Con TRY_HARDER los lectores 1D recorren todas las filas y no solo la franja central del recorte.
+    public static final Map<DecodeHintType, Object> NON_QR_TRY_HARDER = hints(ALL_FORMATS_LIST.stream()
+            .filter(format -> format != BarcodeFormat.QR_CODE).toList(), true);
+
+    // Configuración original de detectCode: todos los formatos con TRY_HARDER
+    public static final Map<DecodeHintType, Object> TRY_HARDER = hints(ALL_FORMATS_LIST, true);
+
+    private DecodeHints() {
+    }
+
+    private static Map<DecodeHintType, Object> hints(List<BarcodeFormat> formats, boolean tryHarder) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+        if (tryHarder) {
+            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        }
+        return Collections.unmodifiableMap(hints);
+    }
+}
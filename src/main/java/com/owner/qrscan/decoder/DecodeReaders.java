@@ -0,0 +1,126 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Juego de lectores de ZXing ya configurados, uno por conjunto de {@link DecodeHints}.
+ * MultiFormatReader.setHints arma la lista de lectores (y los de cada formato 1D) en cada llamada; acá se
+ * hace una sola vez por juego y después cada intento usa decodeWithState, que reutiliza esa lista.
+ * Los hints se buscan por identidad: los conjuntos de DecodeHints son constantes compartidas.
+ * <p>
+ * Los juegos se piden prestados a un pool acotado con {@link #acquire()} y vuelven al cerrarlos. No se atan
+ * al hilo: las fotos se atienden en hilos virtuales, uno nuevo por petición, y un ThreadLocal se armaba y
+ * se tiraba en cada una.
+ */
+public final class DecodeReaders implements AutoCloseable {
+
+    // Tope de conjuntos de hints por juego, por si alguien pasa mapas armados en el momento
+    private static final int MAX_HINT_SETS = 16;
+    // Juegos guardados para reutilizar: alcanza para el máximo de decodificaciones simultáneas de la admisión
+    // (8 por núcleo); si hay más en uso, los que sobran se descartan al devolverlos
+    private static final BlockingQueue<DecodeReaders> POOL =
+            new ArrayBlockingQueue<>(Math.max(16, Runtime.getRuntime().availableProcessors() * 8));
+
+    private final Map<Map<DecodeHintType, Object>, MultiFormatReader> readers = new IdentityHashMap<>();
+    private final QRCodeMultiReader qrMultiReader = new QRCodeMultiReader();
+    private GenericMultipleBarcodeReader multiReader;
+
+    private DecodeReaders() {
+    }
+
+    /**
+     * Un juego de lectores para uso exclusivo hasta cerrarlo
+     */
+    public static DecodeReaders acquire() {
+        DecodeReaders readers = POOL.poll();
+        return readers != null ? readers : new DecodeReaders();
+    }
+
+    /**
+     * Devuelve el juego al pool; cada decode ya lo deja listo para el siguiente
+     */
+    @Override
+    public void close() {
+        POOL.offer(this);
+    }
+
+    /**
+     * Decodifica con el lector del juego para {@code hints}, que queda listo para el siguiente intento
+     */
+    public Result decode(BinaryBitmap bitmap, Map<DecodeHintType, Object> hints) throws NotFoundException {
+        MultiFormatReader reader = readers.get(hints);
+        if (reader == null) {
+            reader = new MultiFormatReader();
+            reader.setHints(hints);
+            if (readers.size() < MAX_HINT_SETS) {
+                readers.put(hints, reader);
+            }
+        }
+        try {
+            return reader.decodeWithState(bitmap);
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * Todos los QR de la imagen
+     */
+    public Result[] decodeQrMultiple(BinaryBitmap bitmap) throws NotFoundException {
+        try {
+            return qrMultiReader.decodeMultiple(bitmap, DecodeHints.QR_ONLY);
+        } finally {
+            qrMultiReader.reset();
+        }
+    }
+
+    /**
+     * Todos los códigos que no son QR, con {@link DecodeHints#NON_QR_TRY_HARDER}. GenericMultipleBarcodeReader
+     * vuelve a pasar los hints en cada recorte que prueba; el lector delegado los ignora y usa los que ya tiene.
+     */
+    public Result[] decodeOthersMultiple(BinaryBitmap bitmap) throws NotFoundException {
+        if (multiReader == null) {
+            multiReader = new GenericMultipleBarcodeReader(new PresetReader(DecodeHints.NON_QR_TRY_HARDER));
+        }
+        return multiReader.decodeMultiple(bitmap, DecodeHints.NON_QR_TRY_HARDER);
+    }
+
+    /**
+     * Reader que siempre decodifica con el lector del juego para un mismo conjunto de hints
+     */
+    private final class PresetReader implements Reader {
+
+        private final Map<DecodeHintType, Object> hints;
+
+        PresetReader(Map<DecodeHintType, Object> hints) {
+            this.hints = hints;
+        }
+
+        @Override
+        public Result decode(BinaryBitmap image) throws NotFoundException {
+            return DecodeReaders.this.decode(image, hints);
+        }
+
+        @Override
+        public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> ignored) throws NotFoundException {
+            return DecodeReaders.this.decode(image, hints);
+        }
+
+        @Override
+        public void reset() {
+            // Cada decode ya deja el lector listo
+        }
+    }
+}
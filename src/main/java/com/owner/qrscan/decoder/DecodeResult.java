@@ -0,0 +1,14 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+/**
+ * Resultado de la cadena de decodificación, con el nivel y el intento que lo encontraron
+ */
+public record DecodeResult(String text, BarcodeFormat format, DecodeTier tier, String attempt, Result raw) {
+
+    public static DecodeResult of(Result result, DecodeAttempt attempt) {
+        return new DecodeResult(result.getText(), result.getBarcodeFormat(), attempt.tier(), attempt.label(), result);
+    }
+}
@@ -0,0 +1,84 @@
+package com.owner.qrscan.decoder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Niveles de la cadena de decodificación, ordenados de más barato a más caro.
+ * La cadena se corta en el primer nivel que encuentra un código.
+ */
+public enum DecodeTier {
+
+    // Zonas candidatas (y la indicada por el cliente) recortadas a resolución completa
+    REGIONS {
+        @Override
+        public List<DecodeAttempt> attempts(DecodeContext context) {
+            List<DecodeAttempt> attempts = new ArrayList<>();
+            for (Region region : context.regions()) {
+                attempts.add(new DecodeAttempt(this, region.toString(),
+                        context.plane().source().crop(region.x(), region.y(), region.width(), region.height()),
+                        DecodeHints.ALL_FORMATS, 1));
+            }
+            return attempts;
+        }
+    },
+
+    // Solo QR, sin TRY_HARDER, a resolución completa
+    QR_FAST {
+        @Override
+        public List<DecodeAttempt> attempts(DecodeContext context) {
+            return List.of(new DecodeAttempt(this, "qr", context.plane().source(), DecodeHints.QR_ONLY, 1));
+        }
+    },
+    // Todos los formatos sobre una versión reducida de la foto
+    DOWNSCALED {
+        @Override
+        public List<DecodeAttempt> attempts(DecodeContext context) {
+            LuminancePlane downscaled = context.downscaled();
+            if (downscaled == null) {
+                return List.of();
+            }
+            return List.of(new DecodeAttempt(this, "x" + context.downscaleFactor(), downscaled.source(),
+                    DecodeHints.ALL_FORMATS, context.downscaleFactor()));
+        }
+    },
+    // Todos los formatos, sin TRY_HARDER
+    ALL_FORMATS {
+        @Override
+        public List<DecodeAttempt> attempts(DecodeContext context) {
+            return List.of(new DecodeAttempt(this, "all", context.plane().source(), DecodeHints.ALL_FORMATS, 1));
+        }
+    },
+    // Todos los formatos con TRY_HARDER (la configuración original)
+    TRY_HARDER {
+        @Override
+        public List<DecodeAttempt> attempts(DecodeContext context) {
+            return List.of(new DecodeAttempt(this, "try_harder", context.plane().source(), DecodeHints.TRY_HARDER, 1));
+        }
+    },
+    // Rotaciones de 90, 180 y 270 grados con TRY_HARDER
+    ROTATED {
+        @Override
+        public List<DecodeAttempt> attempts(DecodeContext context) {
+            LuminancePlane plane = context.plane();
+            return List.of(
+                    new DecodeAttempt(this, "90", plane.source(90), DecodeHints.TRY_HARDER, 1),
+                    new DecodeAttempt(this, "180", plane.source(180), DecodeHints.TRY_HARDER, 1),
+                    new DecodeAttempt(this, "270", plane.source(270), DecodeHints.TRY_HARDER, 1));
+        }
+    },
+    // Imagen invertida (códigos claros sobre fondo oscuro) con TRY_HARDER
+    INVERTED {
+        @Override
+        public List<DecodeAttempt> attempts(DecodeContext context) {
+            return List.of(new DecodeAttempt(this, "inverted", context.plane().source().invert(), DecodeHints.TRY_HARDER, 1));
+        }
+    };
+
+    public static final String DEFAULT_CHAIN = "REGIONS,DOWNSCALED,QR_FAST,ALL_FORMATS,TRY_HARDER,ROTATED,INVERTED";
+
+    /**
+     * Intentos que componen este nivel para la foto del contexto
+     */
+    public abstract List<DecodeAttempt> attempts(DecodeContext context);
+}
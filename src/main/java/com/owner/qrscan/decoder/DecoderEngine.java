@@ -0,0 +1,189 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.ReaderException;
+import com.owner.qrscan.metrics.ScanMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificación de un plano de luminancia ya leído: la cadena de niveles (secuencial hasta
+ * {@code qrscan.decode.parallel-from} y en paralelo desde ahí) y la multi-detección.
+ * La cadena se arma una sola vez al arrancar y los lectores de ZXing salen de un pool ({@link DecodeReaders}),
+ * así que por foto solo se crean las vistas de luminancia y los binarizadores, que ZXing ata a cada vista.
+ */
+@Component
+public class DecoderEngine {
+    private static final Logger logger = LoggerFactory.getLogger(DecoderEngine.class);
+
+    private final LuminanceBufferPool bufferPool;
+    private final ScanMetrics metrics;
+    private final ExecutorService decodeExecutor;
+    private final List<DecodeTier> tiers;
+    private final DecodeTier parallelFrom;
+    private final long deadlineMs;
+    private final int multiTileSize;
+
+    /**
+     * @param tiers         niveles de la cadena, en orden
+     * @param parallelFrom  primer nivel que se lanza en paralelo junto con todos los siguientes (vacío = todo secuencial)
+     * @param deadlineMs    plazo máximo por foto para toda la cadena
+     * @param multiTileSize lado de los recortes que se procesan en paralelo en modo multi-detección
+     */
+    public DecoderEngine(LuminanceBufferPool bufferPool, ScanMetrics metrics,
+                         @Qualifier("decodeExecutor") ExecutorService decodeExecutor,
+                         @Value("${qrscan.decode.tiers:" + DecodeTier.DEFAULT_CHAIN + "}") List<DecodeTier> tiers,
+                         @Value("${qrscan.decode.parallel-from:TRY_HARDER}") DecodeTier parallelFrom,
+                         @Value("${qrscan.decode.deadline-ms:3000}") long deadlineMs,
+                         @Value("${qrscan.decode.multi.tile-size:1024}") int multiTileSize) {
+        this.bufferPool = bufferPool;
+        this.metrics = metrics;
+        this.decodeExecutor = decodeExecutor;
+        this.tiers = List.copyOf(tiers);
+        this.parallelFrom = parallelFrom;
+        this.deadlineMs = deadlineMs;
+        this.multiTileSize = multiTileSize;
+    }
+
+    /**
+     * Recorre la cadena configurada y se detiene en el primer código encontrado; null si no hay ninguno.
+     * Cierra el plano al terminar.
+     */
+    public DecodeResult decode(LuminancePlane plane, ScanOptions options) {
+        return decode(plane, options, tiers, parallelFrom, deadlineMs);
+    }
+
+    /**
+     * Igual que el anterior con la cadena, el nivel paralelo y el plazo indicados
+     */
+    public DecodeResult decode(LuminancePlane plane, ScanOptions options, List<DecodeTier> chain,
+                               DecodeTier parallelStart, long budgetMs) {
+        long allocatedBefore = AllocationMeter.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        DecodeResult result = null;
+        // El plano de luminancia sale del pool y vuelve a él al terminar; las rotaciones son vistas sobre él
+        try (DecodeContext context = new DecodeContext(plane, bufferPool, options)) {
+            int parallelIndex = parallelStart == null ? -1 : chain.indexOf(parallelStart);
+            List<DecodeAttempt> parallelAttempts = new ArrayList<>();
+            for (int i = 0; i < chain.size(); i++) {
+                DecodeTier tier = chain.get(i);
+                if (parallelIndex >= 0 && i >= parallelIndex) {
+                    parallelAttempts.addAll(tier.attempts(context));
+                    continue;
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    logger.warn("⏱️ detectCode superó el plazo de {} ms en el nivel {}", budgetMs, tier);
+                    return null;
+                }
+                result = tryTier(tier, context);
+                if (result != null) {
+                    return result;
+                }
+            }
+            if (!parallelAttempts.isEmpty()) {
+                result = tryInParallel(parallelAttempts, context, deadline, budgetMs);
+            }
+            return result;
+        } catch (Exception e) {
+            logger.error("Error en detectCode: {}", e.getMessage());
+            return null;
+        } finally {
+            logger.debug("🧮 detectCode {}x{}: nivel {}, {} ms, {} bytes asignados", plane.width(), plane.height(),
+                    result != null ? result.tier() : "ninguno", (System.nanoTime() - start) / 1_000_000,
+                    AllocationMeter.currentThreadAllocatedBytes() - allocatedBefore);
+        }
+    }
+
+    /**
+     * Todos los códigos del plano, en recortes que se procesan en paralelo y con el plazo configurado.
+     * Cierra el plano al terminar.
+     */
+    public List<DetectedCode> detectAll(LuminancePlane plane, ScanOptions options) {
+        long start = System.nanoTime();
+        try (DecodeContext context = new DecodeContext(plane, bufferPool, options)) {
+            return MultiCodeDetector.detect(context, decodeExecutor, multiTileSize,
+                    start + TimeUnit.MILLISECONDS.toNanos(deadlineMs));
+        }
+    }
+
+    private DecodeResult tryTier(DecodeTier tier, DecodeContext context) {
+        for (DecodeAttempt attempt : tier.attempts(context)) {
+            DecodeResult result = tryAttempt(attempt);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private DecodeResult tryAttempt(DecodeAttempt attempt) {
+        long start = System.nanoTime();
+        try {
+            DecodeResult result = DecodeResult.of(attempt.decode(), attempt);
+            metrics.attempt(attempt.tier(), true, start);
+            return result;
+        } catch (ReaderException e) {
+            // Continuar con el siguiente intento
+            metrics.attempt(attempt.tier(), false, start);
+            return null;
+        }
+    }
+
+    /**
+     * Lanza todos los intentos a la vez; gana el primero que encuentra un código y el resto se cancela.
+     * ZXing no atiende interrupciones, así que la cancelación se hace marcando el plano: los intentos
+     * que sigan leyéndolo abortan, los que seguían en la cola ya no corren, y los buffers vuelven al pool cuando
+     * termina el último.
+     */
+    private DecodeResult tryInParallel(List<DecodeAttempt> attempts, DecodeContext context, long deadline, long budgetMs) {
+        BlockingQueue<Future<DecodeResult>> completed = new LinkedBlockingQueue<>();
+        List<Future<DecodeResult>> futures = new ArrayList<>(attempts.size());
+        try {
+            for (DecodeAttempt attempt : attempts) {
+                futures.add(context.submit(decodeExecutor, () -> {
+                    try {
+                        return tryAttempt(attempt);
+                    } catch (CancellationException e) {
+                        return null;
+                    }
+                }, completed));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Future<DecodeResult> done = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    logger.warn("⏱️ detectCode superó el plazo de {} ms con {} intentos en paralelo", budgetMs, attempts.size());
+                    return null;
+                }
+                try {
+                    DecodeResult result = done.get();
+                    if (result != null) {
+                        return result;
+                    }
+                } catch (ExecutionException e) {
+                    // Un intento que falla no decide nada: los demás todavía pueden encontrar el código
+                    logger.error("Error en un intento de decodificación: {}", e.getCause().getMessage());
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            context.cancel();
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BarcodeFormat;
+
+/**
+ * Un código encontrado en modo multi-detección, con sus esquinas en coordenadas de la imagen original
+ *
+ * @param points      puntos que devuelve ZXing (esquinas o extremos de la línea en códigos 1D), como [x, y]
+ * @param orientation orientación aproximada en grados (0 = derecho)
+ */
+public record DetectedCode(String text, BarcodeFormat format, float[][] points, int orientation) {
+
+    /**
+     * El mismo código con los puntos pasados de una imagen submuestreada por {@code factor} a la original
+     */
+    public DetectedCode scaled(int factor) {
+        if (factor == 1) {
+            return this;
+        }
+        float[][] scaled = new float[points.length][];
+        for (int i = 0; i < points.length; i++) {
+            scaled[i] = new float[]{points[i][0] * factor, points[i][1] * factor};
+        }
+        return new DetectedCode(text, format, scaled, orientation);
+    }
+
+    /**
+     * Centro aproximado del código, para descartar duplicados entre recortes que se solapan
+     */
+    float[] center() {
+        float x = 0;
+        float y = 0;
+        for (float[] point : points) {
+            x += point[0];
+            y += point[1];
+        }
+        return points.length == 0 ? new float[]{0, 0} : new float[]{x / points.length, y / points.length};
+    }
+
+    /**
+     * Diagonal del rectángulo que encierra los puntos, como medida del tamaño del código
+     */
+    float size() {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (float[] point : points) {
+            minX = Math.min(minX, point[0]);
+            minY = Math.min(minY, point[1]);
+            maxX = Math.max(maxX, point[0]);
+            maxY = Math.max(maxY, point[1]);
+        }
+        return points.length == 0 ? 0 : (float) Math.hypot(maxX - minX, maxY - minY);
+    }
+}
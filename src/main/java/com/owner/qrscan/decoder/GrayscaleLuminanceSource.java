@@ -0,0 +1,127 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * LuminanceSource sobre un {@link LuminancePlane}. Los recortes y las rotaciones se resuelven
+ * remapeando índices, sin copiar la imagen: cada intento de decodificación es solo una vista.
+ * El único buffer extra es la matriz que pide el binarizador para vistas rotadas o recortadas,
+ * y sale del mismo pool que el plano. Si el plano se cancela, leerlo lanza CancellationException.
+ */
+public final class GrayscaleLuminanceSource extends LuminanceSource {
+
+    private final LuminancePlane plane;
+    // Recorte en coordenadas del plano original (sin rotar)
+    private final int left;
+    private final int top;
+    private final int cropWidth;
+    private final int cropHeight;
+    // Rotación en sentido horario: 0, 90, 180 o 270
+    private final int rotation;
+    private byte[] matrix;
+
+    GrayscaleLuminanceSource(LuminancePlane plane, int left, int top, int cropWidth, int cropHeight, int rotation) {
+        super(rotation == 90 || rotation == 270 ? cropHeight : cropWidth,
+                rotation == 90 || rotation == 270 ? cropWidth : cropHeight);
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("Rotación no soportada: " + rotation);
+        }
+        if (left < 0 || top < 0 || left + cropWidth > plane.width() || top + cropHeight > plane.height()) {
+            throw new IllegalArgumentException("El recorte no entra en la imagen");
+        }
+        this.plane = plane;
+        this.left = left;
+        this.top = top;
+        this.cropWidth = cropWidth;
+        this.cropHeight = cropHeight;
+        this.rotation = rotation;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        plane.checkNotCancelled();
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        byte[] data = plane.data();
+        int stride = plane.width();
+        switch (rotation) {
+            case 0 -> System.arraycopy(data, (top + y) * stride + left, row, 0, width);
+            case 180 -> {
+                int in = (top + cropHeight - 1 - y) * stride + left + cropWidth - 1;
+                for (int x = 0; x < width; x++) {
+                    row[x] = data[in - x];
+                }
+            }
+            case 90 -> {
+                // (x, y) de la vista viene de (u = y, v = alto - 1 - x) del recorte
+                int in = (top + cropHeight - 1) * stride + left + y;
+                for (int x = 0; x < width; x++) {
+                    row[x] = data[in - x * stride];
+                }
+            }
+            default -> {
+                // 270: (x, y) de la vista viene de (u = ancho - 1 - y, v = x) del recorte
+                int in = top * stride + left + cropWidth - 1 - y;
+                for (int x = 0; x < width; x++) {
+                    row[x] = data[in + x * stride];
+                }
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        plane.checkNotCancelled();
+        int width = getWidth();
+        int height = getHeight();
+        if (rotation == 0 && left == 0 && top == 0 && width == plane.width() && height == plane.height()) {
+            return plane.data();
+        }
+        if (matrix == null) {
+            byte[] result = plane.borrow(width * height);
+            byte[] row = new byte[width];
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(getRow(y, row), 0, result, y * width, width);
+            }
+            matrix = result;
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int x, int y, int width, int height) {
+        // Traducir el rectángulo de la vista rotada a coordenadas del recorte sin rotar
+        return switch (rotation) {
+            case 0 -> new GrayscaleLuminanceSource(plane, left + x, top + y, width, height, 0);
+            case 90 -> new GrayscaleLuminanceSource(plane, left + y, top + cropHeight - x - width, height, width, 90);
+            case 180 -> new GrayscaleLuminanceSource(plane, left + cropWidth - x - width, top + cropHeight - y - height,
+                    width, height, 180);
+            default -> new GrayscaleLuminanceSource(plane, left + cropWidth - y - height, top + x, height, width, 270);
+        };
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new GrayscaleLuminanceSource(plane, left, top, cropWidth, cropHeight, (rotation + 270) % 360);
+    }
+}
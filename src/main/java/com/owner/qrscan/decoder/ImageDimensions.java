@@ -0,0 +1,53 @@
+package com.owner.qrscan.decoder;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Ancho y alto de una imagen codificada leyendo solo la cabecera, sin decodificar los píxeles.
+ * Sirve para saber cuánta memoria va a ocupar antes de admitirla.
+ */
+public record ImageDimensions(int width, int height) {
+
+    public static ImageDimensions read(byte[] image) throws IOException {
+        return read(image, image.length);
+    }
+
+    /**
+     * Los primeros {@code length} bytes de {@code image}: PNG, JPEG, GIF y BMP se resuelven con {@link ImageHeader}
+     * sin buscar un ImageReader; el resto (TIFF) pasa por ImageIO
+     */
+    public static ImageDimensions read(byte[] image, int length) throws IOException {
+        return read(image, 0, length);
+    }
+
+    /**
+     * La imagen en {@code image[offset, offset + length)}
+     */
+    public static ImageDimensions read(byte[] image, int offset, int length) throws IOException {
+        ImageHeader header = ImageHeader.sniff(image, offset, length);
+        if (header != null && header.hasDimensions()) {
+            return new ImageDimensions(header.width(), header.height());
+        }
+        try (ImageInputStream in = new ByteArrayImageInputStream(image, offset, length)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("No se pudo leer la imagen");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new ImageDimensions(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public long pixels() {
+        return (long) width * height;
+    }
+}
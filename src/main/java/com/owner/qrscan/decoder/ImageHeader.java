@@ -0,0 +1,126 @@
+package com.owner.qrscan.decoder;
+
+import java.io.IOException;
+
+/**
+ * Formato y tamaño de una imagen a partir de sus primeros bytes (número mágico y cabecera), sin ImageIO.
+ * Con los formatos que lee ImageIO: PNG, JPEG, GIF y BMP traen el tamaño en la cabecera; de TIFF solo se
+ * reconoce el formato (el tamaño puede estar en cualquier parte del archivo).
+ *
+ * @param format PNG, JPEG, GIF, BMP o TIFF
+ * @param width  ancho en píxeles, 0 si no se puede saber sin leer el archivo entero
+ * @param height alto en píxeles, 0 si no se puede saber sin leer el archivo entero
+ */
+public record ImageHeader(String format, int width, int height) {
+
+    /**
+     * Mira los primeros {@code length} bytes de {@code data}. Devuelve null si hacen falta más bytes para
+     * saberlo (un JPEG con EXIF grande tiene el tamaño después de varios KB) y lanza IOException si no es
+     * una imagen que se pueda leer.
+     */
+    public static ImageHeader sniff(byte[] data, int length) throws IOException {
+        return sniff(data, 0, length);
+    }
+
+    /**
+     * Igual que el anterior con la imagen en {@code data[offset, offset + length)}, por ejemplo dentro de un
+     * mensaje del socket
+     */
+    public static ImageHeader sniff(byte[] data, int offset, int length) throws IOException {
+        if (length < 4) {
+            return null;
+        }
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        int b2 = data[offset + 2];
+        int b3 = data[offset + 3];
+        if (b0 == 0x89 && b1 == 'P' && b2 == 'N' && b3 == 'G') {
+            // Firma de 8 bytes y el chunk IHDR, que siempre va primero
+            return length < 24 ? null : new ImageHeader("PNG", int32(data, offset + 16), int32(data, offset + 20));
+        }
+        if (b0 == 0xFF && b1 == 0xD8) {
+            return jpeg(data, offset, length);
+        }
+        if (b0 == 'G' && b1 == 'I' && b2 == 'F') {
+            return length < 10 ? null : new ImageHeader("GIF", uint16le(data, offset + 6), uint16le(data, offset + 8));
+        }
+        if (b0 == 'B' && b1 == 'M') {
+            if (length < 26) {
+                return null;
+            }
+            // Cabecera OS/2 de 12 bytes con tamaños de 16 bits, o BITMAPINFOHEADER y siguientes con 32 bits
+            if (int32le(data, offset + 14) == 12) {
+                return new ImageHeader("BMP", uint16le(data, offset + 18), uint16le(data, offset + 20));
+            }
+            // Alto negativo = filas de arriba hacia abajo
+            return new ImageHeader("BMP", Math.abs(int32le(data, offset + 18)), Math.abs(int32le(data, offset + 22)));
+        }
+        if ((b0 == 'I' && b1 == 'I' && b2 == 42 && b3 == 0) || (b0 == 'M' && b1 == 'M' && b2 == 0 && b3 == 42)) {
+            return new ImageHeader("TIFF", 0, 0);
+        }
+        throw new IOException("El contenido no es una imagen PNG, JPEG, GIF, BMP o TIFF.");
+    }
+
+    /**
+     * Recorre los segmentos del JPEG hasta el SOF (start of frame), que trae alto y ancho
+     */
+    private static ImageHeader jpeg(byte[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        int pos = offset + 2;
+        while (true) {
+            if (pos + 4 > end) {
+                return null;
+            }
+            if ((data[pos] & 0xFF) != 0xFF) {
+                throw new IOException("JPEG con segmentos inválidos.");
+            }
+            int marker = data[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                // Bytes de relleno entre segmentos
+                pos++;
+                continue;
+            }
+            if (marker == 0xD8 || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                pos += 2;
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // Fin de imagen o inicio de los datos sin haber visto un SOF
+                throw new IOException("JPEG sin cabecera de tamaño.");
+            }
+            if (isStartOfFrame(marker)) {
+                return pos + 9 > end ? null : new ImageHeader("JPEG", uint16(data, pos + 7), uint16(data, pos + 5));
+            }
+            pos += 2 + uint16(data, pos + 2);
+        }
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        // C4 (tablas Huffman), C8 (reservado) y CC (codificación aritmética) no son SOF
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    public boolean hasDimensions() {
+        return width > 0 && height > 0;
+    }
+
+    public long pixels() {
+        return (long) width * height;
+    }
+
+    private static int int32(byte[] data, int i) {
+        return (data[i] & 0xFF) << 24 | (data[i + 1] & 0xFF) << 16 | (data[i + 2] & 0xFF) << 8 | data[i + 3] & 0xFF;
+    }
+
+    private static int uint16(byte[] data, int i) {
+        return (data[i] & 0xFF) << 8 | data[i + 1] & 0xFF;
+    }
+
+    private static int int32le(byte[] data, int i) {
+        return data[i] & 0xFF | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF) << 16 | (data[i + 3] & 0xFF) << 24;
+    }
+
+    private static int uint16le(byte[] data, int i) {
+        return data[i] & 0xFF | (data[i + 1] & 0xFF) << 8;
+    }
+}
@@ -0,0 +1,61 @@
+package com.owner.qrscan.decoder;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Pool acotado de planos de luminancia (byte[]) para no asignar un arreglo nuevo por cada foto.
+ * Los buffers se reutilizan solo si coinciden exactamente en tamaño, ya que ZXing asume que
+ * getMatrix() devuelve un arreglo de ancho * alto.
+ */
+public class LuminanceBufferPool {
+
+    private final Deque<byte[]> free = new ArrayDeque<>();
+    private final int maxBuffers;
+    private final long maxRetainedBytes;
+    private long retainedBytes;
+
+    public LuminanceBufferPool(int maxBuffers, long maxRetainedBytes) {
+        this.maxBuffers = maxBuffers;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Devuelve un buffer de exactamente {@code size} bytes, reutilizado si hay uno libre
+     */
+    public synchronized byte[] acquire(int size) {
+        Iterator<byte[]> it = free.iterator();
+        while (it.hasNext()) {
+            byte[] buffer = it.next();
+            if (buffer.length == size) {
+                it.remove();
+                retainedBytes -= size;
+                return buffer;
+            }
+        }
+        return new byte[size];
+    }
+
+    /**
+     * Devuelve un buffer al pool; si se supera el límite se descartan los más antiguos
+     */
+    public synchronized void release(byte[] buffer) {
+        if (buffer == null || buffer.length > maxRetainedBytes) {
+            return;
+        }
+        free.addFirst(buffer);
+        retainedBytes += buffer.length;
+        while (free.size() > maxBuffers || retainedBytes > maxRetainedBytes) {
+            retainedBytes -= free.removeLast().length;
+        }
+    }
+
+    public synchronized int size() {
+        return free.size();
+    }
+
+    public synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+}
@@ -0,0 +1,260 @@
+package com.owner.qrscan.decoder;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Plano de luminancia de 8 bits (una fila tras otra) tomado de un {@link LuminanceBufferPool}.
+ * Es el único buffer del tamaño de la imagen que se usa durante la decodificación: las rotaciones
+ * y recortes son vistas sobre este arreglo ({@link GrayscaleLuminanceSource}).
+ * Al cerrarlo se devuelven al pool el plano y los buffers auxiliares que pidieron sus vistas.
+ */
+public final class LuminancePlane implements AutoCloseable {
+
+    private final byte[] data;
+    private final int width;
+    private final int height;
+    private final LuminanceBufferPool pool;
+    private final List<byte[]> borrowed = new ArrayList<>();
+    private boolean closed;
+    private volatile boolean cancelled;
+
+    LuminancePlane(byte[] data, int width, int height, LuminanceBufferPool pool) {
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        this.pool = pool;
+    }
+
+    /**
+     * Convierte la imagen a luminancia con la misma fórmula que BufferedImageLuminanceSource,
+     * leyendo el raster directamente cuando el formato lo permite
+     */
+    public static LuminancePlane fromImage(BufferedImage image, LuminanceBufferPool pool) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] plane = pool.acquire(width * height);
+        if (!copyFromRaster(image, plane)) {
+            copyWithGetRgb(image, plane);
+        }
+        return new LuminancePlane(plane, width, height, pool);
+    }
+
+    /**
+     * Envuelve un plano ya calculado, por ejemplo el de una versión reducida de la imagen
+     */
+    public static LuminancePlane wrap(byte[] data, int width, int height, LuminanceBufferPool pool) {
+        return new LuminancePlane(data, width, height, pool);
+    }
+
+    public GrayscaleLuminanceSource source() {
+        return source(0);
+    }
+
+    /**
+     * Vista de la imagen completa rotada en sentido horario (0, 90, 180 o 270 grados)
+     */
+    public GrayscaleLuminanceSource source(int rotation) {
+        return new GrayscaleLuminanceSource(this, 0, 0, width, height, rotation);
+    }
+
+    /**
+     * Reduce el plano promediando bloques de factor x factor píxeles; el resultado también sale del pool
+     */
+    public LuminancePlane downscale(int factor, LuminanceBufferPool targetPool) {
+        int outWidth = width / factor;
+        int outHeight = height / factor;
+        byte[] out = targetPool.acquire(outWidth * outHeight);
+        int area = factor * factor;
+        int[] sums = new int[outWidth];
+        for (int oy = 0; oy < outHeight; oy++) {
+            java.util.Arrays.fill(sums, 0);
+            for (int dy = 0; dy < factor; dy++) {
+                int in = (oy * factor + dy) * width;
+                for (int ox = 0; ox < outWidth; ox++) {
+                    int sum = 0;
+                    for (int dx = 0; dx < factor; dx++) {
+                        sum += data[in++] & 0xFF;
+                    }
+                    sums[ox] += sum;
+                }
+            }
+            int row = oy * outWidth;
+            for (int ox = 0; ox < outWidth; ox++) {
+                out[row + ox] = (byte) (sums[ox] / area);
+            }
+        }
+        return new LuminancePlane(out, outWidth, outHeight, targetPool);
+    }
+
+    public byte[] data() {
+        return data;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Marca el plano como descartado: las vistas que sigan leyéndolo abortan su intento
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    void checkNotCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Decodificación cancelada");
+        }
+    }
+
+    /**
+     * Pide un buffer auxiliar al pool que se libera junto con el plano
+     */
+    synchronized byte[] borrow(int size) {
+        byte[] buffer = pool.acquire(size);
+        borrowed.add(buffer);
+        return buffer;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pool.release(data);
+        for (byte[] buffer : borrowed) {
+            pool.release(buffer);
+        }
+        borrowed.clear();
+    }
+
+    private static boolean copyFromRaster(BufferedImage image, byte[] plane) {
+        Raster raster = image.getRaster();
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+            return false;
+        }
+        int type = image.getType();
+        // En escala de grises BufferedImageLuminanceSource usa el raster tal cual, sin pasar por sRGB
+        if (type != BufferedImage.TYPE_BYTE_GRAY) {
+            ColorSpace colorSpace = image.getColorModel().getColorSpace();
+            if (!colorSpace.isCS_sRGB()) {
+                return false;
+            }
+        }
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+        switch (type) {
+            case BufferedImage.TYPE_BYTE_GRAY:
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                if (buffer instanceof DataBufferByte bytes && buffer.getNumBanks() == 1
+                        && sampleModel instanceof ComponentSampleModel components) {
+                    copyInterleaved(bytes.getData(), bytes.getOffset(), components, image.getWidth(), image.getHeight(), plane);
+                    return true;
+                }
+                return false;
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                if (buffer instanceof DataBufferInt ints && buffer.getNumBanks() == 1
+                        && sampleModel instanceof SinglePixelPackedSampleModel packed) {
+                    copyPacked(ints.getData(), ints.getOffset(), packed.getScanlineStride(),
+                            type == BufferedImage.TYPE_INT_ARGB, image.getWidth(), image.getHeight(), plane);
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private static void copyInterleaved(byte[] src, int offset, ComponentSampleModel model, int width, int height, byte[] plane) {
+        int scanline = model.getScanlineStride();
+        int pixelStride = model.getPixelStride();
+        int[] bands = model.getBandOffsets();
+        if (bands.length == 1) {
+            for (int y = 0; y < height; y++) {
+                int in = offset + y * scanline + bands[0];
+                int out = y * width;
+                if (pixelStride == 1) {
+                    System.arraycopy(src, in, plane, out, width);
+                } else {
+                    for (int x = 0; x < width; x++, in += pixelStride) {
+                        plane[out + x] = src[in];
+                    }
+                }
+            }
+            return;
+        }
+        int r = bands[0];
+        int g = bands[1];
+        int b = bands[2];
+        int a = bands.length > 3 ? bands[3] : -1;
+        for (int y = 0; y < height; y++) {
+            int in = offset + y * scanline;
+            int out = y * width;
+            for (int x = 0; x < width; x++, in += pixelStride) {
+                if (a >= 0 && src[in + a] == 0) {
+                    plane[out + x] = (byte) 0xFF;
+                } else {
+                    plane[out + x] = (byte) luminance(src[in + r] & 0xFF, src[in + g] & 0xFF, src[in + b] & 0xFF);
+                }
+            }
+        }
+    }
+
+    private static void copyPacked(int[] src, int offset, int scanline, boolean hasAlpha, int width, int height, byte[] plane) {
+        for (int y = 0; y < height; y++) {
+            int in = offset + y * scanline;
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = src[in + x];
+                if (hasAlpha && (pixel & 0xFF000000) == 0) {
+                    plane[out + x] = (byte) 0xFF;
+                } else {
+                    plane[out + x] = (byte) luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+                }
+            }
+        }
+    }
+
+    private static void copyWithGetRgb(BufferedImage image, byte[] plane) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                if ((pixel & 0xFF000000) == 0) {
+                    plane[out + x] = (byte) 0xFF;
+                } else {
+                    plane[out + x] = (byte) luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Misma aproximación entera de luminancia que usa ZXing
+     */
+    static int luminance(int r, int g, int b) {
+        return (306 * r + 601 * g + 117 * b + 0x200) >> 10;
+    }
+}
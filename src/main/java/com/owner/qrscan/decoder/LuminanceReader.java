@@ -0,0 +1,168 @@
+package com.owner.qrscan.decoder;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lee una imagen codificada directo a un plano de luminancia del pool, con ImageReaders reutilizados (un pool
+ * acotado por formato) en lugar de buscar uno por SPI en cada ImageIO.read. El pool no depende del hilo: las
+ * fotos se leen en hilos virtuales, uno por petición.
+ * Los JPEG se decodifican a gris: libjpeg entrega solo el canal Y (que ya es la luminancia) sobre el plano, sin
+ * convertir a RGB ni armar un BufferedImage de 3 bytes por píxel. Las imágenes de más de {@code maxPixels} se
+ * leen con submuestreo (una de cada n filas y columnas) para que el plano no pase de ese tamaño.
+ */
+public final class LuminanceReader {
+
+    private static final ColorModel GRAY = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+            false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+    // Un plano es un byte[] de ancho * alto: sin tope de megapíxeles (max-megapixels=0) una imagen enorme
+    // desbordaría el int del tamaño
+    private static final long MAX_PLANE_PIXELS = Integer.MAX_VALUE - 8;
+
+    // ImageReaders libres por formato; los que se devuelven con el pool lleno se descartan
+    private static final int MAX_POOLED_READERS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final LuminanceBufferPool pool;
+    private final long maxPixels;
+    // Los ImageReader no son thread-safe pero se pueden reutilizar: cada lectura toma uno del pool de su formato
+    private final Map<String, BlockingQueue<ImageReader>> readers = new ConcurrentHashMap<>();
+
+    /**
+     * El plano leído y el submuestreo aplicado (1 = resolución completa); las coordenadas de la imagen
+     * original se pasan al plano dividiendo por {@code subsampling}
+     */
+    public record Decoded(LuminancePlane plane, int subsampling) {
+    }
+
+    /**
+     * @param maxPixels tamaño máximo del plano; las imágenes más grandes se submuestrean (0 = sin límite)
+     */
+    public LuminanceReader(LuminanceBufferPool pool, long maxPixels) {
+        this.pool = pool;
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Los primeros {@code length} bytes de {@code image}; el plano sale del pool y vuelve al cerrarlo
+     */
+    public Decoded read(byte[] image, int length) throws IOException {
+        return read(image, 0, length);
+    }
+
+    /**
+     * La imagen en {@code image[offset, offset + length)}, por ejemplo el payload de un cuadro del socket
+     */
+    public Decoded read(byte[] image, int offset, int length) throws IOException {
+        ImageHeader header = ImageHeader.sniff(image, offset, length);
+        if (header == null) {
+            throw new IOException("No se pudo leer la imagen");
+        }
+        ImageReader reader = acquire(header.format());
+        boolean ok = false;
+        try (ImageInputStream in = new ByteArrayImageInputStream(image, offset, length)) {
+            reader.setInput(in, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int factor = subsampling(width, height);
+            int planeWidth = (width + factor - 1) / factor;
+            int planeHeight = (height + factor - 1) / factor;
+            if ((long) planeWidth * planeHeight > MAX_PLANE_PIXELS) {
+                throw new IOException("La imagen de " + planeWidth + "x" + planeHeight + " supera los "
+                        + MAX_PLANE_PIXELS + " píxeles de un plano");
+            }
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (factor > 1) {
+                param.setSourceSubsampling(factor, factor, 0, 0);
+            }
+            LuminancePlane plane = null;
+            if ("JPEG".equals(header.format())) {
+                plane = readGray(reader, param, planeWidth, planeHeight);
+                if (plane == null) {
+                    // El JPEG no es YCbCr ni gris (RGB o CMYK de Adobe): se vuelve a leer por el camino general
+                    in.seek(0);
+                    reader.setInput(in, true, true);
+                    param.setDestination(null);
+                }
+            }
+            if (plane == null) {
+                plane = LuminancePlane.fromImage(reader.read(0, param), pool);
+            }
+            ok = true;
+            return new Decoded(plane, factor);
+        } finally {
+            // Un reader que falló a mitad de camino puede quedar en un estado inválido y no vuelve al pool
+            if (ok) {
+                reader.reset();
+            }
+            if (!ok || !readers.get(header.format()).offer(reader)) {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodifica el JPEG a gris sobre un plano del pool; null si libjpeg no puede pasar su espacio de color a gris
+     */
+    private LuminancePlane readGray(ImageReader reader, ImageReadParam param, int width, int height) throws IOException {
+        byte[] data = pool.acquire(width * height);
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(data, width * height),
+                width, height, width, 1, new int[]{0}, null);
+        param.setDestination(new BufferedImage(GRAY, raster, false, null));
+        try {
+            reader.read(0, param);
+            return LuminancePlane.wrap(data, width, height, pool);
+        } catch (IIOException | IllegalArgumentException e) {
+            // libjpeg no pasa a gris un JPEG RGB o CMYK de Adobe: el reader rechaza el destino de un canal
+            // (IllegalArgumentException). Un JPEG dañado falla también en el camino general, que es el que
+            // informa el error.
+            pool.release(data);
+            return null;
+        }
+    }
+
+    /**
+     * Menor factor entero con el que la imagen queda en {@code maxPixels}
+     */
+    int subsampling(int width, int height) {
+        long pixels = (long) width * height;
+        if (maxPixels <= 0 || pixels <= maxPixels) {
+            return 1;
+        }
+        int factor = (int) Math.ceil(Math.sqrt((double) pixels / maxPixels));
+        while ((long) ((width + factor - 1) / factor) * ((height + factor - 1) / factor) > maxPixels) {
+            factor++;
+        }
+        return factor;
+    }
+
+    private ImageReader acquire(String format) throws IOException {
+        ImageReader reader = readers.computeIfAbsent(format, f -> new ArrayBlockingQueue<>(MAX_POOLED_READERS)).poll();
+        if (reader != null) {
+            return reader;
+        }
+        Iterator<ImageReader> candidates = ImageIO.getImageReadersByFormatName(format);
+        if (!candidates.hasNext()) {
+            throw new IOException("No hay un lector para imágenes " + format);
+        }
+        return candidates.next();
+    }
+}
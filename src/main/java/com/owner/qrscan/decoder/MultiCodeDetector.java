@@ -0,0 +1,197 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.HybridBinarizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Detección de todos los códigos de una foto. La imagen se parte en recortes solapados que se
+ * procesan en paralelo (QRCodeMultiReader para los QR y GenericMultipleBarcodeReader para el resto, los de
+ * {@link DecodeReaders}), más una pasada sobre la versión reducida para los códigos más grandes que un recorte.
+ * Los códigos repetidos en la zona de solape se descartan.
+ */
+public final class MultiCodeDetector {
+    private static final Logger logger = LoggerFactory.getLogger(MultiCodeDetector.class);
+
+    private MultiCodeDetector() {
+    }
+
+    public static List<DetectedCode> detect(DecodeContext context, ExecutorService executor,
+                                            int tileSize, long deadlineNanos) {
+        LuminancePlane plane = context.plane();
+        Region area = context.options().roi() != null
+                ? context.options().roi().clampTo(plane.width(), plane.height()) : null;
+        if (area == null) {
+            area = new Region(0, 0, plane.width(), plane.height());
+        }
+
+        List<Future<List<DetectedCode>>> futures = new ArrayList<>();
+        for (Region tile : tiles(area, tileSize)) {
+            LuminanceSource source = plane.source().crop(tile.x(), tile.y(), tile.width(), tile.height());
+            futures.add(submit(executor, context, source, tile.x(), tile.y(), 1));
+        }
+        LuminancePlane reduced = context.options().roi() == null ? context.downscaled() : null;
+        if (reduced != null) {
+            futures.add(submit(executor, context, reduced.source(), 0, 0, context.downscaleFactor()));
+        }
+
+        List<DetectedCode> codes = new ArrayList<>();
+        try {
+            for (Future<List<DetectedCode>> future : futures) {
+                long remaining = deadlineNanos - System.nanoTime();
+                List<DetectedCode> found;
+                try {
+                    found = future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    // Un recorte que falla no se lleva lo que encontraron los demás
+                    logger.error("Error en un recorte de la multi-detección: {}", e.getCause().getMessage());
+                    continue;
+                }
+                for (DetectedCode code : found) {
+                    if (!isDuplicate(codes, code)) {
+                        codes.add(code);
+                    }
+                }
+            }
+        } catch (TimeoutException e) {
+            // Se devuelve lo encontrado hasta el plazo
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            context.cancel();
+            futures.forEach(future -> future.cancel(true));
+        }
+        return codes;
+    }
+
+    /**
+     * Recortes de {@code tileSize} con medio recorte de solape, así todo código de hasta media
+     * {@code tileSize} entra entero en alguno; uno solo si el área ya es chica
+     */
+    static List<Region> tiles(Region area, int tileSize) {
+        List<Region> tiles = new ArrayList<>();
+        if (area.width() <= tileSize * 3 / 2 && area.height() <= tileSize * 3 / 2) {
+            tiles.add(area);
+            return tiles;
+        }
+        int step = tileSize / 2;
+        for (int y = area.y(); ; y += step) {
+            int top = Math.min(y, area.y() + Math.max(0, area.height() - tileSize));
+            for (int x = area.x(); ; x += step) {
+                int left = Math.min(x, area.x() + Math.max(0, area.width() - tileSize));
+                tiles.add(new Region(left, top, Math.min(tileSize, area.width()), Math.min(tileSize, area.height())));
+                if (left + tileSize >= area.x() + area.width()) {
+                    break;
+                }
+            }
+            if (top + tileSize >= area.y() + area.height()) {
+                break;
+            }
+        }
+        return tiles;
+    }
+
+    private static Future<List<DetectedCode>> submit(ExecutorService executor, DecodeContext context,
+                                                     LuminanceSource source, int offsetX, int offsetY, int scale) {
+        return context.submit(executor, () -> {
+            try {
+                return decodeTile(source, offsetX, offsetY, scale);
+            } catch (CancellationException e) {
+                return List.of();
+            }
+        }, null);
+    }
+
+    private static List<DetectedCode> decodeTile(LuminanceSource source, int offsetX, int offsetY, int scale) {
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+        List<DetectedCode> codes = new ArrayList<>();
+        try (DecodeReaders readers = DecodeReaders.acquire()) {
+            collect(codes, () -> readers.decodeQrMultiple(bitmap), offsetX, offsetY, scale);
+            collect(codes, () -> readers.decodeOthersMultiple(bitmap), offsetX, offsetY, scale);
+        }
+        return codes;
+    }
+
+    @FunctionalInterface
+    private interface MultiDecode {
+        Result[] decode() throws NotFoundException;
+    }
+
+    private static void collect(List<DetectedCode> codes, MultiDecode decode, int offsetX, int offsetY, int scale) {
+        Result[] results;
+        try {
+            results = decode.decode();
+        } catch (NotFoundException e) {
+            return;
+        }
+        for (Result result : results) {
+            DetectedCode code = toCode(result, offsetX, offsetY, scale);
+            if (!isDuplicate(codes, code)) {
+                codes.add(code);
+            }
+        }
+    }
+
+    private static DetectedCode toCode(Result result, int offsetX, int offsetY, int scale) {
+        ResultPoint[] resultPoints = result.getResultPoints();
+        int count = resultPoints == null ? 0 : resultPoints.length;
+        List<float[]> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ResultPoint point = resultPoints[i];
+            if (point != null) {
+                points.add(new float[]{offsetX + point.getX() * scale, offsetY + point.getY() * scale});
+            }
+        }
+        return new DetectedCode(result.getText(), result.getBarcodeFormat(),
+                points.toArray(new float[0][]), orientation(result, points));
+    }
+
+    /**
+     * Orientación informada por ZXing (códigos 1D) o, si no, el ángulo del borde superior
+     * (los QR devuelven abajo-izquierda, arriba-izquierda, arriba-derecha)
+     */
+    private static int orientation(Result result, List<float[]> points) {
+        Map<ResultMetadataType, Object> metadata = result.getResultMetadata();
+        if (metadata != null && metadata.get(ResultMetadataType.ORIENTATION) instanceof Integer value) {
+            return value;
+        }
+        if (points.size() >= 3) {
+            float[] topLeft = points.get(1);
+            float[] topRight = points.get(2);
+            double angle = Math.toDegrees(Math.atan2(topRight[1] - topLeft[1], topRight[0] - topLeft[0]));
+            return (int) Math.round((angle + 360) % 360);
+        }
+        return 0;
+    }
+
+    private static boolean isDuplicate(List<DetectedCode> codes, DetectedCode candidate) {
+        float[] center = candidate.center();
+        // Los 1D devuelven solo los extremos de la línea leída: la misma etiqueta puede salir en otra fila
+        float tolerance = Math.max(16, candidate.points().length <= 2 ? candidate.size() : candidate.size() / 2);
+        for (DetectedCode code : codes) {
+            if (code.format() == candidate.format() && code.text().equals(candidate.text())) {
+                float[] other = code.center();
+                if (Math.hypot(center[0] - other[0], center[1] - other[1]) <= tolerance) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,40 @@
+package com.owner.qrscan.decoder;
+
+/**
+ * Rectángulo en píxeles de la imagen original
+ */
+public record Region(int x, int y, int width, int height) {
+
+    /**
+     * Recorta el rectángulo a los límites de la imagen; null si queda vacío
+     */
+    public Region clampTo(int imageWidth, int imageHeight) {
+        int left = Math.max(0, x);
+        int top = Math.max(0, y);
+        int right = Math.min(imageWidth, x + width);
+        int bottom = Math.min(imageHeight, y + height);
+        if (right <= left || bottom <= top) {
+            return null;
+        }
+        return new Region(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * El mismo rectángulo en una imagen submuestreada por {@code factor}
+     */
+    public Region scaleDown(int factor) {
+        if (factor == 1) {
+            return this;
+        }
+        return new Region(x / factor, y / factor, (width + factor - 1) / factor, (height + factor - 1) / factor);
+    }
+
+    public long area() {
+        return (long) width * height;
+    }
+
+    @Override
+    public String toString() {
+        return x + "," + y + "," + width + "x" + height;
+    }
+}
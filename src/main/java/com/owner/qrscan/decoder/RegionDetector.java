@@ -0,0 +1,155 @@
+package com.owner.qrscan.decoder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Busca zonas candidatas a contener un código sobre la versión reducida de la foto.
+ * Divide el plano en bloques, marca los que tienen mucha energía de bordes y contraste
+ * (los códigos son patrones densos de claro/oscuro), une los bloques vecinos y devuelve
+ * los rectángulos resultantes en coordenadas de la imagen original.
+ */
+public final class RegionDetector {
+
+    private static final int BLOCK = 8;
+    // Energía media mínima por píxel y contraste mínimo de un bloque para considerarlo
+    private static final int MIN_ENERGY = 12;
+    private static final int MIN_CONTRAST = 48;
+    // Bloques marcados mínimos para que una zona cuente
+    private static final int MIN_BLOCKS = 4;
+    // Margen alrededor de cada zona, en bloques
+    private static final int PADDING_BLOCKS = 2;
+    // Una zona que ocupa más que esta fracción no ahorra nada frente a la imagen completa
+    private static final double MAX_AREA_FRACTION = 0.6;
+
+    private RegionDetector() {
+    }
+
+    /**
+     * @param plane  plano donde buscar (normalmente la versión reducida)
+     * @param scale  píxeles originales por píxel del plano
+     * @param fullWidth  ancho de la imagen original
+     * @param fullHeight alto de la imagen original
+     * @param maxRegions cantidad máxima de zonas a devolver, de mayor a menor
+     */
+    public static List<Region> detect(LuminancePlane plane, int scale, int fullWidth, int fullHeight, int maxRegions) {
+        int width = plane.width();
+        int height = plane.height();
+        int gridWidth = width / BLOCK;
+        int gridHeight = height / BLOCK;
+        if (gridWidth < 2 || gridHeight < 2) {
+            return List.of();
+        }
+        boolean[] marked = markBlocks(plane.data(), width, height, gridWidth, gridHeight);
+
+        // Dilatar un bloque para unir módulos separados por zonas lisas
+        boolean[] joined = new boolean[marked.length];
+        for (int gy = 0; gy < gridHeight; gy++) {
+            for (int gx = 0; gx < gridWidth; gx++) {
+                if (!marked[gy * gridWidth + gx]) {
+                    continue;
+                }
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int nx = gx + dx;
+                        int ny = gy + dy;
+                        if (nx >= 0 && ny >= 0 && nx < gridWidth && ny < gridHeight) {
+                            joined[ny * gridWidth + nx] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        List<int[]> components = new ArrayList<>();
+        boolean[] visited = new boolean[joined.length];
+        int[] queue = new int[joined.length];
+        for (int start = 0; start < joined.length; start++) {
+            if (!joined[start] || visited[start]) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            visited[start] = true;
+            int minX = gridWidth, minY = gridHeight, maxX = -1, maxY = -1, count = 0;
+            while (head < tail) {
+                int index = queue[head++];
+                int gx = index % gridWidth;
+                int gy = index / gridWidth;
+                if (marked[index]) {
+                    count++;
+                }
+                minX = Math.min(minX, gx);
+                minY = Math.min(minY, gy);
+                maxX = Math.max(maxX, gx);
+                maxY = Math.max(maxY, gy);
+                int[] neighbours = {index - 1, index + 1, index - gridWidth, index + gridWidth};
+                for (int n = 0; n < 4; n++) {
+                    int next = neighbours[n];
+                    if (next < 0 || next >= joined.length || visited[next] || !joined[next]) {
+                        continue;
+                    }
+                    // Evitar saltar de un borde de fila al otro
+                    if ((n < 2) && next / gridWidth != gy) {
+                        continue;
+                    }
+                    visited[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+            if (count >= MIN_BLOCKS) {
+                components.add(new int[]{minX, minY, maxX, maxY, count});
+            }
+        }
+
+        components.sort(Comparator.comparingInt((int[] c) -> c[4]).reversed());
+        long maxArea = (long) (MAX_AREA_FRACTION * fullWidth * fullHeight);
+        List<Region> regions = new ArrayList<>();
+        for (int[] c : components) {
+            if (regions.size() >= maxRegions) {
+                break;
+            }
+            int x = (c[0] - PADDING_BLOCKS) * BLOCK * scale;
+            int y = (c[1] - PADDING_BLOCKS) * BLOCK * scale;
+            int w = (c[2] - c[0] + 1 + 2 * PADDING_BLOCKS) * BLOCK * scale;
+            int h = (c[3] - c[1] + 1 + 2 * PADDING_BLOCKS) * BLOCK * scale;
+            Region region = new Region(x, y, w, h).clampTo(fullWidth, fullHeight);
+            if (region != null && region.area() <= maxArea) {
+                regions.add(region);
+            }
+        }
+        return regions;
+    }
+
+    private static boolean[] markBlocks(byte[] data, int width, int height, int gridWidth, int gridHeight) {
+        boolean[] marked = new boolean[gridWidth * gridHeight];
+        for (int gy = 0; gy < gridHeight; gy++) {
+            for (int gx = 0; gx < gridWidth; gx++) {
+                int energy = 0;
+                int min = 255;
+                int max = 0;
+                int originY = gy * BLOCK;
+                int originX = gx * BLOCK;
+                for (int y = originY; y < originY + BLOCK; y++) {
+                    int row = y * width;
+                    boolean hasNextRow = y + 1 < height;
+                    for (int x = originX; x < originX + BLOCK; x++) {
+                        int p = data[row + x] & 0xFF;
+                        min = Math.min(min, p);
+                        max = Math.max(max, p);
+                        if (x + 1 < width) {
+                            energy += Math.abs(p - (data[row + x + 1] & 0xFF));
+                        }
+                        if (hasNextRow) {
+                            energy += Math.abs(p - (data[row + width + x] & 0xFF));
+                        }
+                    }
+                }
+                marked[gy * gridWidth + gx] = energy >= MIN_ENERGY * BLOCK * BLOCK && max - min >= MIN_CONTRAST;
+            }
+        }
+        return marked;
+    }
+}
@@ -0,0 +1,118 @@
+package com.owner.qrscan.decoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Cuadro de cámara recibido por el socket. {@code sequence} lo numera el cliente y vuelve en el resultado;
+ * {@code receivedNanos} sirve para descartar cuadros que esperaron demasiado.
+ * Los cuadros en gris (GRAY8, una fila tras otra) se copian directo a un plano del pool, sin pasar por BufferedImage.
+ */
+public record ScanFrame(long sequence, Encoding encoding, int width, int height, ByteBuffer payload, long receivedNanos) {
+
+    // Tope de un cuadro en gris: ancho y alto son uint16, así que sin tope el producto llega a 4.294 millones
+    // y ni siquiera entra en un int. Un cuadro de cámara 8K tiene 33 millones de píxeles.
+    public static final int MAX_GRAY_PIXELS = 64 * 1024 * 1024;
+
+    public enum Encoding {
+        // Luminancia de 8 bits sin comprimir, width * height bytes
+        GRAY8,
+        // Lo mismo comprimido con deflate (zlib)
+        GRAY8_DEFLATE,
+        // Imagen codificada (JPEG, PNG...) que se lee con LuminanceReader; width y height se ignoran
+        IMAGE
+    }
+
+    /**
+     * Plano de luminancia del cuadro, tomado del pool (cerrarlo lo devuelve); las imágenes se leen con
+     * {@code reader}, que puede submuestrearlas
+     */
+    public LuminancePlane toPlane(LuminanceBufferPool pool, LuminanceReader reader) throws IOException {
+        return switch (encoding) {
+            case GRAY8 -> {
+                int size = checkSize();
+                if (payload.remaining() != size) {
+                    throw new IOException("El cuadro trae " + payload.remaining() + " bytes y se esperaban " + size);
+                }
+                byte[] plane = pool.acquire(size);
+                payload.duplicate().get(plane);
+                yield LuminancePlane.wrap(plane, width, height, pool);
+            }
+            case GRAY8_DEFLATE -> {
+                int size = checkSize();
+                byte[] plane = pool.acquire(size);
+                if (!inflate(plane)) {
+                    pool.release(plane);
+                    throw new IOException("El cuadro comprimido no tiene " + size + " bytes");
+                }
+                yield LuminancePlane.wrap(plane, width, height, pool);
+            }
+            case IMAGE -> {
+                ByteBuffer image = heapPayload();
+                yield reader.read(image.array(), image.arrayOffset() + image.position(), image.remaining()).plane();
+            }
+        };
+    }
+
+    /**
+     * Píxeles del cuadro decodificado, para el control de admisión; en una imagen se lee solo la cabecera.
+     * Un cuadro en gris demasiado grande se rechaza acá, antes de pedir lugar.
+     */
+    public long pixels() throws IOException {
+        if (encoding != Encoding.IMAGE) {
+            return checkSize();
+        }
+        ByteBuffer image = heapPayload();
+        return ImageDimensions.read(image.array(), image.arrayOffset() + image.position(), image.remaining()).pixels();
+    }
+
+    /**
+     * El payload si está sobre un arreglo, como los mensajes del socket (las imágenes se leen ahí mismo,
+     * sin copiarlas); si es directo, una copia
+     */
+    private ByteBuffer heapPayload() {
+        if (payload.hasArray()) {
+            return payload;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+        copy.put(payload.duplicate()).flip();
+        return copy;
+    }
+
+    /**
+     * Bytes del plano de un cuadro en gris; rechaza los cuadros sin tamaño o de más de {@link #MAX_GRAY_PIXELS}
+     */
+    private int checkSize() throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IOException("El cuadro en gris necesita ancho y alto");
+        }
+        long pixels = (long) width * height;
+        if (pixels > MAX_GRAY_PIXELS) {
+            throw new IOException("El cuadro de " + width + "x" + height + " supera los " + MAX_GRAY_PIXELS + " píxeles");
+        }
+        return (int) pixels;
+    }
+
+    private boolean inflate(byte[] plane) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload.duplicate());
+            int filled = 0;
+            while (filled < plane.length && !inflater.finished()) {
+                int n = inflater.inflate(plane, filled, plane.length - filled);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return false;
+                }
+                filled += n;
+            }
+            // Ni de menos ni de más: un cuadro que se expande más allá del plano se rechaza
+            return filled == plane.length && inflater.finished();
+        } catch (DataFormatException e) {
+            return false;
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.owner.qrscan.decoder;
+
+/**
+ * Opciones que el cliente puede mandar junto con la foto
+ *
+ * @param roi   zona donde el cliente sabe que está el código (opcional)
+ * @param multi devolver todos los códigos de la imagen en vez del primero
+ */
+public record ScanOptions(Region roi, boolean multi) {
+
+    public static final ScanOptions DEFAULT = new ScanOptions(null, false);
+
+    /**
+     * Las mismas opciones con la ROI pasada a una imagen submuestreada por {@code factor}
+     */
+    public ScanOptions subsampled(int factor) {
+        return factor == 1 || roi == null ? this : new ScanOptions(roi.scaleDown(factor), multi);
+    }
+
+    /**
+     * Variante para la clave del caché: el mismo archivo con otras opciones puede dar otro resultado
+     */
+    public String cacheVariant() {
+        return (multi ? "multi:" : "") + (roi == null ? "" : "roi:" + roi);
+    }
+}
@@ -0,0 +1,130 @@
+package com.owner.qrscan.decoder;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Caché acotado de resultados por contenido de la imagen (W-TinyLFU de Caffeine con TTL).
+ * Los "not_found" se guardan con un TTL más corto. Si llegan a la vez dos subidas idénticas
+ * (doble tap, reintento) solo una decodifica y la otra espera su resultado.
+ */
+@Component
+public class ScanResultCache {
+
+    /**
+     * Cálculo del resultado cuando no está en caché
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Map<String, String> load() throws IOException;
+    }
+
+    private final boolean enabled;
+    private final AsyncCache<Key, Map<String, String>> cache;
+
+    public ScanResultCache(@Value("${qrscan.cache.enabled:true}") boolean enabled,
+                           @Value("${qrscan.cache.max-entries:10000}") long maxEntries,
+                           @Value("${qrscan.cache.ttl-seconds:600}") long ttlSeconds,
+                           @Value("${qrscan.cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.enabled = enabled;
+        long ttl = Duration.ofSeconds(ttlSeconds).toNanos();
+        long negativeTtl = Duration.ofSeconds(negativeTtlSeconds).toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<Key, Map<String, String>>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Map<String, String> value, long currentTime) {
+                        return "success".equals(value.get("status")) ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Map<String, String> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Map<String, String> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+
+    // El mismo contenido con otras opciones (por ejemplo otra ROI) se cachea por separado
+    private record Key(ContentHash content, String variant) {
+    }
+
+    /**
+     * Devuelve el resultado cacheado para estos bytes o lo calcula con {@code loader} en el hilo actual
+     */
+    public Map<String, String> get(ContentHash content, String variant, Loader loader) throws IOException {
+        if (!enabled) {
+            return loader.load();
+        }
+        Key key = new Key(content, variant);
+        // getIfPresent registra el acierto o el fallo en las estadísticas
+        CompletableFuture<Map<String, String>> cached = cache.getIfPresent(key);
+        if (cached == null) {
+            CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+            cached = cache.asMap().putIfAbsent(key, future);
+            if (cached == null) {
+                try {
+                    Map<String, String> result = Map.copyOf(loader.load());
+                    future.complete(result);
+                    return new LinkedHashMap<>(result);
+                } catch (IOException | RuntimeException e) {
+                    // Caffeine descarta solo las entradas que terminan con error
+                    future.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return new LinkedHashMap<>(cached.join());
+        } catch (CompletionException e) {
+            // Quien espera recibe el mismo error que quien calculaba (por ejemplo un rechazo de admisión)
+            if (e.getCause() instanceof IOException io) {
+                throw new IOException(io.getMessage(), io);
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    /**
+     * Estadísticas para dimensionar el caché
+     */
+    public Map<String, Object> describe() {
+        CacheStats stats = stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", size());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+}
@@ -0,0 +1,123 @@
+package com.owner.qrscan.generator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Generación masiva desde un CSV hacia un ZIP o un PDF que se escribe mientras se genera. El hilo de la
+ * petición lee el CSV, manda cada código a dibujar al pool de generación y escribe los resultados en el
+ * orden del CSV. Nunca hay más de {@code window} códigos en vuelo: si la salida (el cliente) va más lenta
+ * que el dibujo, se deja de leer el CSV. La memoria no depende de cuántos códigos tenga la corrida.
+ * No pasa por el caché de imágenes: una corrida de etiquetas son casi siempre textos que no se repiten.
+ */
+@Component
+public class BulkGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkGenerator.class);
+
+    /**
+     * @param written códigos generados
+     * @param failed  líneas que no se pudieron codificar
+     * @param limited se cortó al llegar a maxCodes
+     */
+    public record Result(long written, long failed, boolean limited) {
+    }
+
+    // Lo que vuelve de cada tarea: el código listo o el motivo por el que no se pudo generar
+    private record Outcome<T>(CsvRows.Row row, T rendered, String error) {
+    }
+
+    @Autowired
+    private CodeRenderer renderer;
+    @Autowired
+    @Qualifier("generatePool")
+    private ForkJoinPool pool;
+    @Value("${qrscan.generate.bulk.max-codes:200000}")
+    private long maxCodes;
+    // Códigos en vuelo por hilo del pool: uno dibujándose y el resto esperando a que lo tomen o a escribirse
+    @Value("${qrscan.generate.bulk.window-per-thread:4}")
+    private int windowPerThread;
+
+    public Result generate(BulkSpec spec, Reader csv, OutputStream out) throws IOException {
+        CsvRows rows = new CsvRows(csv, spec.skipHeader());
+        return switch (spec.output()) {
+            case ZIP -> run(rows, new ZipBulkSink(renderer, spec, out));
+            case PDF -> run(rows, new PdfSheetSink(renderer, spec, out));
+        };
+    }
+
+    private <T> Result run(CsvRows rows, BulkSink<T> sink) throws IOException {
+        int window = Math.max(1, pool.getParallelism() * windowPerThread);
+        Deque<ForkJoinTask<Outcome<T>>> pending = new ArrayDeque<>(window);
+        long start = System.nanoTime();
+        long written = 0;
+        long failed = 0;
+        long read = 0;
+        boolean limited = false;
+        try {
+            for (CsvRows.Row row = rows.next(); row != null; row = rows.next()) {
+                if (read++ == maxCodes) {
+                    limited = true;
+                    break;
+                }
+                if (pending.size() == window) {
+                    if (drain(pending.poll(), sink)) {
+                        written++;
+                    } else {
+                        failed++;
+                    }
+                }
+                CsvRows.Row current = row;
+                pending.add(pool.submit(() -> render(current, sink)));
+            }
+            while (!pending.isEmpty()) {
+                if (drain(pending.poll(), sink)) {
+                    written++;
+                } else {
+                    failed++;
+                }
+            }
+            if (limited) {
+                sink.fail(new CsvRows.Row(read, "", null), "Se generaron solo los primeros " + maxCodes + " códigos.");
+            }
+            sink.finish();
+        } catch (IOException | RuntimeException e) {
+            // El cliente cortó o falló la salida: lo que estaba en vuelo ya no se va a escribir
+            pending.forEach(task -> task.cancel(false));
+            throw e;
+        }
+        logger.info("🏷️ Generación masiva: {} códigos, {} con error, en {} ms", written, failed,
+                (System.nanoTime() - start) / 1_000_000);
+        return new Result(written, failed, limited);
+    }
+
+    private static <T> Outcome<T> render(CsvRows.Row row, BulkSink<T> sink) {
+        try {
+            return new Outcome<>(row, sink.render(row), null);
+        } catch (IllegalArgumentException e) {
+            return new Outcome<>(row, null, e.getMessage());
+        }
+    }
+
+    private static <T> boolean drain(ForkJoinTask<Outcome<T>> task, BulkSink<T> sink) throws IOException {
+        Outcome<T> outcome = task.join();
+        if (outcome.error() != null) {
+            sink.fail(outcome.row(), outcome.error());
+            return false;
+        }
+        sink.write(outcome.row(), outcome.rendered());
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package com.owner.qrscan.generator;
+
+import java.io.IOException;
+
+/**
+ * Destino de una generación masiva. {@link #render} corre en paralelo en el pool de generación y no puede
+ * tocar la salida; {@link #write} y {@link #fail} se llaman desde un solo hilo, en el orden del CSV.
+ *
+ * @param <T> lo que produce cada código, listo para escribir
+ */
+public interface BulkSink<T> {
+
+    // Lanza IllegalArgumentException si el texto no se puede codificar
+    T render(CsvRows.Row row);
+
+    void write(CsvRows.Row row, T rendered) throws IOException;
+
+    void fail(CsvRows.Row row, String message) throws IOException;
+
+    // Cierra el formato (directorio del ZIP, xref del PDF) sin cerrar la respuesta
+    void finish() throws IOException;
+}
@@ -0,0 +1,59 @@
+package com.owner.qrscan.generator;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+/**
+ * Parámetros de una generación masiva: los mismos para todos los códigos del CSV
+ *
+ * @param format          formato de ZXing
+ * @param width           ancho de cada PNG en píxeles (en el PDF el código ocupa la celda)
+ * @param height          alto de cada PNG en píxeles
+ * @param margin          zona de silencio en módulos; null usa la del formato
+ * @param errorCorrection nivel de corrección de errores, solo para QR_CODE
+ * @param output          ZIP de PNGs o PDF con hojas de etiquetas
+ * @param columns         columnas de etiquetas por hoja (PDF)
+ * @param rows            filas de etiquetas por hoja (PDF)
+ * @param labels          imprimir el texto debajo de cada código (PDF)
+ * @param skipHeader      la primera línea del CSV son los nombres de las columnas
+ */
+public record BulkSpec(BarcodeFormat format, int width, int height, Integer margin,
+                       ErrorCorrectionLevel errorCorrection, Output output,
+                       int columns, int rows, boolean labels, boolean skipHeader) {
+
+    // Cada hilo arma un PNG entero en memoria: con 4096 píxeles serían 2 MB por código en vuelo
+    public static final int MAX_SIZE = 1024;
+
+    public enum Output {
+        ZIP("application/zip"),
+        PDF("application/pdf");
+
+        private final String contentType;
+
+        Output(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+    }
+
+    public BulkSpec {
+        if (width < 1 || width > MAX_SIZE || height < 1 || height > MAX_SIZE) {
+            throw new IllegalArgumentException("En la generación masiva el tamaño debe estar entre 1 y " + MAX_SIZE + " píxeles.");
+        }
+        if (columns < 1 || columns > 20 || rows < 1 || rows > 40) {
+            throw new IllegalArgumentException("La hoja admite de 1 a 20 columnas y de 1 a 40 filas.");
+        }
+        // Valida margen y nivel de corrección una sola vez, antes de empezar a responder
+        new CodeSpec("0", format, width, height, margin, errorCorrection, CodeSpec.Output.MATRIX);
+    }
+
+    /**
+     * Spec del código de una línea del CSV; IllegalArgumentException si el texto no sirve
+     */
+    public CodeSpec code(String text, CodeSpec.Output codeOutput) {
+        return new CodeSpec(text, format, width, height, margin, errorCorrection, codeOutput);
+    }
+}
@@ -0,0 +1,102 @@
+package com.owner.qrscan.generator;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Genera códigos con el MultiFormatWriter de ZXing. El PNG se pide al writer ya escalado al tamaño final
+ * (ZXing centra el código con módulos enteros); el SVG y la matriz se piden sin escalar, un píxel por módulo,
+ * y el SVG se agranda con el viewBox, así pesa lo mismo a cualquier tamaño.
+ */
+@Component
+public class CodeRenderer {
+
+    // MultiFormatWriter no guarda estado: una instancia sirve para todos los hilos
+    private final MultiFormatWriter writer = new MultiFormatWriter();
+
+    /**
+     * Dibuja el código. Si el contenido no se puede codificar en ese formato (un EAN_13 con letras, un texto
+     * que no entra en un QR) lanza IllegalArgumentException.
+     */
+    public RenderedCode render(CodeSpec spec) {
+        byte[] body = switch (spec.output()) {
+            case PNG -> PngEncoder.encode(encode(spec, spec.width(), spec.height()));
+            case SVG -> svg(modules(spec), spec.width(), spec.height());
+            case MATRIX -> modules(spec).toString("1", "0").getBytes(StandardCharsets.US_ASCII);
+        };
+        return new RenderedCode(body, spec.output().contentType(), spec.etag());
+    }
+
+    /**
+     * La matriz sin escalar, un elemento por módulo (con la zona de silencio)
+     */
+    public BitMatrix modules(CodeSpec spec) {
+        return encode(spec, 0, 0);
+    }
+
+    private BitMatrix encode(CodeSpec spec, int width, int height) {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        if (spec.margin() != null) {
+            hints.put(EncodeHintType.MARGIN, spec.margin());
+        }
+        if (spec.errorCorrection() != null) {
+            hints.put(EncodeHintType.ERROR_CORRECTION, spec.errorCorrection());
+        }
+        // Sin esto ZXing usa ISO-8859-1 y un texto con tildes o emojis sale con '?'
+        if (!StandardCharsets.ISO_8859_1.newEncoder().canEncode(spec.text()) && supportsCharset(spec.format())) {
+            hints.put(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+        }
+        try {
+            return writer.encode(spec.text(), spec.format(), width, height, hints);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("No se pudo generar el código: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean supportsCharset(BarcodeFormat format) {
+        return format == BarcodeFormat.QR_CODE || format == BarcodeFormat.AZTEC
+                || format == BarcodeFormat.PDF_417 || format == BarcodeFormat.DATA_MATRIX;
+    }
+
+    /**
+     * Un rectángulo por cada tramo de módulos negros de cada fila, todos en un solo path
+     */
+    private static byte[] svg(BitMatrix modules, int width, int height) {
+        int columns = modules.getWidth();
+        int rows = modules.getHeight();
+        StringBuilder svg = new StringBuilder(256 + columns * rows / 2);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height)
+                .append("\" viewBox=\"0 0 ").append(columns).append(' ').append(rows).append('"');
+        // Los códigos de barras lineales vienen en una sola fila: las barras se estiran hasta el alto pedido
+        if (rows == 1) {
+            svg.append(" preserveAspectRatio=\"none\"");
+        }
+        svg.append(" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        for (int y = 0; y < rows; y++) {
+            int x = 0;
+            while (x < columns) {
+                if (!modules.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < columns && modules.get(x, y)) {
+                    x++;
+                }
+                svg.append('M').append(start).append(' ').append(y)
+                        .append('h').append(x - start).append("v1h-").append(x - start).append('z');
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,74 @@
+package com.owner.qrscan.generator;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.owner.qrscan.decoder.ContentHash;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Qué código generar y cómo entregarlo. Es también la clave del caché de imágenes: dos pedidos con
+ * los mismos parámetros dan exactamente los mismos bytes, por eso el ETag sale de acá y no de la imagen.
+ *
+ * @param text            contenido del código
+ * @param format          formato de ZXing (QR_CODE, CODE_128, EAN_13, DATA_MATRIX, ...)
+ * @param width           ancho en píxeles (PNG) o del SVG
+ * @param height          alto en píxeles
+ * @param margin          zona de silencio en módulos; null usa la del formato
+ * @param errorCorrection nivel de corrección de errores, solo para QR_CODE; null usa L
+ * @param output          PNG, SVG o la matriz de módulos en texto
+ */
+public record CodeSpec(String text, BarcodeFormat format, int width, int height, Integer margin,
+                       ErrorCorrectionLevel errorCorrection, Output output) {
+
+    // Lado máximo en píxeles: un PNG de 4096x4096 de 1 bit ocupa unos 2 MB sin comprimir
+    public static final int MAX_SIZE = 4096;
+    // Tope del texto a generar: limita el trabajo de armar la matriz
+    public static final int MAX_TEXT_LENGTH = 4096;
+    // Se cambia si cambia cómo se dibuja, para que los clientes no sigan usando imágenes viejas
+    private static final String RENDER_VERSION = "1";
+
+    public enum Output {
+        PNG("image/png"),
+        SVG("image/svg+xml"),
+        // Una fila de '1' (módulo negro) y '0' por línea, sin escalar, para impresoras que dibujan por su cuenta
+        MATRIX("text/plain;charset=UTF-8");
+
+        private final String contentType;
+
+        Output(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+    }
+
+    public CodeSpec {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("Indique el texto del código.");
+        }
+        if (text.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("El texto no puede superar " + MAX_TEXT_LENGTH + " caracteres.");
+        }
+        if (width < 1 || width > MAX_SIZE || height < 1 || height > MAX_SIZE) {
+            throw new IllegalArgumentException("El tamaño debe estar entre 1 y " + MAX_SIZE + " píxeles.");
+        }
+        if (margin != null && (margin < 0 || margin > 100)) {
+            throw new IllegalArgumentException("El margen debe estar entre 0 y 100 módulos.");
+        }
+        if (errorCorrection != null && format != BarcodeFormat.QR_CODE) {
+            throw new IllegalArgumentException("El nivel de corrección solo aplica a QR_CODE.");
+        }
+    }
+
+    /**
+     * ETag fuerte calculado de los parámetros: permite contestar 304 sin dibujar ni buscar en el caché
+     */
+    public String etag() {
+        String canonical = RENDER_VERSION + '|' + format + '|' + width + 'x' + height + '|' + margin + '|'
+                + errorCorrection + '|' + output + '|' + text;
+        return '"' + ContentHash.of(canonical.getBytes(StandardCharsets.UTF_8)).toHex() + '"';
+    }
+}
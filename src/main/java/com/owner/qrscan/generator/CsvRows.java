@@ -0,0 +1,87 @@
+package com.owner.qrscan.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Lee el CSV de una generación masiva de a una línea, sin cargarlo entero: primera columna el texto del
+ * código, segunda (opcional) el nombre del archivo. Acepta campos entre comillas con comas y comillas
+ * dobladas adentro; un campo entre comillas no puede ocupar varias líneas. Las líneas vacías se saltean.
+ */
+public class CsvRows {
+
+    /**
+     * @param line número de línea en el CSV, desde 1
+     * @param text texto del código
+     * @param name nombre pedido para el archivo, o null
+     */
+    public record Row(long line, String text, String name) {
+    }
+
+    private final BufferedReader reader;
+    private long line;
+
+    public CsvRows(Reader reader, boolean skipHeader) throws IOException {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+        if (skipHeader && this.reader.readLine() != null) {
+            line++;
+        }
+    }
+
+    /**
+     * La próxima fila con contenido, o null al terminar el CSV
+     */
+    public Row next() throws IOException {
+        String raw;
+        while ((raw = reader.readLine()) != null) {
+            line++;
+            if (line == 1 && !raw.isEmpty() && raw.charAt(0) == '﻿') {
+                // BOM que agregan Excel y otros al exportar en UTF-8
+                raw = raw.substring(1);
+            }
+            if (raw.isBlank()) {
+                continue;
+            }
+            StringBuilder field = new StringBuilder(raw.length());
+            int end = readField(raw, 0, field);
+            String text = field.toString();
+            String name = null;
+            if (end < raw.length()) {
+                field.setLength(0);
+                readField(raw, end + 1, field);
+                name = field.isEmpty() ? null : field.toString();
+            }
+            return new Row(line, text, name);
+        }
+        return null;
+    }
+
+    /**
+     * Copia el campo que empieza en {@code start} y devuelve la posición de la coma que lo cierra (o el largo)
+     */
+    private static int readField(String raw, int start, StringBuilder field) {
+        int i = start;
+        if (i < raw.length() && raw.charAt(i) == '"') {
+            i++;
+            while (i < raw.length()) {
+                char c = raw.charAt(i++);
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < raw.length() && raw.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            // Lo que quede hasta la coma después de la comilla de cierre se ignora
+            int comma = raw.indexOf(',', i);
+            return comma < 0 ? raw.length() : comma;
+        }
+        int comma = raw.indexOf(',', i);
+        int end = comma < 0 ? raw.length() : comma;
+        field.append(raw, i, end);
+        return end;
+    }
+}
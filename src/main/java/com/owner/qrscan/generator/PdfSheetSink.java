@@ -0,0 +1,222 @@
+package com.owner.qrscan.generator;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hojas A4 de etiquetas en PDF, columnas x filas por hoja, escritas a medida que se llenan. Cada código
+ * es una imagen de 1 bit con un píxel por módulo, que el PDF escala a la celda (queda nítido a cualquier
+ * tamaño): los datos son los mismos de un PNG (filas con byte de filtro, en zlib), con /Predictor 15.
+ * Debajo va el texto en Helvetica. En memoria queda solo la hoja actual y la posición de cada objeto
+ * para la tabla xref del final (8 bytes por código).
+ */
+public class PdfSheetSink implements BulkSink<PdfSheetSink.Image> {
+
+    private static final float PAGE_WIDTH = 595.28f;
+    private static final float PAGE_HEIGHT = 841.89f;
+    private static final float PAGE_MARGIN = 28f;
+    private static final float CELL_PADDING = 4f;
+    private static final float FONT_SIZE = 7f;
+    private static final float LABEL_HEIGHT = FONT_SIZE + 3f;
+    // Ancho medio de un carácter de Helvetica, para cortar el texto antes del borde de la celda
+    private static final float CHAR_WIDTH = FONT_SIZE * 0.55f;
+    // Las fuentes estándar de PDF solo tienen los caracteres de WinAnsi; el resto sale como '?'
+    private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT = 3;
+
+    record Image(int columns, int rows, byte[] data, byte[] label) {
+    }
+
+    private final CodeRenderer renderer;
+    private final BulkSpec spec;
+    private final OutputStream out;
+    private final float cellWidth;
+    private final float cellHeight;
+    private final int maxLabelChars;
+    private long position;
+    private long[] offsets = new long[1024];
+    private int nextObject = FONT + 1;
+    private int[] pageObjects = new int[64];
+    private int pageCount;
+    // La hoja en curso: su contenido y las imágenes que referencia
+    private final StringBuilder content = new StringBuilder();
+    private final StringBuilder resources = new StringBuilder();
+    private int cell;
+
+    public PdfSheetSink(CodeRenderer renderer, BulkSpec spec, OutputStream out) throws IOException {
+        this.renderer = renderer;
+        this.spec = spec;
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.cellWidth = (PAGE_WIDTH - 2 * PAGE_MARGIN) / spec.columns();
+        this.cellHeight = (PAGE_HEIGHT - 2 * PAGE_MARGIN) / spec.rows();
+        this.maxLabelChars = Math.max(1, (int) ((cellWidth - 2 * CELL_PADDING) / CHAR_WIDTH));
+        // El comentario con bytes altos avisa a los lectores que el archivo es binario
+        write("%PDF-1.4\n%âãÏÓ\n");
+        beginObject(CATALOG);
+        write("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\nendobj\n");
+        beginObject(FONT);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+    }
+
+    @Override
+    public Image render(CsvRows.Row row) {
+        BitMatrix modules = renderer.modules(spec.code(row.text(), CodeSpec.Output.MATRIX));
+        byte[] label = spec.labels() ? label(row.text()) : null;
+        return new Image(modules.getWidth(), modules.getHeight(), PngEncoder.compressRows(modules), label);
+    }
+
+    @Override
+    public void write(CsvRows.Row row, Image image) throws IOException {
+        int id = nextObject++;
+        beginObject(id);
+        write("<< /Type /XObject /Subtype /Image /Width " + image.columns() + " /Height " + image.rows()
+                + " /ColorSpace /DeviceGray /BitsPerComponent 1 /Filter /FlateDecode"
+                + " /DecodeParms << /Predictor 15 /Colors 1 /BitsPerComponent 1 /Columns " + image.columns() + " >>"
+                + " /Length " + image.data().length + " >>\nstream\n");
+        write(image.data());
+        write("\nendstream\nendobj\n");
+        resources.append("/I").append(cell).append(' ').append(id).append(" 0 R ");
+
+        float x = cellX();
+        float bottom = cellBottom() + (spec.labels() ? LABEL_HEIGHT : 0);
+        float availableWidth = cellWidth - 2 * CELL_PADDING;
+        float availableHeight = cellBottom() + cellHeight - CELL_PADDING - bottom;
+        float width;
+        float height;
+        if (image.rows() == 1) {
+            // Código lineal: una sola fila de módulos, las barras se estiran a un alto proporcional
+            width = availableWidth;
+            height = Math.min(availableHeight, availableWidth * 0.4f);
+        } else {
+            float scale = Math.min(availableWidth / image.columns(), availableHeight / image.rows());
+            width = image.columns() * scale;
+            height = image.rows() * scale;
+        }
+        content.append("q ").append(num(width)).append(" 0 0 ").append(num(height)).append(' ')
+                .append(num(x + (availableWidth - width) / 2)).append(' ')
+                .append(num(bottom + (availableHeight - height) / 2)).append(" cm /I").append(cell).append(" Do Q\n");
+        if (image.label() != null) {
+            text(image.label());
+        }
+        nextCell();
+    }
+
+    @Override
+    public void fail(CsvRows.Row row, String message) throws IOException {
+        // La celda queda con el error para que la hoja siga alineada con el CSV
+        text(label("Línea " + row.line() + ": " + message));
+        nextCell();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (cell > 0 || pageCount == 0) {
+            writePage();
+        }
+        beginObject(PAGES);
+        write("<< /Type /Pages /Count " + pageCount + " /Kids [");
+        for (int i = 0; i < pageCount; i++) {
+            write(pageObjects[i] + " 0 R ");
+        }
+        write("] >>\nendobj\n");
+
+        long xref = position;
+        StringBuilder table = new StringBuilder("xref\n0 ").append(nextObject).append("\n0000000000 65535 f \n");
+        write(table.toString());
+        for (int id = 1; id < nextObject; id++) {
+            write(String.format("%010d 00000 n \n", offsets[id]));
+        }
+        write("trailer\n<< /Size " + nextObject + " /Root " + CATALOG + " 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+        out.flush();
+    }
+
+    private void nextCell() throws IOException {
+        if (++cell == spec.columns() * spec.rows()) {
+            writePage();
+        }
+    }
+
+    private void writePage() throws IOException {
+        int contentId = nextObject++;
+        byte[] data = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+        beginObject(contentId);
+        write("<< /Length " + data.length + " >>\nstream\n");
+        write(data);
+        write("\nendstream\nendobj\n");
+
+        int pageId = nextObject++;
+        beginObject(pageId);
+        write("<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + num(PAGE_WIDTH) + ' ' + num(PAGE_HEIGHT) + "]"
+                + " /Resources << /Font << /F1 " + FONT + " 0 R >> /XObject << " + resources + ">> >>"
+                + " /Contents " + contentId + " 0 R >>\nendobj\n");
+        if (pageCount == pageObjects.length) {
+            pageObjects = Arrays.copyOf(pageObjects, pageCount * 2);
+        }
+        pageObjects[pageCount++] = pageId;
+        content.setLength(0);
+        resources.setLength(0);
+        cell = 0;
+    }
+
+    private void text(byte[] label) {
+        // El contenido se guarda como ISO-8859-1: cada char es un byte del texto ya codificado en WinAnsi
+        content.append("BT /F1 ").append(num(FONT_SIZE)).append(" Tf ").append(num(cellX())).append(' ')
+                .append(num(cellBottom() + 2)).append(" Td (").append(new String(label, StandardCharsets.ISO_8859_1))
+                .append(") Tj ET\n");
+    }
+
+    private float cellX() {
+        return PAGE_MARGIN + (cell % spec.columns()) * cellWidth + CELL_PADDING;
+    }
+
+    private float cellBottom() {
+        return PAGE_HEIGHT - PAGE_MARGIN - (cell / spec.columns() + 1) * cellHeight + CELL_PADDING;
+    }
+
+    /**
+     * Texto cortado al ancho de la celda, en WinAnsi y con \, ( y ) escapados para un string de PDF
+     */
+    private byte[] label(String text) {
+        String visible = text.length() > maxLabelChars ? text.substring(0, Math.max(1, maxLabelChars - 3)) + "..." : text;
+        byte[] encoded = visible.replaceAll("[\\r\\n\\t]", " ").getBytes(WIN_ANSI);
+        byte[] escaped = new byte[encoded.length * 2];
+        int length = 0;
+        for (byte b : encoded) {
+            if (b == '\\' || b == '(' || b == ')') {
+                escaped[length++] = '\\';
+            }
+            escaped[length++] = b;
+        }
+        return Arrays.copyOf(escaped, length);
+    }
+
+    private void beginObject(int id) throws IOException {
+        if (id >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[id] = position;
+        write(id + " 0 obj\n");
+    }
+
+    private void write(String text) throws IOException {
+        write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void write(byte[] data) throws IOException {
+        out.write(data);
+        position += data.length;
+    }
+
+    // Dos decimales alcanzan en puntos de PDF (1/72 de pulgada)
+    private static String num(float value) {
+        return Float.toString(Math.round(value * 100) / 100f);
+    }
+}
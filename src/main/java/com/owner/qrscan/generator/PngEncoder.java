@@ -0,0 +1,117 @@
+package com.owner.qrscan.generator;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG en escala de grises de 1 bit directo desde la BitMatrix de ZXing, sin pasar por BufferedImage ni ImageIO.
+ * Cada fila se arma de a 8 píxeles invirtiendo los bits de la matriz (ZXing guarda el píxel x en el bit x % 32,
+ * PNG pone el primer píxel en el bit alto, y un módulo negro es 0 en escala de grises). Una imagen de 1 bit pesa
+ * 8 veces menos que la de 8 bits que arma MatrixToImageWriter, y con las filas escaladas repetidas deflate en
+ * BEST_SPEED la comprime casi igual que en el nivel por defecto.
+ */
+public final class PngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+
+    private PngEncoder() {
+    }
+
+    public static byte[] encode(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        byte[] compressed = compressRows(matrix);
+        byte[] png = new byte[SIGNATURE.length + 25 + 12 + compressed.length + 12];
+        System.arraycopy(SIGNATURE, 0, png, 0, SIGNATURE.length);
+        int p = SIGNATURE.length;
+
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        // Profundidad 1, tipo de color 0 (gris), compresión, filtro y entrelazado estándar
+        header[8] = 1;
+        p = writeChunk(png, p, IHDR, header, header.length);
+        p = writeChunk(png, p, IDAT, compressed, compressed.length);
+        writeChunk(png, p, IEND, compressed, 0);
+        return png;
+    }
+
+    /**
+     * Los datos de IDAT: filas de 1 bit con su byte de filtro, en zlib. Un PDF acepta lo mismo como imagen
+     * FlateDecode con /Predictor 15, así las hojas de etiquetas no vuelven a empaquetar ni comprimir.
+     */
+    public static byte[] compressRows(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int rowBytes = (width + 7) >>> 3;
+        int stride = rowBytes + 1;
+        // Cada fila: byte de filtro (0, sin filtro) y los píxeles empaquetados
+        byte[] raw = new byte[stride * height];
+        BitArray row = new BitArray(width);
+        int[] previous = null;
+        for (int y = 0; y < height; y++) {
+            row = matrix.getRow(y, row);
+            int[] bits = row.getBitArray();
+            int offset = y * stride;
+            // Las filas escaladas se repiten: copiar la anterior es más barato que volver a empaquetar
+            if (previous != null && Arrays.equals(previous, bits)) {
+                System.arraycopy(raw, offset - stride, raw, offset, stride);
+                continue;
+            }
+            for (int k = 0; k < rowBytes; k++) {
+                int v = (bits[k >>> 2] >>> ((k & 3) << 3)) & 0xFF;
+                raw[offset + 1 + k] = (byte) ~(Integer.reverse(v) >>> 24);
+            }
+            previous = previous == null ? bits.clone() : copyInto(previous, bits);
+        }
+        return deflate(raw);
+    }
+
+    private static int[] copyInto(int[] target, int[] source) {
+        System.arraycopy(source, 0, target, 0, source.length);
+        return target;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, raw.length / 4)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int writeChunk(byte[] png, int p, byte[] type, byte[] data, int length) {
+        writeInt(png, p, length);
+        System.arraycopy(type, 0, png, p + 4, 4);
+        System.arraycopy(data, 0, png, p + 8, length);
+        CRC32 crc = new CRC32();
+        crc.update(png, p + 4, length + 4);
+        writeInt(png, p + 8 + length, (int) crc.getValue());
+        return p + 12 + length;
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,11 @@
+package com.owner.qrscan.generator;
+
+/**
+ * Un código ya dibujado, listo para mandar tal cual
+ *
+ * @param body        bytes de la respuesta; no se modifican, los comparten todos los pedidos que salen del caché
+ * @param contentType tipo de la respuesta según la salida pedida
+ * @param etag        ETag de los parámetros con que se generó
+ */
+public record RenderedCode(byte[] body, String contentType, String etag) {
+}
@@ -0,0 +1,68 @@
+package com.owner.qrscan.generator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caché de códigos ya dibujados, acotado por bytes y no por cantidad: un PNG de 4096 píxeles pesa cientos
+ * de veces lo que uno de 200. Cada entrada pesa su imagen más el texto de la clave. Si llegan a la vez dos
+ * pedidos iguales, uno dibuja y el otro espera ese resultado.
+ */
+@Component
+public class RenderedCodeCache {
+
+    // Objetos, cabeceras y campos de la clave además del texto y la imagen
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Cache<CodeSpec, RenderedCode> cache;
+
+    public RenderedCodeCache(@Value("${qrscan.generate.cache.enabled:true}") boolean enabled,
+                             @Value("${qrscan.generate.cache.max-bytes:67108864}") long maxBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<CodeSpec, RenderedCode>weigher((spec, code) ->
+                        (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD + 2L * spec.text().length() + code.body().length))
+                .recordStats()
+                .build();
+    }
+
+    public RenderedCode get(CodeSpec spec, Function<CodeSpec, RenderedCode> renderer) {
+        if (!enabled) {
+            return renderer.apply(spec);
+        }
+        return cache.get(spec, renderer);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long weightedSize() {
+        return cache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    public Map<String, Object> describe() {
+        CacheStats stats = stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("entries", cache.estimatedSize());
+        result.put("bytes", weightedSize());
+        result.put("maxBytes", maxBytes);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+}
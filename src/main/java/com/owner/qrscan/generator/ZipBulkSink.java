@@ -0,0 +1,94 @@
+package com.owner.qrscan.generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Un PNG por línea del CSV dentro de un ZIP que se escribe a medida que llegan. Los PNG ya vienen
+ * comprimidos, así que van sin comprimir (STORED): el CRC se calcula en el hilo que los dibujó.
+ * Las líneas que fallan se listan en errores.txt al final. Lo único que crece con el tamaño de la
+ * corrida es el directorio del ZIP que guarda ZipOutputStream (unos 100 bytes por archivo).
+ */
+public class ZipBulkSink implements BulkSink<ZipBulkSink.Entry> {
+
+    // Las primeras líneas con error alcanzan para corregir el CSV
+    private static final int MAX_ERROR_LINES = 1000;
+
+    record Entry(byte[] png, long crc) {
+    }
+
+    private final CodeRenderer renderer;
+    private final BulkSpec spec;
+    private final ZipOutputStream zip;
+    private final StringBuilder errors = new StringBuilder();
+    private int errorLines;
+
+    public ZipBulkSink(CodeRenderer renderer, BulkSpec spec, OutputStream out) {
+        this.renderer = renderer;
+        this.spec = spec;
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Entry render(CsvRows.Row row) {
+        byte[] png = renderer.render(spec.code(row.text(), CodeSpec.Output.PNG)).body();
+        CRC32 crc = new CRC32();
+        crc.update(png);
+        return new Entry(png, crc.getValue());
+    }
+
+    @Override
+    public void write(CsvRows.Row row, Entry rendered) throws IOException {
+        ZipEntry entry = new ZipEntry(fileName(row));
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(rendered.png().length);
+        entry.setCompressedSize(rendered.png().length);
+        entry.setCrc(rendered.crc());
+        zip.putNextEntry(entry);
+        zip.write(rendered.png());
+        zip.closeEntry();
+    }
+
+    @Override
+    public void fail(CsvRows.Row row, String message) {
+        if (errorLines++ < MAX_ERROR_LINES) {
+            errors.append("Línea ").append(row.line()).append(": ").append(message).append('\n');
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (errorLines > 0) {
+            if (errorLines > MAX_ERROR_LINES) {
+                errors.append("... y ").append(errorLines - MAX_ERROR_LINES).append(" líneas más con error\n");
+            }
+            zip.putNextEntry(new ZipEntry("errores.txt"));
+            zip.write(errors.toString().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        // finish y no close: la respuesta la cierra el contenedor
+        zip.finish();
+    }
+
+    /**
+     * Número de línea y, si vino, el nombre pedido: dos líneas con el mismo nombre no pueden pisarse
+     */
+    private static String fileName(CsvRows.Row row) {
+        String number = String.format("%06d", row.line());
+        if (row.name() == null) {
+            return number + ".png";
+        }
+        String name = row.name().replaceAll("[^\\p{L}\\p{N}._-]", "_");
+        if (name.regionMatches(true, Math.max(0, name.length() - 4), ".png", 0, 4)) {
+            name = name.substring(0, name.length() - 4);
+        }
+        if (name.length() > 100) {
+            name = name.substring(0, 100);
+        }
+        return number + "_" + name + ".png";
+    }
+}
@@ -0,0 +1,49 @@
+package com.owner.qrscan.history;
+
+import com.owner.qrscan.models.Qr;
+import com.owner.qrscan.models.QrMinuteCount;
+import com.owner.qrscan.respositories.QrMinuteCountRepository;
+import com.owner.qrscan.respositories.QrRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Guarda un lote del historial y suma sus lecturas a los contadores por minuto, todo en una transacción:
+ * los contadores nunca cuentan filas que no se guardaron. Un lote de cientos de filas toca solo un par de
+ * contadores (los minutos y formatos que aparecen), así mantenerlos cuesta casi nada.
+ */
+@Component
+public class ScanHistoryStore {
+
+    @Autowired
+    private QrRepository qrRepository;
+    @Autowired
+    private QrMinuteCountRepository minuteCountRepository;
+
+    private record MinuteKey(Instant minute, String format) {
+    }
+
+    @Transactional
+    public void save(List<Qr> batch) {
+        qrRepository.saveAll(batch);
+
+        Map<MinuteKey, Long> counts = new HashMap<>();
+        for (Qr scan : batch) {
+            String format = scan.getFormat() != null ? scan.getFormat().name() : QrMinuteCount.NO_CODE;
+            counts.merge(new MinuteKey(scan.getScannedAt().truncatedTo(ChronoUnit.MINUTES), format), 1L, Long::sum);
+        }
+        // Un único escritor: si el minuto no existía todavía nadie más lo está creando
+        counts.forEach((key, n) -> {
+            if (minuteCountRepository.increment(key.minute(), key.format(), n) == 0) {
+                minuteCountRepository.save(new QrMinuteCount(key.minute(), key.format(), n));
+            }
+        });
+    }
+}
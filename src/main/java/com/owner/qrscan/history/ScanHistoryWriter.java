@@ -0,0 +1,174 @@
+package com.owner.qrscan.history;
+
+import com.owner.qrscan.models.Qr;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Historial de escaneos con escritura diferida: {@link #record} solo encola (sin bloquear ni tocar la base)
+ * y un único hilo escritor guarda lo acumulado cada {@code flushInterval}, o antes si se juntó un lote
+ * completo, en una transacción por lote que Hibernate manda en batches JDBC (hibernate.jdbc.batch_size).
+ * El escritor no se despierta por cada lectura: con un núcleo, una transacción de una fila por petición
+ * costaba más CPU que la petición misma. La cola está acotada: si la base no da abasto se descartan
+ * filas del historial antes que frenar los escaneos.
+ */
+@Component
+public class ScanHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanHistoryWriter.class);
+
+    @Autowired
+    private ScanHistoryStore store;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<Qr> queue;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    public ScanHistoryWriter(@Value("${qrscan.history.enabled:true}") boolean enabled,
+                             @Value("${qrscan.history.queue-capacity:65536}") int queueCapacity,
+                             @Value("${qrscan.history.batch-size:500}") int batchSize,
+                             @Value("${qrscan.history.flush-interval-ms:200}") long flushIntervalMs) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "scan-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Encola la lectura para guardarla; devuelve false si el historial está apagado o la cola está llena
+     */
+    public boolean record(Qr scan) {
+        if (!running) {
+            return false;
+        }
+        if (!queue.offer(scan)) {
+            // Contar siempre, avisar de vez en cuando: con la base caída esto pasa miles de veces por segundo
+            if (dropped.incrementAndGet() % 10_000 == 1) {
+                logger.warn("🗃️ Cola del historial llena: {} lecturas descartadas hasta ahora", dropped.get());
+            }
+            return false;
+        }
+        // Recién con un lote completo vale la pena despertar al escritor antes de tiempo
+        if (queue.size() == batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        List<Qr> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            if (queue.size() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            // Todo lo acumulado, de a un lote por transacción
+            while (queue.drainTo(batch, batchSize) > 0) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Qr> batch) {
+        try {
+            store.save(batch);
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (RuntimeException e) {
+            // Se reintenta de a una fila, una sola vez: una fila mala no se lleva a las demás (ni a sus contadores)
+            logger.warn("⚠️ No se pudo guardar un lote de {} lecturas del historial, se guardan de a una: {}",
+                    batch.size(), e.getMessage());
+            for (Qr scan : batch) {
+                flushOne(scan);
+            }
+        }
+    }
+
+    private void flushOne(Qr scan) {
+        // El id que se le asignó en el lote fallido quedó sin fila
+        scan.setId(null);
+        try {
+            store.save(List.of(scan));
+            written.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            logger.error("⚠️ No se pudo guardar una lectura del historial ({}): {}", scan.getSource(), e.getMessage());
+        }
+    }
+
+    /**
+     * Deja de aceptar lecturas y espera a que se guarde lo pendiente, antes de que se cierre la base
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (!queue.isEmpty()) {
+            logger.warn("🗃️ Se cerró con {} lecturas del historial sin guardar", queue.size());
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    public long written() {
+        return written.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public long failed() {
+        return failed.get();
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("pending", queue.size());
+        result.put("written", written.get());
+        result.put("batches", batches.get());
+        result.put("dropped", dropped.get());
+        result.put("failed", failed.get());
+        return result;
+    }
+}
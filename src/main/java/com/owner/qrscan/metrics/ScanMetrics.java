@@ -0,0 +1,137 @@
+package com.owner.qrscan.metrics;
+
+import com.google.zxing.BarcodeFormat;
+import com.owner.qrscan.decoder.DecodeTier;
+import com.owner.qrscan.generator.CodeSpec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers y contadores del pipeline de decodificación, de la generación de códigos y del socket, expuestos en /actuator/prometheus.
+ * Todos los medidores se crean al arrancar y quedan en mapas por enum, así registrar una medición en el
+ * camino caliente no busca ni arma tags. Los histogramas se configuran con management.metrics.distribution.*
+ */
+@Component
+public class ScanMetrics {
+
+    private final Timer multipartRead;
+    private final Timer rawRead;
+    private final Timer imageRead;
+    private final Timer luminance;
+    private final Map<DecodeTier, Timer> attemptHits = new EnumMap<>(DecodeTier.class);
+    private final Map<DecodeTier, Timer> attemptMisses = new EnumMap<>(DecodeTier.class);
+    private final Map<BarcodeFormat, Counter> hits = new EnumMap<>(BarcodeFormat.class);
+    private final Counter misses;
+    private final Map<CodeSpec.Output, Timer> renders = new EnumMap<>(CodeSpec.Output.class);
+    private final Timer socketSend;
+    private final Timer fanOut;
+
+    public ScanMetrics(MeterRegistry registry) {
+        multipartRead = stage(registry, "multipart_read");
+        rawRead = stage(registry, "raw_read");
+        imageRead = stage(registry, "image_read");
+        luminance = stage(registry, "luminance");
+        for (DecodeTier tier : DecodeTier.values()) {
+            attemptHits.put(tier, attempt(registry, tier, "hit"));
+            attemptMisses.put(tier, attempt(registry, tier, "miss"));
+        }
+        for (BarcodeFormat format : BarcodeFormat.values()) {
+            hits.put(format, result(registry, format.name()));
+        }
+        misses = result(registry, "none");
+        for (CodeSpec.Output output : CodeSpec.Output.values()) {
+            renders.put(output, Timer.builder("qrscan.generate.render")
+                    .description("Generación de un código que no estaba en el caché")
+                    .tag("output", output.name())
+                    .register(registry));
+        }
+        socketSend = Timer.builder("qrscan.socket.send")
+                .description("Escritura de un mensaje en el socket del cliente")
+                .register(registry);
+        fanOut = Timer.builder("qrscan.socket.fanout")
+                .description("Reparto de un mensaje a todas las sesiones de un broadcast o sala")
+                .register(registry);
+    }
+
+    private static Timer stage(MeterRegistry registry, String stage) {
+        return Timer.builder("qrscan.decode.stage")
+                .description("Etapas de una foto antes de decodificar")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private static Timer attempt(MeterRegistry registry, DecodeTier tier, String outcome) {
+        return Timer.builder("qrscan.decode.attempt")
+                .description("Cada intento de decodificación (nivel, rotación, recorte)")
+                .tag("tier", tier.name())
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Counter result(MeterRegistry registry, String format) {
+        return Counter.builder("qrscan.decode.results")
+                .description("Fotos y cuadros decodificados por formato; none = no se encontró código")
+                .tag("format", format)
+                .register(registry);
+    }
+
+    /**
+     * Lee el archivo subido a memoria midiendo cuánto tarda
+     */
+    public byte[] readMultipart(MultipartFile file) throws IOException {
+        long start = System.nanoTime();
+        byte[] bytes = file.getBytes();
+        record(multipartRead, start);
+        return bytes;
+    }
+
+    // Lectura de un cuerpo image/* crudo al buffer del pool
+    public void rawRead(long startNanos) {
+        record(rawRead, startNanos);
+    }
+
+    // Lectura de la imagen codificada al plano de luminancia
+    public void imageRead(long startNanos) {
+        record(imageRead, startNanos);
+    }
+
+    // Conversión a plano de luminancia
+    public void luminance(long startNanos) {
+        record(luminance, startNanos);
+    }
+
+    public void attempt(DecodeTier tier, boolean hit, long startNanos) {
+        record((hit ? attemptHits : attemptMisses).get(tier), startNanos);
+    }
+
+    /**
+     * Resultado final de una foto o cuadro; {@code null} si no se encontró código
+     */
+    public void result(BarcodeFormat format) {
+        (format != null ? hits.get(format) : misses).increment();
+    }
+
+    public void render(CodeSpec.Output output, long startNanos) {
+        record(renders.get(output), startNanos);
+    }
+
+    public Timer socketSend() {
+        return socketSend;
+    }
+
+    public void fanOut(long startNanos) {
+        record(fanOut, startNanos);
+    }
+
+    private static void record(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
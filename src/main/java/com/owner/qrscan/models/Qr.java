@@ -1,17 +1,96 @@
 package com.owner.qrscan.models;
 
+import com.google.zxing.BarcodeFormat;
+import com.owner.qrscan.decoder.DecodeTier;
 import jakarta.persistence.*;
 
+import java.time.Instant;
+
+/**
+ * Una lectura del historial de escaneos: qué se leyó, de qué imagen, para qué cliente y cuánto tardó.
+ * Se guarda en segundo plano en lotes (ver ScanHistoryWriter); el id sale de una secuencia y no de IDENTITY,
+ * porque con IDENTITY Hibernate tiene que insertar fila por fila para conocer cada id y no arma lotes JDBC.
+ */
 @Entity
-@Table(name = "Qr")
+@Table(name = "Qr", indexes = {
+        // "Últimas lecturas del cliente X" y "lecturas del código Y entre dos fechas": los dos terminan en
+        // (scannedAt, id), el orden de la paginación, así cada página es un recorrido corto del índice
+        @Index(name = "idx_qr_client_time", columnList = "clientId, scannedAt, id"),
+        @Index(name = "idx_qr_text_time", columnList = "textHash, scannedAt, id")
+})
 public class Qr {
 
+    public enum Source {
+        // /photo y /photo/{id}
+        PHOTO,
+        // ?multi=true: una fila por código encontrado
+        MULTI,
+        // /photos/batch
+        BATCH,
+        // Trabajos asíncronos (?async=true)
+        JOB,
+        // Cuadros de cámara por el socket: solo se guardan los que dieron código
+        FRAME
+    }
+
+    // allocationSize: Hibernate reserva de a 100 ids por consulta a la secuencia (optimizador pooled)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "qr_seq")
+    @SequenceGenerator(name = "qr_seq", sequenceName = "qr_seq", allocationSize = 100)
     private Long id;
 
+    @Column(nullable = false)
+    private Instant scannedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Source source;
+
+    // false si no se encontró ningún código
+    private boolean found;
+
+    // Sin largo fijo: un QR numérico llega a 7089 caracteres y cualquier tope menor hacía fallar el lote entero
+    @Lob
+    private String text;
+
+    // Hash del texto para indexar: sobre el texto completo no se puede (ni conviene) armar un índice
+    private Long textHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private BarcodeFormat format;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private DecodeTier tier;
+
+    // socketId del cliente al que se notificó, si vino
+    @Column(length = 128)
+    private String clientId;
+
+    @Column(length = 64)
+    private String room;
+
+    // ContentHash de la imagen en hexadecimal y su tamaño en bytes
+    @Column(length = 24)
+    private String imageHash;
+
+    private int imageBytes;
+
+    // Tiempo de decodificación (null si el resultado salió del caché) y total de la petición, en ms
+    private Long decodeMillis;
+
+    private long totalMillis;
+
+    private boolean cached;
+
     public Qr(){};
 
+    public Qr(Source source, Instant scannedAt) {
+        this.source = source;
+        this.scannedAt = scannedAt;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -19,4 +98,126 @@ public class Qr {
     public Long getId() {
         return id;
     }
+
+    public Instant getScannedAt() {
+        return scannedAt;
+    }
+
+    public void setScannedAt(Instant scannedAt) {
+        this.scannedAt = scannedAt;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public void setSource(Source source) {
+        this.source = source;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public void setFound(boolean found) {
+        this.found = found;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+        this.textHash = text != null ? hashText(text) : null;
+    }
+
+    public Long getTextHash() {
+        return textHash;
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre los caracteres del texto. Las búsquedas comparan además el texto,
+     * así que una colisión solo cuesta leer alguna fila de más.
+     */
+    public static long hashText(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public BarcodeFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(BarcodeFormat format) {
+        this.format = format;
+    }
+
+    public DecodeTier getTier() {
+        return tier;
+    }
+
+    public void setTier(DecodeTier tier) {
+        this.tier = tier;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public void setRoom(String room) {
+        this.room = room;
+    }
+
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    public int getImageBytes() {
+        return imageBytes;
+    }
+
+    public void setImageBytes(int imageBytes) {
+        this.imageBytes = imageBytes;
+    }
+
+    public Long getDecodeMillis() {
+        return decodeMillis;
+    }
+
+    public void setDecodeMillis(Long decodeMillis) {
+        this.decodeMillis = decodeMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
 }
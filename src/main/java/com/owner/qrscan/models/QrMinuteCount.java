@@ -0,0 +1,76 @@
+package com.owner.qrscan.models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Lecturas por minuto y formato ("NONE" = sin código). Se suman al guardar cada lote del historial,
+ * en la misma transacción, así los tableros leen pocas filas en vez de contar sobre la tabla Qr.
+ * La clave (minute, format) es también el orden del índice: un rango de minutos es un recorrido contiguo.
+ */
+@Entity
+@Table(name = "QrMinuteCount")
+@IdClass(QrMinuteCount.Key.class)
+public class QrMinuteCount {
+
+    public static final String NO_CODE = "NONE";
+
+    // minute y count son palabras reservadas en SQL
+    @Id
+    @Column(name = "minute_start")
+    private Instant minute;
+
+    @Id
+    @Column(length = 32)
+    private String format;
+
+    @Column(name = "scan_count")
+    private long count;
+
+    public QrMinuteCount() {
+    }
+
+    public QrMinuteCount(Instant minute, String format, long count) {
+        this.minute = minute;
+        this.format = format;
+        this.count = count;
+    }
+
+    public Instant getMinute() {
+        return minute;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public static class Key implements Serializable {
+        private Instant minute;
+        private String format;
+
+        public Key() {
+        }
+
+        public Key(Instant minute, String format) {
+            this.minute = minute;
+            this.format = format;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(minute, other.minute) && Objects.equals(format, other.format);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(minute, format);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.owner.qrscan.models;
+
+import java.util.List;
+
+/**
+ * Una página del historial; {@code nextCursor} se pasa tal cual para pedir la siguiente (null = no hay más)
+ */
+public record QrScanPage(List<QrScanView> items, String nextCursor) {
+}
@@ -0,0 +1,15 @@
+package com.owner.qrscan.models;
+
+import com.google.zxing.BarcodeFormat;
+import com.owner.qrscan.decoder.DecodeTier;
+
+import java.time.Instant;
+
+/**
+ * Una fila del historial tal como la devuelven las consultas: se arma directo desde el SELECT
+ * (proyección), sin cargar la entidad ni dejarla en el contexto de persistencia
+ */
+public record QrScanView(Long id, Instant scannedAt, Qr.Source source, boolean found, String text,
+                         BarcodeFormat format, DecodeTier tier, String clientId, String room,
+                         String imageHash, Long decodeMillis, long totalMillis, boolean cached) {
+}
@@ -0,0 +1,79 @@
+package com.owner.qrscan.models;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Trabajo de escaneo asíncrono (POST /api/photo/{id}?async=true). No se persiste: vive en memoria
+ * hasta que vence y se consulta con GET /api/jobs/{jobId}.
+ */
+public class ScanJob {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    // Orden de atención en la cola: primero HIGH, y dentro de cada prioridad por orden de llegada
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    private final String id;
+    private final String socketId;
+    private final String room;
+    private final Priority priority;
+    private final Instant createdAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant finishedAt;
+    private volatile Map<String, String> result;
+
+    public ScanJob(String id, String socketId, String room, Priority priority) {
+        this.id = id;
+        this.socketId = socketId;
+        this.room = room;
+        this.priority = priority;
+        this.createdAt = Instant.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSocketId() {
+        return socketId;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Map<String, String> getResult() {
+        return result;
+    }
+
+    public void start() {
+        this.status = Status.RUNNING;
+    }
+
+    public void finish(Status status, Map<String, String> result) {
+        this.result = result;
+        this.finishedAt = Instant.now();
+        this.status = status;
+    }
+}
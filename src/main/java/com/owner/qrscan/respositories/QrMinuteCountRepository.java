@@ -0,0 +1,26 @@
+package com.owner.qrscan.respositories;
+
+import com.owner.qrscan.models.QrMinuteCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface QrMinuteCountRepository extends JpaRepository<QrMinuteCount, QrMinuteCount.Key> {
+
+    // Devuelve 0 si todavía no hay fila para ese minuto y formato
+    @Modifying
+    @Query("update QrMinuteCount c set c.count = c.count + :n where c.minute = :minute and c.format = :format")
+    int increment(@Param("minute") Instant minute, @Param("format") String format, @Param("n") long n);
+
+    @Query("select c from QrMinuteCount c where c.minute >= :from and c.minute < :to order by c.minute, c.format")
+    List<QrMinuteCount> findRange(@Param("from") Instant from, @Param("to") Instant to);
+
+    @Query("select c from QrMinuteCount c where c.format = :format and c.minute >= :from and c.minute < :to order by c.minute")
+    List<QrMinuteCount> findRange(@Param("format") String format, @Param("from") Instant from, @Param("to") Instant to);
+}
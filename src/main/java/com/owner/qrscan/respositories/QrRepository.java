@@ -1,9 +1,35 @@
 package com.owner.qrscan.respositories;
 
 import com.owner.qrscan.models.Qr;
+import com.owner.qrscan.models.QrScanView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Las consultas del historial paginan por clave (keyset): en vez de OFFSET, cada página sigue desde el
+ * (scannedAt, id) de la última fila de la anterior, así la página 1000 cuesta lo mismo que la primera.
+ * Devuelven la proyección QrScanView y recorren los índices de {@link Qr}.
+ */
 @Repository
 public interface QrRepository  extends JpaRepository<Qr, Long> {
+
+    String VIEW = "select new com.owner.qrscan.models.QrScanView(q.id, q.scannedAt, q.source, q.found, q.text, q.format, "
+            + "q.tier, q.clientId, q.room, q.imageHash, q.decodeMillis, q.totalMillis, q.cached) from Qr q ";
+    String AFTER_CURSOR = " and q.scannedAt >= :from"
+            + " and (q.scannedAt < :cursorTime or (q.scannedAt = :cursorTime and q.id < :cursorId))"
+            + " order by q.scannedAt desc, q.id desc";
+
+    @Query(VIEW + "where q.clientId = :clientId" + AFTER_CURSOR)
+    List<QrScanView> findByClient(@Param("clientId") String clientId, @Param("from") Instant from,
+                                  @Param("cursorTime") Instant cursorTime, @Param("cursorId") long cursorId, Limit limit);
+
+    @Query(VIEW + "where q.textHash = :textHash and q.text = :text" + AFTER_CURSOR)
+    List<QrScanView> findByText(@Param("textHash") long textHash, @Param("text") String text, @Param("from") Instant from,
+                                @Param("cursorTime") Instant cursorTime, @Param("cursorId") long cursorId, Limit limit);
 }
@@ -1,13 +1,25 @@
 package com.owner.qrscan.services;
 
+import com.owner.qrscan.decoder.ScanFrame;
+import com.owner.qrscan.decoder.ScanOptions;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface PhotoService {
-     Optional<Map<String, String>> processPhotoForUser(MultipartFile file,String id) throws IOException;
-     Optional<Map<String, String>>  processPhoto(MultipartFile file) throws IOException;
+     Optional<Map<String, String>> processPhotoForUser(MultipartFile file,String id, String room, ScanOptions options) throws IOException;
+     Optional<Map<String, String>> processRawImage(InputStream body, long contentLength, String id, String room, ScanOptions options) throws IOException;
+     Optional<Map<String, String>>  processPhoto(MultipartFile file, ScanOptions options) throws IOException;
+     Optional<Map<String, String>> processImage(byte[] image, ScanOptions options) throws IOException;
+     Map<String, String> processImageInline(byte[] image, String clientId, String room, ScanOptions options) throws IOException;
+     Optional<Map<String, Object>> processImageMulti(byte[] image, String id, String room, ScanOptions options) throws IOException;
+     CompletableFuture<Map<String, String>> processImageAsync(byte[] image);
+     Map<String, String> processFrame(ScanFrame frame, String clientId) throws IOException;
+     Map<String, Object> getCacheStats();
+     Map<String, Object> getAdmissionStats();
 
 }
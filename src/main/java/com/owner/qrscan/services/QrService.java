@@ -1,13 +1,37 @@
 package com.owner.qrscan.services;
 
+import com.owner.qrscan.generator.BulkGenerator;
+import com.owner.qrscan.generator.BulkSpec;
+import com.owner.qrscan.generator.CodeSpec;
+import com.owner.qrscan.generator.RenderedCode;
 import com.owner.qrscan.models.Qr;
+import com.owner.qrscan.models.QrMinuteCount;
+import com.owner.qrscan.models.QrScanPage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
 public interface QrService {
-    void createAddress();
+    // Encola la lectura en el historial; no bloquea ni espera a la base
+    boolean record(Qr scan);
+
+    Map<String, Object> getHistoryStats();
+
+    // Lecturas de un cliente o de un código (uno de los dos), de la más nueva a la más vieja
+    QrScanPage findScans(String clientId, String text, Instant from, Instant to, String cursor, int limit);
+
+    // Lecturas por minuto y formato en [from, to); format opcional
+    List<QrMinuteCount> getMinuteCounts(Instant from, Instant to, String format);
 
-    Qr getAddress();
+    // Código dibujado según spec, del caché si ya se generó; IllegalArgumentException si no se puede codificar
+    RenderedCode generate(CodeSpec spec);
 
-    Qr updateAddress();
+    Map<String, Object> getGenerationStats();
 
-    void deleteAddress();
+    // Un código por línea del CSV, escritos en out a medida que se generan (ZIP de PNGs u hojas PDF)
+    BulkGenerator.Result generateBulk(BulkSpec spec, Reader csv, OutputStream out) throws IOException;
 }
@@ -0,0 +1,12 @@
+package com.owner.qrscan.services;
+
+import com.owner.qrscan.decoder.ScanOptions;
+import com.owner.qrscan.models.ScanJob;
+
+import java.util.Optional;
+
+public interface ScanJobService {
+     ScanJob submit(byte[] image, String socketId, String room, ScanOptions options, ScanJob.Priority priority);
+     Optional<ScanJob> getJob(String jobId);
+
+}
@@ -1,55 +1,112 @@
 package com.owner.qrscan.services.implementation;
 
-import com.google.zxing.*;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
-import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.BarcodeFormat;
+import com.owner.qrscan.decoder.AdmissionController;
+import com.owner.qrscan.decoder.AdmissionRejectedException;
+import com.owner.qrscan.decoder.ContentHash;
+import com.owner.qrscan.decoder.DecodeResult;
+import com.owner.qrscan.decoder.DecodeTier;
+import com.owner.qrscan.decoder.DecoderEngine;
+import com.owner.qrscan.decoder.DetectedCode;
+import com.owner.qrscan.decoder.ImageDimensions;
+import com.owner.qrscan.decoder.LuminanceBufferPool;
+import com.owner.qrscan.decoder.LuminancePlane;
+import com.owner.qrscan.decoder.LuminanceReader;
+import com.owner.qrscan.decoder.ScanFrame;
+import com.owner.qrscan.decoder.ScanOptions;
+import com.owner.qrscan.decoder.ScanResultCache;
+import com.owner.qrscan.metrics.ScanMetrics;
+import com.owner.qrscan.models.Qr;
+import com.owner.qrscan.services.QrService;
 import com.owner.qrscan.services.PhotoService;
 import com.owner.qrscan.socket.SocketConnectionHandler;
+import com.owner.qrscan.web.RawImageReader;
+import com.owner.qrscan.web.UploadBufferPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class PhotoServiceImpl implements PhotoService {
     private static final Logger logger = LoggerFactory.getLogger(PhotoServiceImpl.class);
     @Autowired
     private SocketConnectionHandler socketHandler;
+    @Autowired
+    private LuminanceBufferPool bufferPool;
+    @Autowired
+    private LuminanceReader luminanceReader;
+    @Autowired
+    private ScanResultCache resultCache;
+    @Autowired
+    private AdmissionController admission;
+    @Autowired
+    private ScanMetrics metrics;
+    @Autowired
+    private UploadBufferPool uploadPool;
+    // Tope del cuerpo de una subida image/* cruda
+    @Value("${qrscan.upload.max-bytes:10485760}")
+    private long uploadMaxBytes;
+    // Historial de lecturas, guardado en segundo plano
+    @Autowired
+    private QrService qrService;
+
+    // Cadena de niveles y multi-detección sobre el plano ya leído
+    @Autowired
+    private DecoderEngine engine;
+    // Cadena y plazo para los cuadros de cámara que llegan por el socket
+    @Value("${qrscan.socket.frames.tiers:REGIONS,QR_FAST,ALL_FORMATS}")
+    private List<DecodeTier> frameTiers;
+    @Value("${qrscan.socket.frames.deadline-ms:250}")
+    private long frameDeadlineMs;
+    @Autowired
+    @Qualifier("batchExecutor")
+    private ExecutorService batchExecutor;
+    @Autowired
+    @Qualifier("scanExecutor")
+    private ExecutorService scanExecutor;
 
     @Override
-    public Optional<Map<String, String>> processPhotoForUser(MultipartFile file, String id) throws IOException {
+    public Optional<Map<String, String>> processPhotoForUser(MultipartFile file, String id, String room, ScanOptions options) throws IOException {
         try {
-            BufferedImage imagen = ImageIO.read(file.getInputStream());
+            // Intentar detectar código con diferentes configuraciones (o devolverlo del caché)
+            byte[] image = metrics.readMultipart(file);
+            Map<String, String> response = scanImage(image, image.length, options, id, room, Qr.Source.PHOTO);
 
-            if (imagen == null) {
-                throw new IOException("No se pudo leer la imagen");
-            }
-            // Intentar detectar código con diferentes configuraciones
-            String result = detectCode(imagen);
-
-            Map<String, String> response = new HashMap<>();
-            if (result != null) {
-                response.put("status", "success");
-                response.put("data", result);
-                if (id != null) {
-                    socketHandler.sendMessageToClient(id, result);
-                }
-            } else {
-                response.put("status", "not_found");
-                response.put("message", "No se detectó ningún código QR ni de barras en la imagen.");
+            if ("success".equals(response.get("status"))) {
+                notifyResult(id, room, response.get("data"));
             }
-            logger.info("🔗 processPhotoForUser  Status: {}, Data: {}", response.get("status"), response.get("data"));
+            logger.debug("🔗 processPhotoForUser  Status: {}, Data: {}", response.get("status"), response.get("data"));
             return Optional.ofNullable(response);
 
+        } catch (RejectedExecutionException e) {
+            logger.warn("🚦 processPhotoForUser rechazada: la cola de decodificación está llena");
+            throw e;
+        } catch (AdmissionRejectedException e) {
+            logger.warn("🚦 processPhotoForUser no admitida ({}): {}", e.getReason(), e.getMessage());
+            throw e;
         } catch (IOException e) {
             logger.error("⚠️ Excepcion del processPhotoForUser", e);
             throw e;
@@ -62,26 +119,10 @@ public class PhotoServiceImpl implements PhotoService {
     }
 
     @Override
-    public Optional<Map<String, String>> processPhoto(MultipartFile file) throws IOException {
+    public Optional<Map<String, String>> processPhoto(MultipartFile file, ScanOptions options) throws IOException {
         try {
-            BufferedImage imagen = ImageIO.read(file.getInputStream());
-
-            if (imagen == null) {
-                throw new IOException("No se pudo leer la imagen");
-            }
-
-            // Intentar detectar código con diferentes configuraciones
-            String result = detectCode(imagen);
-
-            Map<String, String> response = new HashMap<>();
-            if (result != null) {
-                response.put("status", "success");
-                response.put("data", result);
-            } else {
-                response.put("status", "not_found");
-                response.put("message", "No se detectó ningún código QR ni de barras en la imagen.");
-            }
-            return Optional.ofNullable(response);
+            // Intentar detectar código con diferentes configuraciones (o devolverlo del caché)
+            return processImage(metrics.readMultipart(file), options);
 
         } catch (IOException e) {
             throw e;
@@ -92,96 +133,297 @@ public class PhotoServiceImpl implements PhotoService {
         }
     }
 
+    /**
+     * Busca primero por hash del contenido: si la misma imagen ya se procesó no se vuelve a leer ni decodificar.
+     * Si no está, la lectura y la decodificación corren en el pool de escaneo; con la cola llena
+     * lanza RejectedExecutionException.
+     */
+    @Override
+    public Optional<Map<String, String>> processImage(byte[] image, ScanOptions options) throws IOException {
+        return Optional.of(scanImage(image, image.length, options, null, null, Qr.Source.PHOTO));
+    }
+
+    /**
+     * Igual que {@link #processImage} pero decodifica en el hilo actual, para quien ya corre en un pool
+     * propio acotado (trabajos asíncronos); clientId y room solo quedan en el historial
+     */
+    @Override
+    public Map<String, String> processImageInline(byte[] image, String clientId, String room, ScanOptions options) throws IOException {
+        return scanImage(image, image.length, options, clientId, room, Qr.Source.JOB);
+    }
 
-    private String detectCode(BufferedImage imagen) {
+    /**
+     * Cuerpo image/* crudo: se lee del stream a un buffer del pool, cortando apenas la cabecera muestra que no
+     * es una imagen o que supera el presupuesto de píxeles, y se escanea como una foto más. El buffer vuelve
+     * al pool al terminar; offload espera a que termine la decodificación, salvo que se interrumpa el hilo,
+     * y en ese caso el buffer se descarta porque la tarea puede seguir leyéndolo.
+     */
+    @Override
+    public Optional<Map<String, String>> processRawImage(InputStream body, long contentLength, String id, String room,
+                                                         ScanOptions options) throws IOException {
+        long readStart = System.nanoTime();
+        RawImageReader.RawImage raw = RawImageReader.read(body, contentLength, uploadMaxBytes, uploadPool,
+                header -> admission.checkSize(header.pixels()));
+        metrics.rawRead(readStart);
         try {
-            // Configurar hints para mejorar la detección
-            Map<DecodeHintType, Object> hints = new HashMap<>();
-            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-            hints.put(DecodeHintType.POSSIBLE_FORMATS, java.util.Arrays.asList(
-                    BarcodeFormat.QR_CODE,
-                    BarcodeFormat.CODE_128,
-                    BarcodeFormat.CODE_39,
-                    BarcodeFormat.EAN_13,
-                    BarcodeFormat.EAN_8,
-                    BarcodeFormat.UPC_A,
-                    BarcodeFormat.UPC_E,
-                    BarcodeFormat.DATA_MATRIX,
-                    BarcodeFormat.PDF_417
-            ));
-
-            // Crear fuente de luminancia
-            LuminanceSource source = new BufferedImageLuminanceSource(imagen);
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-
-            // Intentar decodificar con MultiFormatReader
-            MultiFormatReader reader = new MultiFormatReader();
-            reader.setHints(hints);
+            Map<String, String> response = scanImage(raw.data(), raw.length(), options, id, room, Qr.Source.PHOTO);
+            if ("success".equals(response.get("status"))) {
+                notifyResult(id, room, response.get("data"));
+            }
+            logger.debug("🔗 processRawImage {} de {} bytes  Status: {}", raw.header().format(), raw.length(), response.get("status"));
+            return Optional.of(response);
+        } finally {
+            if (!Thread.currentThread().isInterrupted()) {
+                uploadPool.release(raw.data());
+            }
+        }
+    }
 
-            try {
-                Result result = reader.decode(bitmap);
-                return result.getText();
-            } catch (NotFoundException e) {
-                // Si no encuentra con el método normal, intentar con rotación
-                return tryRotating(imagen, hints);
+    /**
+     * Caché, admisión y decodificación de los primeros {@code length} bytes de {@code image}, y la lectura al
+     * historial. Las fotos interactivas decodifican en el pool de escaneo; lotes y trabajos en el hilo actual,
+     * por el carril de lotes.
+     */
+    private Map<String, String> scanImage(byte[] image, int length, ScanOptions options, String clientId, String room,
+                                          Qr.Source source) throws IOException {
+        long start = System.nanoTime();
+        boolean interactive = source == Qr.Source.PHOTO;
+        ContentHash hash = ContentHash.of(image, 0, length);
+        // Lo completa el loader solo si no estaba en caché (corre en este mismo hilo)
+        long[] decodeNanos = {-1};
+        Map<String, String> response = resultCache.get(hash, options.cacheVariant(), () -> {
+            try (AdmissionController.Permit permit = admit(image, length,
+                    interactive ? AdmissionController.Lane.INTERACTIVE : AdmissionController.Lane.BATCH)) {
+                long decodeStart = System.nanoTime();
+                try {
+                    return interactive ? offload(() -> decodeImage(image, length, options)) : decodeImage(image, length, options);
+                } finally {
+                    decodeNanos[0] = System.nanoTime() - decodeStart;
+                }
             }
+        });
+        Qr scan = historyEntry(source, clientId, room, hash, length, start);
+        scan.setFound("success".equals(response.get("status")));
+        if (scan.isFound()) {
+            scan.setText(response.get("data"));
+            scan.setFormat(BarcodeFormat.valueOf(response.get("format")));
+            scan.setTier(DecodeTier.valueOf(response.get("tier")));
+        }
+        scan.setCached(decodeNanos[0] < 0);
+        scan.setDecodeMillis(decodeNanos[0] < 0 ? null : TimeUnit.NANOSECONDS.toMillis(decodeNanos[0]));
+        qrService.record(scan);
+        return response;
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error en detectarCodigo: " + e.getMessage());
-            return null;
+    private static Qr historyEntry(Qr.Source source, String clientId, String room, ContentHash hash, int bytes,
+                                   long startNanos) {
+        Qr scan = new Qr(source, Instant.now());
+        scan.setClientId(clientId);
+        scan.setRoom(room);
+        if (hash != null) {
+            scan.setImageHash(hash.toHex());
         }
+        scan.setImageBytes(bytes);
+        scan.setTotalMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return scan;
     }
 
-    private String tryRotating(BufferedImage image, Map<DecodeHintType, Object> hints) {
-        try {
-            // Probar rotando la imagen 90, 180 y 270 grados
-            for (int angle : new int[]{90, 180, 270}) {
-                BufferedImage imagenRotada = turnImage(image, angle);
+    /**
+     * Lee la imagen y la pasa por la cadena de niveles; si se leyó submuestreada, la ROI se pasa a
+     * las coordenadas del plano
+     */
+    private Map<String, String> decodeImage(byte[] image, int length, ScanOptions options) throws IOException {
+        LuminanceReader.Decoded decoded = readImage(image, length);
+        return buildResponse(engine.decode(decoded.plane(), options.subsampled(decoded.subsampling())));
+    }
 
-                LuminanceSource source = new BufferedImageLuminanceSource(imagenRotada);
-                BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+    private LuminanceReader.Decoded readImage(byte[] image, int length) throws IOException {
+        long start = System.nanoTime();
+        LuminanceReader.Decoded decoded = luminanceReader.read(image, length);
+        metrics.imageRead(start);
+        return decoded;
+    }
 
-                MultiFormatReader reader = new MultiFormatReader();
-                reader.setHints(hints);
+    /**
+     * Modo multi-detección: todos los códigos de la imagen con formato, esquinas y orientación.
+     * Si hay id o sala, cada código se envía por el socket del cliente y/o a los miembros de la sala.
+     */
+    @Override
+    public Optional<Map<String, Object>> processImageMulti(byte[] image, String id, String room, ScanOptions options) throws IOException {
+        long start = System.nanoTime();
+        List<DetectedCode> codes;
+        long decodeNanos;
+        try (AdmissionController.Permit permit = admit(image, image.length, AdmissionController.Lane.INTERACTIVE)) {
+            long decodeStart = System.nanoTime();
+            codes = offload(() -> detectAll(image, options));
+            decodeNanos = System.nanoTime() - decodeStart;
+        }
+        recordMulti(codes, id, room, image, decodeNanos, start);
 
-                try {
-                    Result resultado = reader.decode(bitmap);
-                    return resultado.getText();
-                } catch (NotFoundException e) {
-                    // Continuar con la siguiente rotación
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error en intentarConRotacion: " + e.getMessage());
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (codes.isEmpty()) {
+            response.put("status", "not_found");
+            response.put("message", "No se detectó ningún código QR ni de barras en la imagen.");
+        } else {
+            response.put("status", "success");
+            response.put("count", codes.size());
+            response.put("codes", codes);
+            codes.forEach(code -> notifyResult(id, room, code.text()));
         }
+        return Optional.of(response);
+    }
 
-        return null;
+    /**
+     * Una fila del historial por código encontrado (o una sola sin código), todas con el mismo hash y tiempos
+     */
+    private void recordMulti(List<DetectedCode> codes, String id, String room, byte[] image, long decodeNanos, long start) {
+        ContentHash hash = ContentHash.of(image);
+        Long decodeMillis = TimeUnit.NANOSECONDS.toMillis(decodeNanos);
+        if (codes.isEmpty()) {
+            Qr scan = historyEntry(Qr.Source.MULTI, id, room, hash, image.length, start);
+            scan.setDecodeMillis(decodeMillis);
+            qrService.record(scan);
+            return;
+        }
+        for (DetectedCode code : codes) {
+            Qr scan = historyEntry(Qr.Source.MULTI, id, room, hash, image.length, start);
+            scan.setFound(true);
+            scan.setText(code.text());
+            scan.setFormat(code.format());
+            scan.setDecodeMillis(decodeMillis);
+            qrService.record(scan);
+        }
     }
 
-    private BufferedImage turnImage(BufferedImage image, int angle) {
-        int ancho = image.getWidth();
-        int alto = image.getHeight();
+    /**
+     * Envía el código leído al socket del cliente (id) y a la sala, si vienen
+     */
+    private void notifyResult(String id, String room, String data) {
+        if (id != null) {
+            socketHandler.sendMessageToClient(id, data);
+        }
+        if (room != null) {
+            socketHandler.publishToRoom(room, data);
+        }
+    }
 
-        BufferedImage imagenRotada;
-        if (angle == 90 || angle == 270) {
-            imagenRotada = new BufferedImage(alto, ancho, image.getType());
-        } else {
-            imagenRotada = new BufferedImage(ancho, alto, image.getType());
+    private List<DetectedCode> detectAll(byte[] image, ScanOptions options) throws IOException {
+        LuminanceReader.Decoded decoded = readImage(image, image.length);
+        LuminancePlane plane = decoded.plane();
+        int factor = decoded.subsampling();
+        long start = System.nanoTime();
+        // Las esquinas vuelven en coordenadas de la imagen original
+        List<DetectedCode> codes = engine.detectAll(plane, options.subsampled(factor)).stream()
+                .map(code -> code.scaled(factor))
+                .toList();
+        codes.forEach(code -> metrics.result(code.format()));
+        if (codes.isEmpty()) {
+            metrics.result(null);
         }
+        logger.debug("🧩 processImageMulti {}x{}: {} códigos en {} ms", plane.width(), plane.height(),
+                codes.size(), (System.nanoTime() - start) / 1_000_000);
+        return codes;
+    }
 
-        java.awt.Graphics2D g2d = imagenRotada.createGraphics();
+    /**
+     * Corre el trabajo de CPU en el pool de escaneo y espera el resultado; el hilo de la petición
+     * (virtual) no ocupa un núcleo mientras espera
+     */
+    private <T> T offload(Callable<T> task) throws IOException {
+        Future<T> future = scanExecutor.submit(task);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Decodificación interrumpida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
-        if (angle == 90 || angle == 270) {
-            g2d.translate(alto / 2, ancho / 2);
-        } else {
-            g2d.translate(ancho / 2, alto / 2);
+    /**
+     * Cuadro de cámara del socket: se decodifica en el hilo actual, sin caché (cada cuadro es distinto) y con
+     * una cadena corta y secuencial, para seguir el ritmo de la cámara; el cuadro siguiente es el reintento
+     */
+    @Override
+    public Map<String, String> processFrame(ScanFrame frame, String clientId) throws IOException {
+        DecodeResult result;
+        long decodeStart;
+        try (AdmissionController.Permit permit = admission.acquire(AdmissionController.Lane.INTERACTIVE, frame.pixels())) {
+            decodeStart = System.nanoTime();
+            LuminancePlane plane = frame.toPlane(bufferPool, luminanceReader);
+            metrics.luminance(decodeStart);
+            result = engine.decode(plane, ScanOptions.DEFAULT, frameTiers, null, frameDeadlineMs);
         }
+        // Al historial solo los cuadros con código: un cuadro sin código es uno más de la cámara
+        if (result != null) {
+            ByteBuffer payload = frame.payload();
+            ContentHash hash = payload.hasArray()
+                    ? ContentHash.of(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining())
+                    : null;
+            Qr scan = historyEntry(Qr.Source.FRAME, clientId, null, hash, payload.remaining(), frame.receivedNanos());
+            scan.setFound(true);
+            scan.setText(result.text());
+            scan.setFormat(result.format());
+            scan.setTier(result.tier());
+            scan.setDecodeMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - decodeStart));
+            qrService.record(scan);
+        }
+        return buildResponse(result);
+    }
 
-        g2d.rotate(Math.toRadians(angle));
-        g2d.translate(-ancho / 2, -alto / 2);
-        g2d.drawImage(image, 0, 0, null);
-        g2d.dispose();
+    /**
+     * Permiso de admisión según los píxeles de la imagen, leídos de la cabecera sin decodificarla.
+     * Sin lugar lanza AdmissionRejectedException.
+     */
+    private AdmissionController.Permit admit(byte[] image, int length, AdmissionController.Lane lane) throws IOException {
+        return admission.acquire(lane, ImageDimensions.read(image, length).pixels());
+    }
 
-        return imagenRotada;
+    @Override
+    public Map<String, Object> getAdmissionStats() {
+        return admission.describe();
+    }
+
+    @Override
+    public Map<String, Object> getCacheStats() {
+        return resultCache.describe();
+    }
+
+    /**
+     * Decodifica la imagen en el pool de lotes, que ya frena la lectura del lote cuando se llena, así que
+     * no pasa por el pool de escaneo; los errores de lectura completan el futuro con excepción
+     */
+    @Override
+    public CompletableFuture<Map<String, String>> processImageAsync(byte[] image) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return scanImage(image, image.length, ScanOptions.DEFAULT, null, null, Qr.Source.BATCH);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, batchExecutor);
+    }
+
+    private Map<String, String> buildResponse(DecodeResult result) {
+        metrics.result(result != null ? result.format() : null);
+        Map<String, String> response = new HashMap<>();
+        if (result != null) {
+            response.put("status", "success");
+            response.put("data", result.text());
+            response.put("format", result.format().name());
+            response.put("tier", result.tier().name());
+        } else {
+            response.put("status", "not_found");
+            response.put("message", "No se detectó ningún código QR ni de barras en la imagen.");
+        }
+        return response;
     }
 }
@@ -1,28 +1,155 @@
 package com.owner.qrscan.services.implementation;
 
+import com.owner.qrscan.generator.BulkGenerator;
+import com.owner.qrscan.generator.BulkSpec;
+import com.owner.qrscan.generator.CodeRenderer;
+import com.owner.qrscan.generator.CodeSpec;
+import com.owner.qrscan.generator.RenderedCode;
+import com.owner.qrscan.generator.RenderedCodeCache;
+import com.owner.qrscan.history.ScanHistoryWriter;
+import com.owner.qrscan.metrics.ScanMetrics;
 import com.owner.qrscan.models.Qr;
+import com.owner.qrscan.models.QrMinuteCount;
+import com.owner.qrscan.models.QrScanPage;
+import com.owner.qrscan.models.QrScanView;
+import com.owner.qrscan.respositories.QrMinuteCountRepository;
+import com.owner.qrscan.respositories.QrRepository;
 import com.owner.qrscan.services.QrService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class QrServiceImpl implements QrService {
+    // Sin "to" se pagina desde el final; Instant.MAX no entra en un TIMESTAMP de la base
+    private static final Instant FAR_FUTURE = Instant.parse("9999-12-31T00:00:00Z");
+
+    @Autowired
+    private ScanHistoryWriter historyWriter;
+    @Autowired
+    private QrRepository qrRepository;
+    @Autowired
+    private QrMinuteCountRepository minuteCountRepository;
+    @Autowired
+    private CodeRenderer codeRenderer;
+    @Autowired
+    private RenderedCodeCache renderedCache;
+    @Autowired
+    private BulkGenerator bulkGenerator;
+    @Autowired
+    private ScanMetrics metrics;
+
+    @Value("${qrscan.history.query.max-limit:500}")
+    private int maxLimit;
+    // Rango máximo de los contadores por minuto, para que la respuesta quede acotada
+    @Value("${qrscan.history.query.max-minutes-range:10080}")
+    private long maxMinutesRange;
+
     @Override
-    public void createAddress() {
+    public boolean record(Qr scan) {
+        return historyWriter.record(scan);
+    }
 
+    @Override
+    public Map<String, Object> getHistoryStats() {
+        return historyWriter.describe();
     }
 
+    /**
+     * Página por clave: se pide una fila de más para saber si hay otra página, y el cursor es el
+     * (scannedAt, id) de la última fila devuelta
+     */
     @Override
-    public Qr getAddress() {
-        return null;
+    public QrScanPage findScans(String clientId, String text, Instant from, Instant to, String cursor, int limit) {
+        if ((clientId == null) == (text == null)) {
+            throw new IllegalArgumentException("Indique clientId o text (uno de los dos).");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + maxLimit + ".");
+        }
+        Instant start = from != null ? from : Instant.EPOCH;
+        // Sin cursor, la primera página empieza justo antes de "to" (excluido)
+        Instant cursorTime = to != null ? to : FAR_FUTURE;
+        long cursorId = Long.MIN_VALUE;
+        if (cursor != null) {
+            Cursor decoded = Cursor.decode(cursor);
+            cursorTime = decoded.time();
+            cursorId = decoded.id();
+        }
+        List<QrScanView> rows = clientId != null
+                ? qrRepository.findByClient(clientId, start, cursorTime, cursorId, Limit.of(limit + 1))
+                : qrRepository.findByText(Qr.hashText(text), text, start, cursorTime, cursorId, Limit.of(limit + 1));
+        if (rows.size() <= limit) {
+            return new QrScanPage(rows, null);
+        }
+        QrScanView last = rows.get(limit - 1);
+        return new QrScanPage(rows.subList(0, limit), new Cursor(last.scannedAt(), last.id()).encode());
     }
 
     @Override
-    public Qr updateAddress() {
-        return null;
+    public List<QrMinuteCount> getMinuteCounts(Instant from, Instant to, String format) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Indique from y to, con from anterior a to.");
+        }
+        if (Duration.between(from, to).toMinutes() > maxMinutesRange) {
+            throw new IllegalArgumentException("El rango no puede superar " + maxMinutesRange + " minutos.");
+        }
+        return format != null
+                ? minuteCountRepository.findRange(format, from, to)
+                : minuteCountRepository.findRange(from, to);
     }
 
     @Override
-    public void deleteAddress() {
+    public RenderedCode generate(CodeSpec spec) {
+        return renderedCache.get(spec, this::render);
+    }
+
+    private RenderedCode render(CodeSpec spec) {
+        long start = System.nanoTime();
+        RenderedCode code = codeRenderer.render(spec);
+        metrics.render(spec.output(), start);
+        return code;
+    }
+
+    @Override
+    public Map<String, Object> getGenerationStats() {
+        return renderedCache.describe();
+    }
+
+    @Override
+    public BulkGenerator.Result generateBulk(BulkSpec spec, Reader csv, OutputStream out) throws IOException {
+        return bulkGenerator.generate(spec, csv, out);
+    }
+
+    /**
+     * Cursor opaco para el cliente: segundos, nanos e id de la última fila, en base64 url-safe
+     */
+    private record Cursor(Instant time, long id) {
+
+        String encode() {
+            String raw = time.getEpochSecond() + ":" + time.getNano() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+        }
 
+        static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+                return new Cursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                        Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("El cursor no es válido.");
+            }
+        }
     }
 }
@@ -0,0 +1,187 @@
+package com.owner.qrscan.services.implementation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.owner.qrscan.decoder.AdmissionRejectedException;
+import com.owner.qrscan.decoder.ScanOptions;
+import com.owner.qrscan.models.ScanJob;
+import com.owner.qrscan.services.PhotoService;
+import com.owner.qrscan.services.ScanJobService;
+import com.owner.qrscan.socket.SocketConnectionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ScanJobServiceImpl implements ScanJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ScanJobServiceImpl.class);
+    @Autowired
+    private PhotoService photoService;
+    @Autowired
+    private SocketConnectionHandler socketHandler;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    @Qualifier("jobExecutor")
+    private ExecutorService jobExecutor;
+
+    // Orden de llegada para desempatar dentro de la misma prioridad
+    private final AtomicLong sequence = new AtomicLong();
+    // Trabajos consultables por GET /api/jobs/{jobId}; vencen pasado el TTL desde que se crearon
+    private final Cache<String, ScanJob> jobs;
+    // Tiempo máximo desde la creación reintentando la admisión: la mitad del TTL, así el resultado (aunque sea
+    // el rechazo) queda consultable al menos la otra mitad
+    private final Duration maxAdmissionWait;
+
+    public ScanJobServiceImpl(@Value("${qrscan.jobs.ttl-seconds:600}") long ttlSeconds,
+                              @Value("${qrscan.jobs.max-retained:10000}") long maxRetained) {
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(maxRetained)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.maxAdmissionWait = Duration.ofSeconds(ttlSeconds / 2);
+    }
+
+    /**
+     * Encola la imagen y devuelve el trabajo enseguida. Con la cola llena lanza RejectedExecutionException.
+     */
+    @Override
+    public ScanJob submit(byte[] image, String socketId, String room, ScanOptions options, ScanJob.Priority priority) {
+        ScanJob job = new ScanJob(UUID.randomUUID().toString(), socketId, room, priority);
+        jobs.put(job.getId(), job);
+        try {
+            jobExecutor.execute(new QueuedJob(job, image, options, sequence.incrementAndGet()));
+        } catch (RuntimeException e) {
+            jobs.invalidate(job.getId());
+            throw e;
+        }
+        logger.info("📥 Trabajo {} encolado (prioridad {}) para {}", job.getId(), priority, socketId);
+        return job;
+    }
+
+    @Override
+    public Optional<ScanJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    /**
+     * Un rechazo de admisión por saturación no es un error del trabajo: el hilo espera lo que indica el
+     * rechazo y lo vuelve a intentar. Así los trabajos frenan a su propio ritmo (hay un hilo por núcleo)
+     * en lugar de fallar justo cuando hay más carga. Una imagen que nunca entraría se da por fallida enseguida,
+     * y cualquier otra si la saturación sigue pasada la mitad del TTL: el trabajo no puede seguir en curso cuando
+     * vence del caché ni ocupar el hilo para siempre.
+     */
+    private void run(ScanJob job, byte[] image, ScanOptions options) {
+        job.start();
+        Instant deadline = job.getCreatedAt().plus(maxAdmissionWait);
+        int rejections = 0;
+        while (true) {
+            try {
+                Map<String, String> result = photoService.processImageInline(image, job.getSocketId(), job.getRoom(), options);
+                job.finish(ScanJob.Status.DONE, result);
+                break;
+            } catch (AdmissionRejectedException e) {
+                if (e.getReason() == AdmissionRejectedException.Reason.TOO_LARGE) {
+                    fail(job, e);
+                    break;
+                }
+                if (Instant.now().plusSeconds(e.getRetryAfterSeconds()).isAfter(deadline)) {
+                    logger.warn("⏳ Trabajo {} sin admisión después de {} reintentos ({})", job.getId(), rejections, e.getReason());
+                    fail(job, e);
+                    break;
+                }
+                if (++rejections % 10 == 1) {
+                    logger.info("⏳ Trabajo {} en espera de admisión ({}), reintento {}", job.getId(), e.getReason(), rejections);
+                }
+                try {
+                    TimeUnit.SECONDS.sleep(e.getRetryAfterSeconds());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    fail(job, e);
+                    break;
+                }
+            } catch (Exception e) {
+                fail(job, e);
+                break;
+            }
+        }
+        deliver(job);
+    }
+
+    private void fail(ScanJob job, Exception e) {
+        logger.error("⚠️ Error en el trabajo {}: {}", job.getId(), e.getMessage());
+        Map<String, String> result = new HashMap<>();
+        result.put("status", "error");
+        result.put("message", "Error procesando imagen: " + e.getMessage());
+        job.finish(ScanJob.Status.FAILED, result);
+    }
+
+    /**
+     * Envía el resultado por el socket del cliente y a su sala; si no están conectados queda el GET de respaldo
+     */
+    private void deliver(ScanJob job) {
+        if (job.getSocketId() == null && job.getRoom() == null) {
+            return;
+        }
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "scan_result");
+        message.put("jobId", job.getId());
+        message.putAll(job.getResult());
+        try {
+            String payload = objectMapper.writeValueAsString(message);
+            if (job.getSocketId() != null) {
+                socketHandler.sendMessageToClient(job.getSocketId(), payload);
+            }
+            if (job.getRoom() != null) {
+                socketHandler.publishToRoom(job.getRoom(), payload);
+            }
+        } catch (JsonProcessingException e) {
+            logger.error("⚠️ No se pudo serializar el resultado del trabajo {}", job.getId(), e);
+        }
+    }
+
+    /**
+     * Tarea de la cola de prioridad: primero la prioridad del trabajo, después el orden de llegada
+     */
+    private final class QueuedJob implements Runnable, Comparable<QueuedJob> {
+
+        private final ScanJob job;
+        private final byte[] image;
+        private final ScanOptions options;
+        private final long order;
+
+        QueuedJob(ScanJob job, byte[] image, ScanOptions options, long order) {
+            this.job = job;
+            this.image = image;
+            this.options = options;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            ScanJobServiceImpl.this.run(job, image, options);
+        }
+
+        @Override
+        public int compareTo(QueuedJob other) {
+            int byPriority = job.getPriority().compareTo(other.job.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+        }
+    }
+}
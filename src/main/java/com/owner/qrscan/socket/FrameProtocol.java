@@ -0,0 +1,88 @@
+package com.owner.qrscan.socket;
+
+import com.google.zxing.BarcodeFormat;
+import com.owner.qrscan.decoder.ScanFrame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protocolo binario del socket para escaneo continuo, todo en big-endian.
+ * <pre>
+ * Cuadro (cliente → servidor), cabecera de 12 bytes y luego los datos:
+ *   0     versión (1)
+ *   1     tipo (0x01 = cuadro)
+ *   2     codificación: 0 = GRAY8, 1 = GRAY8 con deflate, 2 = imagen (JPEG, PNG...)
+ *   3     reservado
+ *   4-7   secuencia (uint32), vuelve en el resultado
+ *   8-9   ancho (uint16), 0 para imagen
+ *   10-11 alto (uint16), 0 para imagen
+ *
+ * Resultado (servidor → cliente), cabecera de 10 bytes y luego el texto en UTF-8:
+ *   0     versión (1)
+ *   1     tipo: 0x81 = código encontrado, 0x82 = error
+ *   2     formato (ordinal de BarcodeFormat de ZXing, 0xFF si es un error)
+ *   3     reservado
+ *   4-7   secuencia del cuadro
+ *   8-9   largo del texto (uint16)
+ * </pre>
+ */
+public final class FrameProtocol {
+
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 12;
+    public static final int RESULT_HEADER_SIZE = 10;
+
+    static final byte TYPE_FRAME = 0x01;
+    static final byte TYPE_RESULT = (byte) 0x81;
+    static final byte TYPE_ERROR = (byte) 0x82;
+
+    private static final ScanFrame.Encoding[] ENCODINGS = ScanFrame.Encoding.values();
+    private static final int MAX_TEXT = 0xFFFF;
+
+    private FrameProtocol() {
+    }
+
+    /**
+     * Lee la cabecera del cuadro; los datos quedan como vista sobre el mismo buffer, sin copiar.
+     * Lanza IllegalArgumentException si la cabecera no es válida.
+     */
+    public static ScanFrame parse(ByteBuffer message, long receivedNanos) {
+        ByteBuffer in = message.duplicate();
+        if (in.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Cuadro de " + in.remaining() + " bytes, la cabecera tiene " + HEADER_SIZE);
+        }
+        int version = in.get() & 0xFF;
+        byte type = in.get();
+        int encoding = in.get() & 0xFF;
+        in.get();
+        if (version != VERSION || type != TYPE_FRAME) {
+            throw new IllegalArgumentException("Versión o tipo de cuadro desconocido: " + version + "/" + type);
+        }
+        if (encoding >= ENCODINGS.length) {
+            throw new IllegalArgumentException("Codificación de cuadro desconocida: " + encoding);
+        }
+        long sequence = in.getInt() & 0xFFFFFFFFL;
+        int width = in.getShort() & 0xFFFF;
+        int height = in.getShort() & 0xFFFF;
+        return new ScanFrame(sequence, ENCODINGS[encoding], width, height, in.slice(), receivedNanos);
+    }
+
+    public static ByteBuffer result(long sequence, BarcodeFormat format, String text) {
+        return encode(TYPE_RESULT, format != null ? format.ordinal() : 0xFF, sequence, text);
+    }
+
+    public static ByteBuffer error(long sequence, String message) {
+        return encode(TYPE_ERROR, 0xFF, sequence, message);
+    }
+
+    private static ByteBuffer encode(byte type, int format, long sequence, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_TEXT);
+        ByteBuffer out = ByteBuffer.allocate(RESULT_HEADER_SIZE + length);
+        out.put((byte) VERSION).put(type).put((byte) format).put((byte) 0)
+                .putInt((int) sequence).putShort((short) length)
+                .put(bytes, 0, length);
+        return out.flip();
+    }
+}
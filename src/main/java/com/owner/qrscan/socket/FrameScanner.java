@@ -0,0 +1,105 @@
+package com.owner.qrscan.socket;
+
+import com.owner.qrscan.decoder.ScanFrame;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Escaneo continuo de una sesión: guarda solo el último cuadro recibido y decodifica de a uno por vez.
+ * Si el decodificador se atrasa, los cuadros intermedios se pisan (son viejos) y nunca se acumulan;
+ * los que esperaron más que {@code maxAgeNanos} también se descartan. Cuando un cuadro da un código,
+ * el pendiente y los que lleguen durante {@code holdNanos} se descartan sin decodificar: son de la misma
+ * escena y el cliente ya tiene el resultado.
+ * Cada cuadro es una tarea aparte del executor, así varias sesiones se turnan en el mismo pool.
+ */
+final class FrameScanner {
+
+    interface Decoder {
+        // Devuelve true si el cuadro dio un código
+        boolean decode(ScanFrame frame);
+    }
+
+    private final AtomicReference<ScanFrame> latest = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final Decoder decoder;
+    private final Executor executor;
+    private final long maxAgeNanos;
+    private final long holdNanos;
+    // Hasta cuándo se ignoran los cuadros después de un código encontrado
+    private volatile long holdUntilNanos;
+    private volatile boolean holding;
+
+    FrameScanner(Decoder decoder, Executor executor, long maxAgeNanos, long holdNanos) {
+        this.decoder = decoder;
+        this.executor = executor;
+        this.maxAgeNanos = maxAgeNanos;
+        this.holdNanos = holdNanos;
+    }
+
+    void offer(ScanFrame frame) {
+        received.incrementAndGet();
+        if (holding) {
+            if (frame.receivedNanos() - holdUntilNanos < 0) {
+                skipped.incrementAndGet();
+                return;
+            }
+            holding = false;
+        }
+        if (latest.getAndSet(frame) != null) {
+            skipped.incrementAndGet();
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::decodeNext);
+        } catch (RejectedExecutionException e) {
+            // Pool lleno: el cuadro queda guardado y el próximo que llegue vuelve a intentar
+            scheduled.set(false);
+        }
+    }
+
+    private void decodeNext() {
+        try {
+            ScanFrame frame = latest.getAndSet(null);
+            if (frame == null) {
+                return;
+            }
+            if (System.nanoTime() - frame.receivedNanos() > maxAgeNanos) {
+                skipped.incrementAndGet();
+                return;
+            }
+            if (decoder.decode(frame)) {
+                holdUntilNanos = System.nanoTime() + holdNanos;
+                holding = holdNanos > 0;
+                if (latest.getAndSet(null) != null) {
+                    skipped.incrementAndGet();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // Llegó otro cuadro mientras se decodificaba
+            if (latest.get() != null) {
+                schedule();
+            }
+        }
+    }
+
+    long received() {
+        return received.get();
+    }
+
+    long skipped() {
+        return skipped.get();
+    }
+}
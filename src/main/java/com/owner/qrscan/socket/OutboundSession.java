@@ -0,0 +1,191 @@
+package com.owner.qrscan.socket;
+
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sesión con cola de salida acotada y un único escritor, al estilo de ConcurrentWebSocketSessionDecorator
+ * pero sin que quien envía llegue nunca a escribir en el socket: {@link #send} solo encola y el escritor
+ * (un hilo virtual por sesión mientras haya mensajes) vacía la cola. Un cliente lento solo se atrasa a sí mismo.
+ * Cuando la cola se llena se aplica la {@link OverflowPolicy} configurada.
+ */
+public final class OutboundSession extends WebSocketSessionDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundSession.class);
+
+    public enum OverflowPolicy {
+        // Se descarta el mensaje más viejo de la cola
+        DROP_OLDEST,
+        // Un mensaje con clave reemplaza al pendiente con la misma clave (solo importa el último estado);
+        // si igual se llena, se descarta el más viejo
+        COALESCE,
+        // El cliente no da abasto: se cierra la sesión
+        DISCONNECT
+    }
+
+    private record Pending(WebSocketMessage<?> message, String key) {
+    }
+
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Executor writers;
+    // Tiempo de cada escritura en el socket real; null si no se mide
+    private final Timer sendTimer;
+    private final AtomicLong dropped = new AtomicLong();
+    private boolean writing;
+    private boolean closed;
+
+    public OutboundSession(WebSocketSession delegate, int capacity, OverflowPolicy policy, Executor writers) {
+        this(delegate, capacity, policy, writers, null);
+    }
+
+    public OutboundSession(WebSocketSession delegate, int capacity, OverflowPolicy policy, Executor writers, Timer sendTimer) {
+        super(delegate);
+        this.capacity = capacity;
+        this.policy = policy;
+        this.writers = writers;
+        this.sendTimer = sendTimer;
+    }
+
+    /**
+     * Encola sin bloquear. Devuelve false si la sesión ya estaba cerrada o se cerró por desborde.
+     */
+    public boolean send(WebSocketMessage<?> message, String coalesceKey) {
+        boolean startWriter;
+        boolean overflowed = false;
+        synchronized (queue) {
+            if (closed) {
+                return false;
+            }
+            if (policy == OverflowPolicy.COALESCE && coalesceKey != null && replacePending(message, coalesceKey)) {
+                return true;
+            }
+            if (queue.size() >= capacity) {
+                if (policy == OverflowPolicy.DISCONNECT) {
+                    overflowed = true;
+                    closed = true;
+                    queue.clear();
+                } else {
+                    queue.pollFirst();
+                    dropped.incrementAndGet();
+                }
+            }
+            if (!overflowed) {
+                queue.addLast(new Pending(message, coalesceKey));
+            }
+            startWriter = !overflowed && !writing;
+            if (startWriter) {
+                writing = true;
+            }
+        }
+        if (overflowed) {
+            logger.warn("🐢 Cola de salida llena para la sesión {}: se desconecta", getId());
+            closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+            return false;
+        }
+        if (startWriter) {
+            try {
+                writers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // La aplicación se está cerrando
+                synchronized (queue) {
+                    writing = false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Igual que {@link #send} sin clave; lanza IOException si la sesión ya no acepta mensajes
+     */
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (!send(message, null)) {
+            throw new IOException("La sesión " + getId() + " está cerrada");
+        }
+    }
+
+    private boolean replacePending(WebSocketMessage<?> message, String key) {
+        for (Iterator<Pending> it = queue.iterator(); it.hasNext(); ) {
+            if (key.equals(it.next().key())) {
+                it.remove();
+                queue.addLast(new Pending(message, key));
+                dropped.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Escritor único: envía hasta vaciar la cola y termina; el próximo send lanza otro
+     */
+    private void drain() {
+        while (true) {
+            Pending next;
+            synchronized (queue) {
+                next = queue.pollFirst();
+                if (next == null) {
+                    writing = false;
+                    return;
+                }
+            }
+            long start = System.nanoTime();
+            try {
+                getDelegate().sendMessage(next.message());
+                if (sendTimer != null) {
+                    sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Error enviando mensaje a sesión {}: {}", getId(), e.getMessage());
+                synchronized (queue) {
+                    closed = true;
+                    writing = false;
+                    queue.clear();
+                }
+                closeQuietly(CloseStatus.SERVER_ERROR);
+                return;
+            }
+        }
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        try {
+            getDelegate().close(status);
+        } catch (IOException e) {
+            logger.debug("No se pudo cerrar la sesión {}: {}", getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Mensajes esperando en la cola
+     */
+    public int pending() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Mensajes descartados o reemplazados por desborde o por coalescencia
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+}
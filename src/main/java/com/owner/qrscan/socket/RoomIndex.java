@@ -0,0 +1,104 @@
+package com.owner.qrscan.socket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Salas (por ejemplo una por tienda) con sus sesiones, para publicar a los miembros de una sala sin
+ * recorrer a todos los clientes. Se indexa en los dos sentidos: sala → sesiones para publicar, y
+ * sesión → salas para sacarla de todas al desconectarse. Una sala vacía se borra del índice.
+ */
+public class RoomIndex<S extends WebSocketSession> {
+
+    // Nombres que vienen del cliente: se acotan para no llenar el índice con cualquier cosa
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_.:-]{1,64}");
+
+    private final ConcurrentMap<String, Map<String, S>> members = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> roomsBySession = new ConcurrentHashMap<>();
+
+    public static boolean isValidName(String room) {
+        return room != null && VALID_NAME.matcher(room).matches();
+    }
+
+    /**
+     * Agrega la sesión a la sala; devuelve false si ya era miembro
+     */
+    public boolean join(String room, S session) {
+        String sessionId = session.getId();
+        roomsBySession.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(room);
+        boolean[] added = new boolean[1];
+        // compute bloquea la entrada de la sala: no se cruza con el borrado de una sala que queda vacía
+        members.compute(room, (name, sessions) -> {
+            Map<String, S> target = sessions != null ? sessions : new ConcurrentHashMap<>();
+            added[0] = target.put(sessionId, session) == null;
+            return target;
+        });
+        return added[0];
+    }
+
+    /**
+     * Saca la sesión de la sala; devuelve false si no era miembro
+     */
+    public boolean leave(String room, String sessionId) {
+        Set<String> rooms = roomsBySession.get(sessionId);
+        if (rooms != null) {
+            rooms.remove(room);
+        }
+        return removeMember(room, sessionId);
+    }
+
+    /**
+     * Saca la sesión de todas sus salas, al desconectarse
+     */
+    public void leaveAll(String sessionId) {
+        Set<String> rooms = roomsBySession.remove(sessionId);
+        if (rooms != null) {
+            rooms.forEach(room -> removeMember(room, sessionId));
+        }
+    }
+
+    private boolean removeMember(String room, String sessionId) {
+        boolean[] removed = new boolean[1];
+        members.computeIfPresent(room, (name, sessions) -> {
+            removed[0] = sessions.remove(sessionId) != null;
+            return sessions.isEmpty() ? null : sessions;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Vista de los miembros de la sala, sin copiar (vacía si la sala no existe)
+     */
+    public Iterable<S> members(String room) {
+        Map<String, S> sessions = members.get(room);
+        return sessions != null ? sessions.values() : Collections.emptyList();
+    }
+
+    /**
+     * Salas de la sesión, sin copiar (vacío si no está en ninguna)
+     */
+    public Set<String> roomsOf(String sessionId) {
+        Set<String> rooms = roomsBySession.get(sessionId);
+        return rooms != null ? rooms : Collections.emptySet();
+    }
+
+    public int size(String room) {
+        Map<String, S> sessions = members.get(room);
+        return sessions != null ? sessions.size() : 0;
+    }
+
+    public int roomCount() {
+        return members.size();
+    }
+
+    public void clear() {
+        members.clear();
+        roomsBySession.clear();
+    }
+}
@@ -0,0 +1,108 @@
+package com.owner.qrscan.socket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sesiones WebSocket conectadas, con dos índices: por sessionId (cada sesión una sola vez) y por
+ * socketId (el id que elige el cliente). Alta, baja, búsqueda y conteo son O(1), sin recorrer el mapa.
+ * Si un cliente se reconecta con el mismo socketId, el socketId pasa a apuntar a la sesión nueva;
+ * cuando se cierre la vieja no se lleva el vínculo de la nueva.
+ */
+public class SessionRegistry<S extends WebSocketSession> {
+
+    private final ConcurrentMap<String, Registration<S>> bySessionId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, S> bySocketId = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    private record Registration<S>(S session, String socketId) {
+    }
+
+    /**
+     * Registra la sesión y, si trae socketId, lo vincula a ella.
+     * Devuelve la sesión que tenía antes ese socketId (reconexión), o null.
+     */
+    public S register(S session, String socketId) {
+        if (bySessionId.putIfAbsent(session.getId(), new Registration<>(session, socketId)) == null) {
+            count.incrementAndGet();
+        }
+        if (socketId == null) {
+            return null;
+        }
+        S previous = bySocketId.put(socketId, session);
+        return previous == session ? null : previous;
+    }
+
+    /**
+     * Da de baja la sesión; devuelve false si ya no estaba registrada
+     */
+    public boolean unregister(String sessionId) {
+        Registration<S> registration = bySessionId.remove(sessionId);
+        if (registration == null) {
+            return false;
+        }
+        count.decrementAndGet();
+        if (registration.socketId() != null) {
+            // Solo si el socketId sigue apuntando a esta sesión y no a una reconexión posterior
+            bySocketId.remove(registration.socketId(), registration.session());
+        }
+        return true;
+    }
+
+    /**
+     * Busca por socketId y, si no, por sessionId
+     */
+    public S find(String id) {
+        S session = bySocketId.get(id);
+        if (session != null) {
+            return session;
+        }
+        Registration<S> registration = bySessionId.get(id);
+        return registration != null ? registration.session() : null;
+    }
+
+    /**
+     * socketId con el que se registró la sesión, o null
+     */
+    public String socketIdOf(String sessionId) {
+        Registration<S> registration = bySessionId.get(sessionId);
+        return registration != null ? registration.socketId() : null;
+    }
+
+    /**
+     * Cantidad de sesiones registradas (cada una cuenta una vez, tenga o no socketId)
+     */
+    public int size() {
+        return count.get();
+    }
+
+    /**
+     * Vista de las sesiones registradas, cada una una sola vez, para recorrer en un broadcast sin copiar
+     * el registro. Como el mapa es concurrente, refleja altas y bajas que ocurran mientras se recorre.
+     */
+    public Iterable<S> sessions() {
+        return () -> new Iterator<>() {
+            private final Iterator<Registration<S>> registrations = bySessionId.values().iterator();
+
+            @Override
+            public boolean hasNext() {
+                return registrations.hasNext();
+            }
+
+            @Override
+            public S next() {
+                return registrations.next().session();
+            }
+        };
+    }
+
+    public void clear() {
+        bySessionId.clear();
+        bySocketId.clear();
+        count.set(0);
+    }
+}
@@ -1,67 +1,173 @@
 package com.owner.qrscan.socket;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.owner.qrscan.cluster.ClusterBus;
+import com.owner.qrscan.cluster.ClusterMessage;
+import com.owner.qrscan.cluster.SocketDirectory;
+import com.google.zxing.BarcodeFormat;
+import com.owner.qrscan.decoder.AdmissionRejectedException;
+import com.owner.qrscan.decoder.ScanFrame;
+import com.owner.qrscan.metrics.ScanMetrics;
+import com.owner.qrscan.services.PhotoService;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
-public class SocketConnectionHandler extends TextWebSocketHandler {
+public class SocketConnectionHandler extends AbstractWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(SocketConnectionHandler.class);
 
-    // Usar ConcurrentHashMap para mejor rendimiento y thread safety
-    private final ConcurrentMap<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-
-    // Executor para manejar operaciones asíncronas de manera controlada
-    private final ExecutorService broadcastExecutor = Executors.newCachedThreadPool(r -> {
+    // Clave de coalescencia de los avisos de conexión/desconexión: solo importa el último total
+    private static final String PRESENCE_KEY = "presence";
+
+    // Sesiones indexadas por sessionId y por socketId, con contador atómico
+    private final SessionRegistry<OutboundSession> sessions = new SessionRegistry<>();
+    // Salas (?room= o mensaje subscribe): lo que se publica en una sala solo recorre a sus miembros
+    private final RoomIndex<OutboundSession> rooms = new RoomIndex<>();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    // Bus entre nodos: lo que no es para un socket de este nodo sale por acá
+    @Autowired
+    private ClusterBus clusterBus;
+    // En qué nodo está cada socketId remoto, según los avisos del bus
+    private final SocketDirectory directory = new SocketDirectory();
+    // Decodificación de los cuadros binarios; @Lazy porque el servicio también usa este handler
+    @Autowired
+    @Lazy
+    private PhotoService photoService;
+    @Autowired
+    @Qualifier("scanExecutor")
+    private ExecutorService scanExecutor;
+    // Escaneo continuo por sesión, creado con el primer cuadro binario
+    private final Map<String, FrameScanner> frameScanners = new ConcurrentHashMap<>();
+    @Autowired
+    private ScanMetrics metrics;
+    // Contadores de las sesiones ya cerradas, para que los totales expuestos no bajen al desconectarse alguien
+    private final LongAdder closedFramesReceived = new LongAdder();
+    private final LongAdder closedFramesSkipped = new LongAdder();
+    private final LongAdder closedOutboundDropped = new LongAdder();
+
+    // Un solo hilo reparte los broadcasts: solo encola en cada sesión, nunca espera a un cliente.
+    // También agenda el aviso de presencia agrupado.
+    private final ScheduledExecutorService broadcastExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "websocket-broadcast");
         t.setDaemon(true);
         return t;
     });
 
+    // Escritores de las colas de salida: un hilo virtual por sesión mientras tenga mensajes pendientes
+    private final ExecutorService writerExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("websocket-writer-", 0).factory());
+
+    // Mensajes pendientes por sesión y qué hacer cuando se llena la cola
+    @Value("${qrscan.socket.outbound.capacity:64}")
+    private int outboundCapacity;
+    @Value("${qrscan.socket.outbound.overflow:DROP_OLDEST}")
+    private OutboundSession.OverflowPolicy overflowPolicy;
+
+    // Ventana en la que se agrupan conexiones y desconexiones en un solo aviso de presencia
+    @Value("${qrscan.socket.presence.interval-ms:250}")
+    private long presenceIntervalMs;
+    // Salas a las que puede unirse una misma sesión
+    @Value("${qrscan.socket.rooms.max-per-session:16}")
+    private int maxRoomsPerSession;
+    // Un cuadro que esperó más que esto para decodificarse ya no sirve: la cámara mandó otros después
+    @Value("${qrscan.socket.frames.max-age-ms:500}")
+    private long frameMaxAgeMs;
+    // Después de encontrar un código se ignoran los cuadros de la sesión durante este tiempo
+    @Value("${qrscan.socket.frames.hold-ms:1000}")
+    private long frameHoldMs;
+    // Tamaño máximo de un cuadro binario (el contenedor por defecto corta en 8 KB)
+    @Value("${qrscan.socket.frames.max-bytes:2097152}")
+    private int frameMaxBytes;
+
+    // Hay un aviso de presencia agendado; las altas y bajas que lleguen mientras tanto van en ese mismo
+    private final AtomicBoolean presencePending = new AtomicBoolean();
+    // Último total avisado, para no repetir el aviso si la ventana terminó con el mismo número (reconexiones)
+    private int lastAnnouncedCount;
+    // Sesiones que se conectaron desde el último aviso: ya recibieron su bienvenida y el aviso no es para ellas
+    private final Set<String> joinedSincePresence = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void joinCluster() {
+        clusterBus.subscribe(this::onClusterMessage);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         super.afterConnectionEstablished(session);
 
         String sessionId = session.getId();
+        session.setBinaryMessageSizeLimit(frameMaxBytes);
 
         // Extraer socketId de los parámetros de query
         Map<String, String> params = getQueryParams(session.getUri().getQuery());
         String socketId = params.get("socketid");
 
-        // Agregar la sesión usando el ID de sesión como clave principal
-        sessions.put(sessionId, session);
+        // Registrar la sesión con su cola de salida; si trae socketId también queda indexada por él
+        OutboundSession outbound = new OutboundSession(session, outboundCapacity, overflowPolicy, writerExecutor,
+                metrics.socketSend());
+        WebSocketSession previous = sessions.register(outbound, socketId);
 
-        // Si hay socketId, también indexar por él (para búsquedas por socketId)
         if (socketId != null) {
-            sessions.put(socketId, session);
+            if (previous != null) {
+                logger.info("🔁 socketId {} reasignado de la sesión {} a {}", socketId, previous.getId(), sessionId);
+            }
             logger.info("✅ Cliente conectado con socketId: {} (sessionId: {})", socketId, sessionId);
+            // Los demás nodos anotan que este socketId está acá
+            clusterBus.publish(new ClusterMessage(ClusterMessage.Type.SOCKET_UP, clusterBus.nodeId(), socketId, null));
         } else {
             logger.info("✅ Cliente conectado sin socketId (sessionId: {})", sessionId);
         }
 
+        // Salas pedidas en la conexión: ?room=store-42 o varias separadas por coma
+        String room = params.get("room");
+        if (room != null) {
+            for (String name : room.split(",")) {
+                joinRoom(outbound, name);
+            }
+        }
+
         logger.info("🔗 Total de clientes conectados: {}", getUniqueSessionCount());
 
         // Enviar mensaje de bienvenida de manera segura
-        sendSafeMessage(session, "¡Conectado exitosamente! ID: " + sessionId);
+        sendSafeMessage(outbound, "¡Conectado exitosamente! ID: " + sessionId, null);
 
-        // Notificar a otros clientes de manera asíncrona para evitar bloqueos
-        CompletableFuture.runAsync(() -> {
-            broadcastMessage("Un nuevo cliente se ha conectado. Total: " + getUniqueSessionCount(), sessionId);
-        }, broadcastExecutor);
+        // Notificar a los demás clientes en el próximo aviso de presencia agrupado
+        joinedSincePresence.add(sessionId);
+        schedulePresenceUpdate();
     }
 
     private Map<String, String> getQueryParams(String query) {
@@ -89,30 +195,186 @@ public class SocketConnectionHandler extends TextWebSocketHandler {
         logger.info("❌ Cliente desconectado: {} - Razón: {} (Total conectados: {})",
                 sessionId, status.toString(), getUniqueSessionCount());
 
-        // Hacer broadcast de manera asíncrona y después de limpiar
-        CompletableFuture.runAsync(() -> {
-            broadcastMessage("Un cliente se ha desconectado. Total: " + getUniqueSessionCount(), null);
-        }, broadcastExecutor);
+        // Avisar en el próximo aviso de presencia agrupado, ya con la sesión removida
+        joinedSincePresence.remove(sessionId);
+        schedulePresenceUpdate();
     }
 
     @Override
-    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
-        super.handleMessage(session, message);
-
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String sessionId = session.getId();
         String messageContent = message.getPayload().toString();
 
         logger.info("📨 Mensaje recibido de {}: {}", sessionId, messageContent);
 
+        if (handleRoomCommand(sessionId, messageContent)) {
+            return;
+        }
+
+        // Quien está en salas habla solo en ellas; quien no, con todos como hasta ahora
+        Set<String> senderRooms = rooms.roomsOf(sessionId);
+        if (!senderRooms.isEmpty()) {
+            String sender = sessionId.substring(0, 8);
+            List<String> targets = List.copyOf(senderRooms);
+            CompletableFuture.runAsync(() -> {
+                for (String room : targets) {
+                    String roomMessage = String.format("[%s] [%s]: %s", room, sender, messageContent);
+                    deliverToRoom(room, roomMessage, sessionId);
+                    clusterBus.publish(new ClusterMessage(ClusterMessage.Type.ROOM, clusterBus.nodeId(), room, roomMessage));
+                }
+            }, broadcastExecutor);
+            return;
+        }
+
         // Crear mensaje con información del remitente
         String formattedMessage = String.format("[%s]: %s", sessionId.substring(0, 8), messageContent);
 
         // Enviar a todos excepto al remitente de manera asíncrona
         CompletableFuture.runAsync(() -> {
-            broadcastMessage(formattedMessage, sessionId);
+            broadcastMessage(formattedMessage, sessionId, null);
+            clusterBus.publish(new ClusterMessage(ClusterMessage.Type.BROADCAST, clusterBus.nodeId(), null, formattedMessage));
         }, broadcastExecutor);
     }
 
+    /**
+     * Cuadro de cámara en binario (ver {@link FrameProtocol}). Se encola en el escáner de la sesión, que
+     * se queda solo con el último; el resultado vuelve como mensaje binario con la secuencia del cuadro.
+     */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        OutboundSession outbound = sessions.find(session.getId());
+        if (outbound == null) {
+            return;
+        }
+        ScanFrame frame;
+        try {
+            // El contenedor reutiliza el buffer del mensaje al volver de este método: se copia una vez
+            ByteBuffer payload = message.getPayload();
+            ByteBuffer copy = ByteBuffer.allocate(payload.remaining()).put(payload.duplicate()).flip();
+            frame = FrameProtocol.parse(copy, System.nanoTime());
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️ Cuadro inválido de la sesión {}: {}", session.getId(), e.getMessage());
+            sendSafeMessage(outbound, new BinaryMessage(FrameProtocol.error(0, e.getMessage())), null);
+            return;
+        }
+        frameScanners.computeIfAbsent(session.getId(), id -> new FrameScanner(
+                        f -> decodeFrame(outbound, f), scanExecutor,
+                        TimeUnit.MILLISECONDS.toNanos(frameMaxAgeMs), TimeUnit.MILLISECONDS.toNanos(frameHoldMs)))
+                .offer(frame);
+    }
+
+    /**
+     * Corre en el pool de escaneo; devuelve true si el cuadro dio un código
+     */
+    private boolean decodeFrame(OutboundSession session, ScanFrame frame) {
+        if (!session.isOpen()) {
+            return false;
+        }
+        try {
+            Map<String, String> result = photoService.processFrame(frame, sessions.socketIdOf(session.getId()));
+            if (!"success".equals(result.get("status"))) {
+                return false;
+            }
+            logger.debug("🎞️ Cuadro {} de la sesión {}: {}", frame.sequence(), session.getId(), result.get("data"));
+            sendSafeMessage(session, new BinaryMessage(FrameProtocol.result(frame.sequence(),
+                    BarcodeFormat.valueOf(result.get("format")), result.get("data"))), null);
+            return true;
+        } catch (IOException e) {
+            sendSafeMessage(session, new BinaryMessage(FrameProtocol.error(frame.sequence(), e.getMessage())), null);
+            return false;
+        } catch (AdmissionRejectedException e) {
+            // Servidor saturado: el cuadro se pierde y el siguiente vuelve a intentar
+            logger.debug("🚦 Cuadro {} de la sesión {} no admitido: {}", frame.sequence(), session.getId(), e.getReason());
+            return false;
+        }
+    }
+
+    /**
+     * Mensajes de otros nodos: se entregan solo a las sesiones de este nodo, sin volver a publicarlos
+     */
+    private void onClusterMessage(ClusterMessage message) {
+        switch (message.type()) {
+            case DIRECT -> {
+                OutboundSession session = sessions.find(message.target());
+                if (session != null && sendSafeMessage(session, message.payload(), null)) {
+                    logger.info("🛰️ Mensaje del nodo {} entregado al cliente {}", message.origin(), message.target());
+                }
+            }
+            case ROOM -> deliverToRoom(message.target(), message.payload(), null);
+            case BROADCAST -> CompletableFuture.runAsync(
+                    () -> broadcastMessage(message.payload(), Set.of(), null), broadcastExecutor);
+            case SOCKET_UP -> directory.bind(message.target(), message.origin());
+            case SOCKET_DOWN -> directory.unbind(message.target(), message.origin());
+        }
+    }
+
+    /**
+     * Atiende {"type":"subscribe","room":"..."} y {"type":"unsubscribe","room":"..."} y responde con
+     * la confirmación. Devuelve false si el mensaje no es un comando de salas (se trata como chat).
+     */
+    private boolean handleRoomCommand(String sessionId, String content) {
+        if (!content.startsWith("{")) {
+            return false;
+        }
+        JsonNode command;
+        try {
+            command = objectMapper.readTree(content);
+        } catch (IOException e) {
+            return false;
+        }
+        String type = command.path("type").asText();
+        if (!"subscribe".equals(type) && !"unsubscribe".equals(type)) {
+            return false;
+        }
+        OutboundSession session = sessions.find(sessionId);
+        if (session == null) {
+            return true;
+        }
+        String room = command.path("room").asText(null);
+        boolean subscribe = "subscribe".equals(type);
+        boolean ok = subscribe ? joinRoom(session, room) : room != null && leaveRoom(sessionId, room);
+
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("type", ok ? (subscribe ? "subscribed" : "unsubscribed") : "error");
+        reply.put("room", room);
+        if (ok) {
+            reply.put("members", rooms.size(room));
+        } else {
+            reply.put("message", subscribe
+                    ? "Sala inválida o límite de " + maxRoomsPerSession + " salas alcanzado"
+                    : "La sesión no está en esa sala");
+        }
+        try {
+            sendSafeMessage(session, objectMapper.writeValueAsString(reply), null);
+        } catch (IOException e) {
+            logger.error("⚠️ No se pudo serializar la respuesta de salas para {}", sessionId, e);
+        }
+        return true;
+    }
+
+    private boolean joinRoom(OutboundSession session, String room) {
+        if (!RoomIndex.isValidName(room)) {
+            logger.warn("⚠️ Nombre de sala inválido de la sesión {}", session.getId());
+            return false;
+        }
+        Set<String> current = rooms.roomsOf(session.getId());
+        if (!current.contains(room) && current.size() >= maxRoomsPerSession) {
+            logger.warn("⚠️ La sesión {} ya está en {} salas", session.getId(), current.size());
+            return false;
+        }
+        rooms.join(room, session);
+        logger.info("🏷️ Sesión {} unida a la sala {} ({} miembros)", session.getId(), room, rooms.size(room));
+        return true;
+    }
+
+    private boolean leaveRoom(String sessionId, String room) {
+        boolean left = rooms.leave(room, sessionId);
+        if (left) {
+            logger.info("🏷️ Sesión {} salió de la sala {}", sessionId, room);
+        }
+        return left;
+    }
+
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         super.handleTransportError(session, exception);
@@ -128,105 +390,171 @@ public class SocketConnectionHandler extends TextWebSocketHandler {
      * Remueve una sesión de manera segura
      */
     private void removeSession(String sessionId) {
-        WebSocketSession removedSession = sessions.remove(sessionId);
-
-        // También buscar y remover por socketId si existe
-        sessions.entrySet().removeIf(entry -> {
-            WebSocketSession session = entry.getValue();
-            return session != null && sessionId.equals(session.getId());
-        });
-
-        if (removedSession != null) {
+        // El registro quita también el socketId, sin recorrer el resto de las sesiones
+        String socketId = sessions.socketIdOf(sessionId);
+        rooms.leaveAll(sessionId);
+        FrameScanner scanner = frameScanners.remove(sessionId);
+        if (scanner != null) {
+            closedFramesReceived.add(scanner.received());
+            closedFramesSkipped.add(scanner.skipped());
+        }
+        OutboundSession outbound = sessions.find(sessionId);
+        if (sessions.unregister(sessionId)) {
             logger.debug("🧹 Sesión {} removida del mapa", sessionId);
+            if (outbound != null) {
+                closedOutboundDropped.add(outbound.dropped());
+            }
+            // Si el socketId no quedó vinculado a una reconexión, los demás nodos lo olvidan
+            if (socketId != null && sessions.find(socketId) == null) {
+                clusterBus.publish(new ClusterMessage(ClusterMessage.Type.SOCKET_DOWN, clusterBus.nodeId(), socketId, null));
+            }
         }
     }
 
     /**
-     * Envía un mensaje de manera segura a una sesión específica
+     * Agenda un único aviso de presencia para dentro de la ventana; si ya hay uno agendado, ese mismo
+     * llevará el total actualizado. Una tormenta de reconexiones termina en un aviso por ventana.
      */
-    private boolean sendSafeMessage(WebSocketSession session, String message) {
-        if (session == null) {
-            return false;
+    private void schedulePresenceUpdate() {
+        if (!presencePending.compareAndSet(false, true)) {
+            return;
         }
-
         try {
-            // Verificar que la sesión esté abierta antes de enviar
-            if (session.isOpen()) {
-                synchronized (session) {
-                    // Doble verificación dentro del synchronized
-                    if (session.isOpen()) {
-                        session.sendMessage(new TextMessage(message));
-                        return true;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error enviando mensaje a sesión {}: {}", session.getId(), e.getMessage());
-            // Limpiar sesión problemática
-            removeSession(session.getId());
+            broadcastExecutor.schedule(this::broadcastPresence, presenceIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // La aplicación se está cerrando
+            presencePending.set(false);
         }
+    }
+
+    /**
+     * Corre en el hilo de broadcast: envía el total actual si cambió desde el último aviso
+     */
+    private void broadcastPresence() {
+        // Las altas y bajas posteriores a este punto agendan otro aviso
+        presencePending.set(false);
+        Set<String> joined = new HashSet<>();
+        for (Iterator<String> it = joinedSincePresence.iterator(); it.hasNext(); ) {
+            joined.add(it.next());
+            it.remove();
+        }
+        int total = getUniqueSessionCount();
+        if (total == lastAnnouncedCount) {
+            return;
+        }
+        String message = total > lastAnnouncedCount
+                ? "Un nuevo cliente se ha conectado. Total: " + total
+                : "Un cliente se ha desconectado. Total: " + total;
+        lastAnnouncedCount = total;
+        broadcastMessage(message, joined, PRESENCE_KEY);
+    }
+
+    /**
+     * Encola un mensaje para una sesión específica sin bloquear; el escritor de la sesión lo envía.
+     * Con {@code coalesceKey} reemplaza al pendiente con la misma clave si la política es COALESCE.
+     */
+    private boolean sendSafeMessage(OutboundSession session, String message, String coalesceKey) {
+        return session != null && sendSafeMessage(session, new TextMessage(message), coalesceKey);
+    }
 
+    /**
+     * Igual que el anterior con un mensaje ya armado, que puede compartirse entre varias sesiones
+     * porque los mensajes de Spring son inmutables
+     */
+    private boolean sendSafeMessage(OutboundSession session, WebSocketMessage<?> message, String coalesceKey) {
+        // Verificar que la sesión esté abierta antes de encolar
+        if (session.isOpen() && session.send(message, coalesceKey)) {
+            return true;
+        }
+        // Limpiar sesión problemática (cerrada o desconectada por desborde)
+        removeSession(session.getId());
         return false;
     }
 
     /**
-     * Envía un mensaje a todas las sesiones activas excepto a la excluida
-     * Versión mejorada que evita race conditions
+     * Envía un mensaje a todas las sesiones activas excepto a la excluida.
+     * Solo encola en cada sesión: un cliente lento no frena el reparto a los demás.
+     * El mensaje se arma una sola vez y todas las colas comparten la misma instancia, y el registro se
+     * recorre sin copiarlo: el costo por destinatario es solo encolar.
+     */
+    private void broadcastMessage(String message, String excludeSessionId, String coalesceKey) {
+        broadcastMessage(message, excludeSessionId != null ? Set.of(excludeSessionId) : Set.of(), coalesceKey);
+    }
+
+    /**
+     * Igual que el anterior excluyendo varias sesiones
      */
-    private void broadcastMessage(String message, String excludeSessionId) {
+    private void broadcastMessage(String message, Set<String> excludedSessionIds, String coalesceKey) {
         if (message == null) {
             return;
         }
 
-        // Limpiar sesiones muertas antes de hacer broadcast
-        cleanupClosedSessions();
+        // Cada sesión aparece una sola vez aunque también esté indexada por socketId
+        Delivery delivery = fanOut(sessions.sessions(), new TextMessage(message), excludedSessionIds, coalesceKey);
 
-        // Obtener snapshot de sesiones activas
-        Map<String, WebSocketSession> activeSessionsSnapshot = new ConcurrentHashMap<>();
+        logger.info("📡 Mensaje encolado exitosamente para {} de {} clientes",
+                delivery.sent(), delivery.targets());
+    }
 
-        sessions.forEach((key, session) -> {
-            if (session != null && session.isOpen() &&
-                    (excludeSessionId == null || !session.getId().equals(excludeSessionId))) {
-                activeSessionsSnapshot.put(key, session);
-            }
-        });
+    /**
+     * Publica un mensaje solo a los miembros de la sala, con el mismo mensaje compartido entre todos,
+     * y a los demás nodos para sus miembros. Devuelve a cuántos se encoló en este nodo.
+     */
+    public int publishToRoom(String room, String message) {
+        if (room == null || message == null) {
+            return 0;
+        }
+        clusterBus.publish(new ClusterMessage(ClusterMessage.Type.ROOM, clusterBus.nodeId(), room, message));
+        return deliverToRoom(room, message, null);
+    }
 
-        // Enviar mensajes de manera secuencial para evitar problemas de concurrencia
-        int successCount = 0;
-        for (WebSocketSession session : activeSessionsSnapshot.values()) {
-            if (sendSafeMessage(session, message)) {
-                successCount++;
-            }
+    private int deliverToRoom(String room, String message, String excludeSessionId) {
+        if (room == null || message == null) {
+            return 0;
         }
+        Delivery delivery = fanOut(rooms.members(room), new TextMessage(message),
+                excludeSessionId != null ? Set.of(excludeSessionId) : Set.of(), null);
 
-        logger.info("📡 Mensaje enviado exitosamente a {} de {} clientes",
-                successCount, activeSessionsSnapshot.size());
+        logger.info("📡 Mensaje encolado para {} de {} clientes de la sala {}",
+                delivery.sent(), delivery.targets(), room);
+        return delivery.sent();
     }
 
     /**
-     * Limpia sesiones cerradas del mapa
+     * Encola el mismo mensaje en cada destino; las sesiones cerradas que aparezcan se limpian
      */
-    private void cleanupClosedSessions() {
-        sessions.entrySet().removeIf(entry -> {
-            WebSocketSession session = entry.getValue();
-            boolean shouldRemove = session == null || !session.isOpen();
-            if (shouldRemove) {
-                logger.debug("🧹 Limpiando sesión cerrada: {}", entry.getKey());
+    private Delivery fanOut(Iterable<OutboundSession> targets, WebSocketMessage<?> frame,
+                            Set<String> excludedSessionIds, String coalesceKey) {
+        long start = System.nanoTime();
+        int successCount = 0;
+        int targetCount = 0;
+        for (OutboundSession session : targets) {
+            if (!session.isOpen()) {
+                // Sesión muerta que no llegó a pasar por afterConnectionClosed
+                logger.debug("🧹 Limpiando sesión cerrada: {}", session.getId());
+                removeSession(session.getId());
+                continue;
             }
-            return shouldRemove;
-        });
+            if (excludedSessionIds.contains(session.getId())) {
+                continue;
+            }
+            targetCount++;
+            if (sendSafeMessage(session, frame, coalesceKey)) {
+                successCount++;
+            }
+        }
+        metrics.fanOut(start);
+        return new Delivery(successCount, targetCount);
+    }
+
+    private record Delivery(int sent, int targets) {
     }
 
     /**
-     * Obtiene el número real de sesiones únicas conectadas
+     * Obtiene el número de sesiones conectadas, sin recorrer el registro
      */
     private int getUniqueSessionCount() {
-        cleanupClosedSessions();
-        return (int) sessions.values().stream()
-                .filter(session -> session != null && session.isOpen())
-                .map(WebSocketSession::getId)
-                .distinct()
-                .count();
+        return sessions.size();
     }
 
     /**
@@ -237,27 +565,83 @@ public class SocketConnectionHandler extends TextWebSocketHandler {
     }
 
     /**
-     * Envía un mensaje a un cliente específico de manera segura
+     * Mensajes esperando en las colas de salida de todas las sesiones (recorre las sesiones, solo para métricas)
+     */
+    public long getOutboundPending() {
+        long pending = 0;
+        for (OutboundSession session : sessions.sessions()) {
+            pending += session.pending();
+        }
+        return pending;
+    }
+
+    /**
+     * Mensajes descartados por desborde o coalescencia desde el arranque
+     */
+    public long getOutboundDropped() {
+        long dropped = closedOutboundDropped.sum();
+        for (OutboundSession session : sessions.sessions()) {
+            dropped += session.dropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * Cuadros binarios recibidos desde el arranque
+     */
+    public long getFramesReceived() {
+        long received = closedFramesReceived.sum();
+        for (FrameScanner scanner : frameScanners.values()) {
+            received += scanner.received();
+        }
+        return received;
+    }
+
+    /**
+     * Cuadros descartados sin decodificar (reemplazados por uno más nuevo, viejos o en pausa tras un código)
+     */
+    public long getFramesSkipped() {
+        long skipped = closedFramesSkipped.sum();
+        for (FrameScanner scanner : frameScanners.values()) {
+            skipped += scanner.skipped();
+        }
+        return skipped;
+    }
+
+    public int getRoomCount() {
+        return rooms.roomCount();
+    }
+
+    /**
+     * Envía un mensaje a un cliente específico de manera segura. Si su socket no está en este nodo, el
+     * mensaje va por el bus al nodo que lo tiene según el directorio, o a todos si no se sabe cuál es.
      */
     public boolean sendMessageToClient(String sessionId, String message) {
         if (sessionId == null || message == null) {
             return false;
         }
 
-        WebSocketSession session = sessions.get(sessionId);
+        OutboundSession session = sessions.find(sessionId);
 
         if (session != null) {
-            boolean success = sendSafeMessage(session, message);
+            boolean success = sendSafeMessage(session, message, null);
             if (success) {
-                logger.info("📤 Mensaje enviado al cliente {}: {}", sessionId, message);
+                logger.debug("📤 Mensaje enviado al cliente {}: {}", sessionId, message);
             } else {
                 logger.warn("⚠️ No se pudo enviar mensaje al cliente: {}", sessionId);
             }
             return success;
-        } else {
-            logger.warn("⚠️ Sesión no encontrada para el cliente: {}", sessionId);
-            return false;
         }
+
+        ClusterMessage forward = new ClusterMessage(ClusterMessage.Type.DIRECT, clusterBus.nodeId(), sessionId, message);
+        String node = directory.nodeOf(sessionId);
+        if ((node != null && clusterBus.send(node, forward)) || clusterBus.publish(forward) > 0) {
+            logger.info("🛰️ Cliente {} no está en este nodo: mensaje reenviado{}", sessionId,
+                    node != null ? " al nodo " + node : " a todos los nodos");
+            return true;
+        }
+        logger.warn("⚠️ Sesión no encontrada para el cliente: {}", sessionId);
+        return false;
     }
 
     /**
@@ -266,10 +650,11 @@ public class SocketConnectionHandler extends TextWebSocketHandler {
     public void shutdown() {
         logger.info("🔄 Cerrando executor de broadcast...");
         broadcastExecutor.shutdown();
+        writerExecutor.shutdown();
 
         // Cerrar todas las sesiones activas
-        sessions.values().forEach(session -> {
-            if (session != null && session.isOpen()) {
+        sessions.sessions().forEach(session -> {
+            if (session.isOpen()) {
                 try {
                     session.close();
                 } catch (Exception e) {
@@ -279,6 +664,7 @@ public class SocketConnectionHandler extends TextWebSocketHandler {
         });
 
         sessions.clear();
+        rooms.clear();
         logger.info("✅ Recursos WebSocket liberados");
     }
 }
\ No newline at end of file
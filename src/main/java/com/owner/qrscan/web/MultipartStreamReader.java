@@ -0,0 +1,229 @@
+package com.owner.qrscan.web;
+
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lector incremental de un cuerpo multipart/form-data: devuelve las partes de a una, a medida que
+ * llegan por la red, sin bufferear la petición completa ni escribir archivos temporales.
+ * Solo se mantiene en memoria la parte actual (acotada por {@code maxPartSize}).
+ */
+public class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final long maxPartSize;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean started;
+    private boolean finished;
+
+    public MultipartStreamReader(InputStream in, String boundary, long maxPartSize) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.maxPartSize = maxPartSize;
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+        // El primer delimitador no lleva CRLF delante: se simula para tratarlos a todos igual
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        this.limit = 2;
+    }
+
+    /**
+     * Extrae el boundary de un Content-Type multipart, o null si no tiene
+     */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String param : contentType.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.regionMatches(true, 0, "boundary=", 0, 9)) {
+                String value = trimmed.substring(9);
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lee la siguiente parte completa, o devuelve null si ya no quedan
+     */
+    public Part next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (!started) {
+            started = true;
+            // Preámbulo: todo lo anterior al primer delimitador se descarta
+            if (!readUntilDelimiter(null)) {
+                throw new IOException("El cuerpo multipart no contiene el boundary indicado");
+            }
+        }
+        // Tras el delimitador viene "--" (fin) o CRLF (nueva parte)
+        ensure(2);
+        if (limit - pos >= 2 && buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        String line = readLine();
+        if (!line.isBlank()) {
+            throw new IOException("Delimitador multipart mal formado");
+        }
+
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+            int colon = header.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+            if (key.equalsIgnoreCase("Content-Disposition")) {
+                name = dispositionParam(value, "name");
+                filename = dispositionParam(value, "filename");
+            } else if (key.equalsIgnoreCase("Content-Type")) {
+                contentType = value;
+            }
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (!readUntilDelimiter(body)) {
+            throw new IOException("El cuerpo multipart terminó antes de cerrar la parte " + name);
+        }
+        return new Part(name, filename, contentType, body.toByteArray());
+    }
+
+    /**
+     * Copia bytes hasta el próximo delimitador (sin incluirlo) y lo consume.
+     * Devuelve false si el flujo terminó sin encontrarlo.
+     */
+    private boolean readUntilDelimiter(ByteArrayOutputStream sink) throws IOException {
+        long copied = 0;
+        while (true) {
+            ensure(delimiter.length);
+            int found = indexOfDelimiter();
+            int end = found >= 0 ? found : Math.max(pos, limit - delimiter.length + 1);
+            if (eof && found < 0) {
+                end = limit;
+            }
+            int length = end - pos;
+            if (sink != null && length > 0) {
+                copied += length;
+                if (copied > maxPartSize) {
+                    throw new MaxUploadSizeExceededException(maxPartSize);
+                }
+                sink.write(buffer, pos, length);
+            }
+            pos = end;
+            if (found >= 0) {
+                pos += delimiter.length;
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        int last = limit - delimiter.length;
+        for (int i = pos; i <= last; i++) {
+            if (buffer[i] == first
+                    && Arrays.equals(buffer, i, i + delimiter.length, delimiter, 0, delimiter.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true) {
+            ensure(2);
+            for (int i = pos; i < limit - 1; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    line.write(buffer, pos, i - pos);
+                    pos = i + 2;
+                    return line.toString(StandardCharsets.UTF_8);
+                }
+            }
+            if (eof) {
+                throw new IOException("El cuerpo multipart terminó en medio de los encabezados");
+            }
+            // Sin CRLF en lo leído: conservar el último byte por si es el '\r'
+            int keep = Math.max(pos, limit - 1);
+            line.write(buffer, pos, keep - pos);
+            pos = keep;
+            if (line.size() > MAX_HEADER_LINE) {
+                throw new IOException("Encabezado multipart demasiado largo");
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Intenta tener al menos {@code count} bytes disponibles (menos si el flujo terminó)
+     */
+    private void ensure(int count) throws IOException {
+        while (!eof && limit - pos < count) {
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private static String dispositionParam(String disposition, String param) {
+        for (String token : disposition.split(";")) {
+            String trimmed = token.trim();
+            int eq = trimmed.indexOf('=');
+            if (eq > 0 && trimmed.substring(0, eq).trim().equalsIgnoreCase(param)) {
+                String value = trimmed.substring(eq + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Una parte del formulario ya leída por completo
+     */
+    public record Part(String name, String filename, String contentType, byte[] data) {
+
+        public boolean isFile() {
+            return filename != null;
+        }
+    }
+}
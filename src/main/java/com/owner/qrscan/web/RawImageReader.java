@@ -0,0 +1,90 @@
+package com.owner.qrscan.web;
+
+import com.owner.qrscan.decoder.ImageHeader;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Lee el cuerpo crudo de una subida (Content-Type image/*, sin multipart) directo del stream del servlet a un
+ * buffer del pool: sin archivo temporal, sin MultipartFile y sin la copia de getBytes(). Apenas llegan los
+ * bytes de la cabecera se revisa que sea una imagen y su tamaño en píxeles, y si no sirve se corta sin leer
+ * el resto del cuerpo.
+ */
+public final class RawImageReader {
+
+    private static final int DEFAULT_INITIAL_SIZE = 64 * 1024;
+
+    /**
+     * La imagen leída: los primeros {@code length} bytes de {@code data}. El buffer es del pool y hay que
+     * devolverlo con {@link UploadBufferPool#release} cuando ya no se use.
+     */
+    public record RawImage(byte[] data, int length, ImageHeader header) {
+    }
+
+    private RawImageReader() {
+    }
+
+    /**
+     * @param contentLength largo declarado del cuerpo, o -1 si viene por partes (chunked)
+     * @param maxBytes      tamaño máximo del cuerpo
+     * @param sizeCheck     se llama con la cabecera apenas se conoce el tamaño; lanza para rechazar la imagen
+     */
+    public static RawImage read(InputStream in, long contentLength, long maxBytes, UploadBufferPool pool,
+                                Consumer<ImageHeader> sizeCheck) throws IOException {
+        if (contentLength > maxBytes) {
+            // Ni se empieza a leer
+            throw new MaxUploadSizeExceededException(maxBytes);
+        }
+        byte[] buffer = pool.acquire(contentLength > 0 ? (int) contentLength : DEFAULT_INITIAL_SIZE);
+        int length = 0;
+        ImageHeader header = null;
+        try {
+            while (true) {
+                if (length == buffer.length) {
+                    byte[] bigger = pool.acquire((int) Math.min(Integer.MAX_VALUE - 8, (long) length * 2));
+                    System.arraycopy(buffer, 0, bigger, 0, length);
+                    pool.release(buffer);
+                    buffer = bigger;
+                }
+                // Se lee como mucho un byte más que el máximo, para saber si el cuerpo lo supera
+                int n = in.read(buffer, length, (int) Math.min(buffer.length - length, maxBytes + 1 - length));
+                if (n < 0) {
+                    break;
+                }
+                length += n;
+                if (length > maxBytes) {
+                    throw new MaxUploadSizeExceededException(maxBytes);
+                }
+                if (header == null) {
+                    header = sniff(buffer, length);
+                    if (header != null && header.hasDimensions()) {
+                        sizeCheck.accept(header);
+                    }
+                }
+            }
+            if (length == 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No se recibió ninguna imagen.");
+            }
+            if (header == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La imagen está incompleta.");
+            }
+            return new RawImage(buffer, length, header);
+        } catch (IOException | RuntimeException e) {
+            pool.release(buffer);
+            throw e;
+        }
+    }
+
+    private static ImageHeader sniff(byte[] buffer, int length) {
+        try {
+            return ImageHeader.sniff(buffer, length);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+        }
+    }
+}
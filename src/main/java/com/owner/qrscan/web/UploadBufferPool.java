@@ -0,0 +1,78 @@
+package com.owner.qrscan.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Pool acotado de buffers para leer el cuerpo de las subidas sin asignar un arreglo nuevo por petición.
+ * Los tamaños van de a potencias de 2 (desde 64 KB), así una foto de 1,3 MB y otra de 1,9 MB comparten el
+ * buffer de 2 MB. Son arreglos del heap y no buffers directos: ImageIO y ZXing leen de byte[], con un buffer
+ * directo habría que copiar la imagen de vuelta al heap.
+ */
+@Component
+public class UploadBufferPool {
+
+    private static final int MIN_SIZE = 64 * 1024;
+
+    private final Deque<byte[]> free = new ArrayDeque<>();
+    private final int maxBuffers;
+    private final long maxRetainedBytes;
+    private long retainedBytes;
+
+    public UploadBufferPool(@Value("${qrscan.upload.pool.max-buffers:16}") int maxBuffers,
+                            @Value("${qrscan.upload.pool.max-retained-mb:64}") long maxRetainedMb) {
+        this.maxBuffers = maxBuffers;
+        this.maxRetainedBytes = maxRetainedMb * 1024 * 1024;
+    }
+
+    /**
+     * Un buffer de al menos {@code size} bytes, reutilizado si hay uno libre de ese tamaño
+     */
+    public synchronized byte[] acquire(int size) {
+        int capacity = sizeClass(size);
+        Iterator<byte[]> it = free.iterator();
+        while (it.hasNext()) {
+            byte[] buffer = it.next();
+            if (buffer.length == capacity) {
+                it.remove();
+                retainedBytes -= capacity;
+                return buffer;
+            }
+        }
+        return new byte[capacity];
+    }
+
+    /**
+     * Devuelve el buffer; si se supera el límite se descartan los más antiguos
+     */
+    public synchronized void release(byte[] buffer) {
+        if (buffer == null || buffer.length > maxRetainedBytes || Integer.bitCount(buffer.length) != 1) {
+            return;
+        }
+        free.addFirst(buffer);
+        retainedBytes += buffer.length;
+        while (free.size() > maxBuffers || retainedBytes > maxRetainedBytes) {
+            retainedBytes -= free.removeLast().length;
+        }
+    }
+
+    static int sizeClass(int size) {
+        if (size <= MIN_SIZE) {
+            return MIN_SIZE;
+        }
+        int capacity = Integer.highestOneBit(size - 1) << 1;
+        return capacity > 0 ? capacity : Integer.MAX_VALUE - 8;
+    }
+
+    public synchronized int size() {
+        return free.size();
+    }
+
+    public synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+}
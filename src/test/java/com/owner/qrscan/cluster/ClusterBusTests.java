@@ -0,0 +1,120 @@
+package com.owner.qrscan.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterBusTests {
+
+	@Test
+	void localPublishReachesEveryOtherNode() {
+		LocalClusterBus.Hub hub = new LocalClusterBus.Hub();
+		try (LocalClusterBus a = new LocalClusterBus("a", hub);
+			 LocalClusterBus b = new LocalClusterBus("b", hub);
+			 LocalClusterBus c = new LocalClusterBus("c", hub)) {
+			BlockingQueue<ClusterMessage> atA = listen(a);
+			BlockingQueue<ClusterMessage> atB = listen(b);
+			BlockingQueue<ClusterMessage> atC = listen(c);
+			ClusterMessage message = new ClusterMessage(ClusterMessage.Type.ROOM, "a", "store-42", "hola");
+
+			assertEquals(2, a.publish(message));
+			assertTrue(atA.isEmpty());
+			assertEquals(message, atB.poll());
+			assertEquals(message, atC.poll());
+		}
+	}
+
+	@Test
+	void localSendGoesOnlyToTheTarget() {
+		LocalClusterBus.Hub hub = new LocalClusterBus.Hub();
+		try (LocalClusterBus a = new LocalClusterBus("a", hub);
+			 LocalClusterBus b = new LocalClusterBus("b", hub);
+			 LocalClusterBus c = new LocalClusterBus("c", hub)) {
+			BlockingQueue<ClusterMessage> atB = listen(b);
+			BlockingQueue<ClusterMessage> atC = listen(c);
+			ClusterMessage message = new ClusterMessage(ClusterMessage.Type.DIRECT, "a", "socket-1", "hola");
+
+			assertTrue(a.send("b", message));
+			assertEquals(message, atB.poll());
+			assertTrue(atC.isEmpty());
+			assertFalse(a.send("a", message));
+			assertFalse(a.send("z", message));
+		}
+	}
+
+	@Test
+	void closedLocalNodeLeavesTheHub() {
+		LocalClusterBus.Hub hub = new LocalClusterBus.Hub();
+		try (LocalClusterBus a = new LocalClusterBus("a", hub)) {
+			LocalClusterBus b = new LocalClusterBus("b", hub);
+			assertThrows(IllegalStateException.class, () -> new LocalClusterBus("b", hub));
+			b.close();
+			assertEquals(0, a.publish(new ClusterMessage(ClusterMessage.Type.BROADCAST, "a", null, "hola")));
+			assertFalse(a.send("b", new ClusterMessage(ClusterMessage.Type.DIRECT, "a", "socket-1", "hola")));
+		}
+	}
+
+	@Test
+	void tcpBusDeliversPublishedAndDirectMessages() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		String nodeA = "127.0.0.1:" + freePort();
+		String nodeB = "127.0.0.1:" + freePort();
+		List<String> nodes = List.of(nodeA, nodeB);
+		try (TcpClusterBus a = new TcpClusterBus(nodeA, "127.0.0.1", port(nodeA), nodes, 16, objectMapper);
+			 TcpClusterBus b = new TcpClusterBus(nodeB, "127.0.0.1", port(nodeB), nodes, 16, objectMapper)) {
+			BlockingQueue<ClusterMessage> atA = listen(a);
+			BlockingQueue<ClusterMessage> atB = listen(b);
+			// Saltos de línea y caracteres fuera de ASCII viajan dentro de la línea JSON
+			ClusterMessage broadcast = new ClusterMessage(ClusterMessage.Type.BROADCAST, nodeA, null, "línea 1\nlínea 2");
+			ClusterMessage direct = new ClusterMessage(ClusterMessage.Type.DIRECT, nodeB, "socket-1", "{\"type\":\"scan_result\"}");
+
+			assertEquals(1, a.publish(broadcast));
+			assertTrue(b.send(nodeA, direct));
+			assertFalse(b.send("127.0.0.1:1", direct));
+
+			assertEquals(broadcast, atB.poll(10, TimeUnit.SECONDS));
+			assertEquals(direct, atA.poll(10, TimeUnit.SECONDS));
+			assertNull(atA.poll(100, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	@Test
+	void directoryUnbindsOnlyTheNodeItPointsTo() {
+		SocketDirectory directory = new SocketDirectory();
+		directory.bind("socket-1", "a");
+		// El cliente se reconectó en b antes de que llegara la baja de a
+		directory.bind("socket-1", "b");
+		directory.unbind("socket-1", "a");
+		assertEquals("b", directory.nodeOf("socket-1"));
+		directory.unbind("socket-1", "b");
+		assertNull(directory.nodeOf("socket-1"));
+	}
+
+	private static BlockingQueue<ClusterMessage> listen(ClusterBus bus) {
+		BlockingQueue<ClusterMessage> received = new LinkedBlockingQueue<>();
+		bus.subscribe(received::add);
+		return received;
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	private static int port(String node) {
+		return Integer.parseInt(node.substring(node.lastIndexOf(':') + 1));
+	}
+}
@@ -0,0 +1,158 @@
+package com.owner.qrscan.decoder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControllerTests {
+
+	private static final long TARGET = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void limitGrowsOnlyWhileItIsInUse() {
+		AdaptiveLimit limit = new AdaptiveLimit(4, 1, 8, TARGET, 0.5);
+		for (int i = 0; i < 100; i++) {
+			limit.onSample(TARGET / 2, 0);
+		}
+		assertEquals(4, limit.get());
+
+		// Con el límite ocupado sube 1/límite por muestra: más o menos uno por ventana de decodificaciones
+		for (int i = 0; i < 5; i++) {
+			limit.onSample(TARGET / 2, limit.get() - 1);
+		}
+		assertEquals(5, limit.get());
+	}
+
+	@Test
+	void limitBacksOffOnSlowDecodesWithinBounds() {
+		AdaptiveLimit limit = new AdaptiveLimit(8, 2, 8, TARGET, 0.5);
+		limit.onSample(TARGET * 2, 7);
+		assertEquals(4, limit.get());
+		limit.onSample(TARGET * 2, 3);
+		limit.onSample(TARGET * 2, 1);
+		assertEquals(2, limit.get());
+
+		for (int i = 0; i < 1000; i++) {
+			limit.onSample(TARGET / 2, limit.get());
+		}
+		assertEquals(8, limit.get());
+	}
+
+	@Test
+	void rejectsOverTheConcurrencyLimit() {
+		AdmissionController admission = controller(2, 128, 1.0, 0, 0);
+		AdmissionController.Permit first = admission.acquire(AdmissionController.Lane.INTERACTIVE, 1000);
+		try (AdmissionController.Permit second = admission.acquire(AdmissionController.Lane.INTERACTIVE, 1000)) {
+			AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+					() -> admission.acquire(AdmissionController.Lane.INTERACTIVE, 1000));
+			assertEquals(AdmissionRejectedException.Reason.CONCURRENCY, e.getReason());
+			assertTrue(e.getRetryAfterSeconds() >= 1);
+		}
+		first.close();
+		// Cerrar dos veces no libera un lugar de más
+		first.close();
+		assertEquals(0, admission.inFlight());
+		admission.acquire(AdmissionController.Lane.INTERACTIVE, 1000).close();
+	}
+
+	@Test
+	void rejectsOverThePixelBudget() {
+		AdmissionController admission = controller(8, 1, 1.0, 0, 0);
+		try (AdmissionController.Permit permit = admission.acquire(AdmissionController.Lane.INTERACTIVE, 600_000)) {
+			assertEquals(600_000, admission.pixelsInFlight());
+			AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+					() -> admission.acquire(AdmissionController.Lane.INTERACTIVE, 600_000));
+			assertEquals(AdmissionRejectedException.Reason.MEMORY, e.getReason());
+		}
+		assertEquals(0, admission.pixelsInFlight());
+	}
+
+	@Test
+	void rejectsImagesLargerThanTheWholeBudget() {
+		AdmissionController admission = controller(8, 1, 1.0, 0, 0);
+		AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, () -> admission.checkSize(2_000_000));
+		assertEquals(AdmissionRejectedException.Reason.TOO_LARGE, e.getReason());
+		assertEquals(0, e.getRetryAfterSeconds());
+		assertThrows(AdmissionRejectedException.class, () -> admission.acquire(AdmissionController.Lane.BATCH, 2_000_000));
+		assertEquals(2, admission.rejected(AdmissionRejectedException.Reason.TOO_LARGE));
+	}
+
+	@Test
+	void batchesUseOnlyTheirShareOfTheLimit() {
+		AdmissionController admission = controller(4, 128, 0.5, 0, 0);
+		AdmissionController.Permit first = admission.acquire(AdmissionController.Lane.BATCH, 1000);
+		AdmissionController.Permit second = admission.acquire(AdmissionController.Lane.BATCH, 1000);
+		assertThrows(AdmissionRejectedException.class, () -> admission.acquire(AdmissionController.Lane.BATCH, 1000));
+		// Lo que queda del límite sigue libre para las fotos interactivas
+		admission.acquire(AdmissionController.Lane.INTERACTIVE, 1000).close();
+		first.close();
+		second.close();
+	}
+
+	@Test
+	void waitingInteractivePhotosGoBeforeBatches() throws Exception {
+		AdmissionController admission = controller(1, 128, 1.0, 5000, 5000);
+		AdmissionController.Permit held = admission.acquire(AdmissionController.Lane.INTERACTIVE, 1000);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			AtomicReferenceArray<Thread> threads = new AtomicReferenceArray<>(2);
+			Future<AdmissionController.Permit> batch = executor.submit(() -> {
+				threads.set(0, Thread.currentThread());
+				return admission.acquire(AdmissionController.Lane.BATCH, 1000);
+			});
+			Future<AdmissionController.Permit> interactive = executor.submit(() -> {
+				threads.set(1, Thread.currentThread());
+				return admission.acquire(AdmissionController.Lane.INTERACTIVE, 1000);
+			});
+			awaitWaiting(threads);
+
+			held.close();
+			AdmissionController.Permit first = interactive.get(5, TimeUnit.SECONDS);
+			assertFalse(batch.isDone());
+			first.close();
+			AdmissionController.Permit second = batch.get(5, TimeUnit.SECONDS);
+			assertNotNull(second);
+			second.close();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void disabledAdmitsEverything() {
+		AdmissionController admission = new AdmissionController(false, 1, 1, 1000, 1, 0.5, 0, 0);
+		AdmissionController.Permit first = admission.acquire(AdmissionController.Lane.BATCH, 5_000_000);
+		AdmissionController.Permit second = admission.acquire(AdmissionController.Lane.BATCH, 5_000_000);
+		assertEquals(0, admission.inFlight());
+		first.close();
+		second.close();
+	}
+
+	/**
+	 * Límite fijo (inicial = máximo) para que el AIMD no lo mueva durante el test
+	 */
+	private static AdmissionController controller(int limit, long maxMegapixels, double batchShare,
+												  long interactiveWaitMs, long batchWaitMs) {
+		return new AdmissionController(true, limit, limit, 60_000, maxMegapixels, batchShare, interactiveWaitMs, batchWaitMs);
+	}
+
+	private static void awaitWaiting(AtomicReferenceArray<Thread> threads) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		for (int i = 0; i < threads.length(); i++) {
+			while (threads.get(i) == null || threads.get(i).getState() != Thread.State.TIMED_WAITING) {
+				assertTrue(System.nanoTime() < deadline, "El pedido no quedó esperando lugar");
+				Thread.onSpinWait();
+			}
+		}
+	}
+}
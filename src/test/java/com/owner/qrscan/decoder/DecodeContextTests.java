@@ -0,0 +1,102 @@
+package com.owner.qrscan.decoder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecodeContextTests {
+
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(4, 1 << 20);
+	// Un solo hilo y cola de uno: la segunda tarea queda esperando y la tercera se rechaza
+	private final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(1));
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void releasesTheReferenceOfATaskCancelledInTheQueue() throws Exception {
+		DecodeContext context = new DecodeContext(plane(), pool);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingQueue<Future<Integer>> completed = new LinkedBlockingQueue<>();
+
+		Future<Integer> busy = context.submit(executor, () -> {
+			running.countDown();
+			release.await();
+			return 1;
+		}, completed);
+		running.await();
+		Future<Integer> queued = context.submit(executor, () -> 2, completed);
+
+		context.close();
+		queued.cancel(true);
+		assertSame(queued, completed.poll(5, TimeUnit.SECONDS));
+		// La tarea que está corriendo todavía usa el plano
+		assertEquals(0, pool.size());
+
+		release.countDown();
+		assertEquals(1, busy.get(5, TimeUnit.SECONDS));
+		assertSame(busy, completed.poll(5, TimeUnit.SECONDS));
+		assertEquals(1, pool.size());
+	}
+
+	@Test
+	void keepsThePlaneUntilACancelledRunningTaskEnds() throws Exception {
+		DecodeContext context = new DecodeContext(plane(), pool);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(1);
+
+		Future<Integer> task = context.submit(executor, () -> {
+			running.countDown();
+			release.await();
+			return 1;
+		}, null);
+		executor.execute(finished::countDown);
+		running.await();
+
+		context.close();
+		task.cancel(false);
+		assertEquals(0, pool.size());
+
+		release.countDown();
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+		assertEquals(1, pool.size());
+	}
+
+	@Test
+	void releasesTheReferenceWhenTheExecutorRejectsTheTask() throws Exception {
+		DecodeContext context = new DecodeContext(plane(), pool);
+		CountDownLatch release = new CountDownLatch(1);
+		context.submit(executor, () -> release.await(5, TimeUnit.SECONDS), null);
+		context.submit(executor, () -> true, null);
+
+		assertThrows(RejectedExecutionException.class, () -> context.submit(executor, () -> true, null));
+		release.countDown();
+		context.close();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(1, pool.size());
+	}
+
+	private LuminancePlane plane() {
+		return LuminancePlane.wrap(pool.acquire(64), 8, 8, pool);
+	}
+}
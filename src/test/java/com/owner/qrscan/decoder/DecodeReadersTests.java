@@ -0,0 +1,158 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.oned.EAN13Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DecodeReadersTests {
+
+	private static final String EAN = "5901234123457";
+
+	@BeforeEach
+	void emptyPool() {
+		// El pool es estático: otros tests pueden haber dejado juegos
+		pool().clear();
+	}
+
+	@Test
+	void returnsReaderSetsToThePoolOnClose() {
+		DecodeReaders first = DecodeReaders.acquire();
+		DecodeReaders second = DecodeReaders.acquire();
+		assertNotSame(first, second);
+
+		first.close();
+		assertSame(first, DecodeReaders.acquire());
+		assertEquals(0, pool().size());
+	}
+
+	@Test
+	void keepsOneConfiguredReaderPerHintSet() throws Exception {
+		BinaryBitmap qr = bitmap(qr("hola"));
+		BinaryBitmap ean = bitmap(ean());
+		MultiFormatReader qrReader;
+		try (DecodeReaders readers = DecodeReaders.acquire()) {
+			assertEquals("hola", readers.decode(qr, DecodeHints.QR_ONLY).getText());
+			qrReader = readers(readers).get(DecodeHints.QR_ONLY);
+			// Solo QR: el EAN no se busca
+			assertThrows(NotFoundException.class, () -> readers.decode(ean, DecodeHints.QR_ONLY));
+		}
+
+		// El mismo juego vuelve del pool con el lector de QR ya armado y suma uno para todos los formatos
+		try (DecodeReaders readers = DecodeReaders.acquire()) {
+			Result result = readers.decode(ean, DecodeHints.ALL_FORMATS);
+			assertEquals(EAN, result.getText());
+			assertEquals(BarcodeFormat.EAN_13, result.getBarcodeFormat());
+			assertSame(qrReader, readers(readers).get(DecodeHints.QR_ONLY));
+			assertEquals(2, readers(readers).size());
+			assertEquals("hola", readers.decode(qr, DecodeHints.ALL_FORMATS).getText());
+			assertEquals(2, readers(readers).size());
+		}
+	}
+
+	@Test
+	void decodesAgainAfterAMiss() throws Exception {
+		BinaryBitmap blank = bitmap(canvas(300, 300));
+		BinaryBitmap qr = bitmap(qr("después del fallo"));
+		try (DecodeReaders readers = DecodeReaders.acquire()) {
+			assertThrows(NotFoundException.class, () -> readers.decode(blank, DecodeHints.TRY_HARDER));
+			assertEquals("después del fallo", readers.decode(qr, DecodeHints.TRY_HARDER).getText());
+			assertThrows(NotFoundException.class, () -> readers.decode(blank, DecodeHints.TRY_HARDER));
+			assertEquals("después del fallo", readers.decode(qr, DecodeHints.TRY_HARDER).getText());
+		}
+	}
+
+	@Test
+	void capsTheHintSetsKeptPerReaderSet() throws Exception {
+		BinaryBitmap qr = bitmap(qr("hola"));
+		try (DecodeReaders readers = DecodeReaders.acquire()) {
+			for (int i = 0; i < 20; i++) {
+				// Mapas armados en el momento: iguales pero no idénticos
+				assertEquals("hola", readers.decode(qr, new HashMap<>(DecodeHints.QR_ONLY)).getText());
+			}
+			assertEquals(16, readers(readers).size());
+		}
+	}
+
+	@Test
+	void findsEveryCodeOfEachKind() throws Exception {
+		BufferedImage photo = canvas(900, 400);
+		draw(photo, qr("uno"), 20, 20);
+		draw(photo, qr("dos"), 320, 20);
+		draw(photo, ean(), 620, 100);
+		BinaryBitmap bitmap = bitmap(photo);
+		try (DecodeReaders readers = DecodeReaders.acquire()) {
+			assertEquals(List.of("dos", "uno"), texts(readers.decodeQrMultiple(bitmap)));
+			assertEquals(List.of(EAN), texts(readers.decodeOthersMultiple(bitmap)));
+			// Y otra vez con el mismo juego
+			assertEquals(List.of("dos", "uno"), texts(readers.decodeQrMultiple(bitmap)));
+			assertEquals(List.of(EAN), texts(readers.decodeOthersMultiple(bitmap)));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Queue<DecodeReaders> pool() {
+		return (Queue<DecodeReaders>) ReflectionTestUtils.getField(DecodeReaders.class, "POOL");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<Object, MultiFormatReader> readers(DecodeReaders readers) {
+		return (Map<Object, MultiFormatReader>) ReflectionTestUtils.getField(readers, "readers");
+	}
+
+	private static List<String> texts(Result[] results) {
+		return Arrays.stream(results).map(Result::getText).sorted().toList();
+	}
+
+	private static BinaryBitmap bitmap(BufferedImage image) {
+		return new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+	}
+
+	private static BufferedImage qr(String text) throws Exception {
+		return MatrixToImageWriter.toBufferedImage(new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 240, 240));
+	}
+
+	private static BufferedImage ean() throws Exception {
+		BitMatrix matrix = new EAN13Writer().encode(EAN, BarcodeFormat.EAN_13, 240, 120);
+		return MatrixToImageWriter.toBufferedImage(matrix);
+	}
+
+	private static BufferedImage canvas(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+		return image;
+	}
+
+	private static void draw(BufferedImage target, BufferedImage code, int x, int y) {
+		Graphics2D g = target.createGraphics();
+		g.drawImage(code, x, y, null);
+		g.dispose();
+	}
+}
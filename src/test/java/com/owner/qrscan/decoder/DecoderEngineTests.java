@@ -0,0 +1,104 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.oned.EAN13Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.owner.qrscan.metrics.ScanMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DecoderEngineTests {
+
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(8, 1 << 24);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	private final List<DecodeTier> chain = List.of(DecodeTier.QR_FAST, DecodeTier.ALL_FORMATS,
+			DecodeTier.TRY_HARDER, DecodeTier.INVERTED);
+	private final DecoderEngine engine = new DecoderEngine(pool, new ScanMetrics(registry), executor, chain,
+			null, 60_000, 1024);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void stopsAtTheFirstTierThatFindsTheCode() throws Exception {
+		DecodeResult result = engine.decode(plane(qr("qr-scan-api")), ScanOptions.DEFAULT);
+
+		assertEquals("qr-scan-api", result.text());
+		assertEquals(DecodeTier.QR_FAST, result.tier());
+		assertEquals(1, attempts(DecodeTier.QR_FAST, "hit"));
+		assertEquals(0, attempts(DecodeTier.ALL_FORMATS, "hit") + attempts(DecodeTier.ALL_FORMATS, "miss"));
+		assertEquals(0, attempts(DecodeTier.TRY_HARDER, "hit") + attempts(DecodeTier.TRY_HARDER, "miss"));
+	}
+
+	@Test
+	void fallsThroughToTheNextTierOnAMiss() throws Exception {
+		// QR_FAST solo busca QR: el EAN-13 lo encuentra el nivel siguiente
+		BufferedImage ean = MatrixToImageWriter.toBufferedImage(
+				new EAN13Writer().encode("5901234123457", BarcodeFormat.EAN_13, 300, 120));
+		DecodeResult result = engine.decode(plane(ean), ScanOptions.DEFAULT);
+
+		assertEquals("5901234123457", result.text());
+		assertEquals(BarcodeFormat.EAN_13, result.format());
+		assertEquals(DecodeTier.ALL_FORMATS, result.tier());
+		assertEquals(1, attempts(DecodeTier.QR_FAST, "miss"));
+		assertEquals(0, attempts(DecodeTier.TRY_HARDER, "hit") + attempts(DecodeTier.TRY_HARDER, "miss"));
+	}
+
+	@Test
+	void reachesTheLastTierSequentiallyAndInParallel() throws Exception {
+		BufferedImage inverted = invert(qr("claro-sobre-oscuro"));
+
+		DecodeResult sequential = engine.decode(plane(inverted), ScanOptions.DEFAULT);
+		assertEquals("claro-sobre-oscuro", sequential.text());
+		assertEquals(DecodeTier.INVERTED, sequential.tier());
+
+		DecodeResult parallel = engine.decode(plane(inverted), ScanOptions.DEFAULT, chain, DecodeTier.TRY_HARDER, 60_000);
+		assertEquals("claro-sobre-oscuro", parallel.text());
+		assertEquals(DecodeTier.INVERTED, parallel.tier());
+	}
+
+	@Test
+	void returnsNullWhenNoTierFindsACode() {
+		BufferedImage blank = new BufferedImage(200, 200, BufferedImage.TYPE_BYTE_GRAY);
+
+		assertNull(engine.decode(plane(blank), ScanOptions.DEFAULT));
+		for (DecodeTier tier : chain) {
+			assertEquals(1, attempts(tier, "miss"), tier.name());
+		}
+	}
+
+	private LuminancePlane plane(BufferedImage image) {
+		return LuminancePlane.fromImage(image, pool);
+	}
+
+	private long attempts(DecodeTier tier, String outcome) {
+		return registry.get("qrscan.decode.attempt").tag("tier", tier.name()).tag("outcome", outcome).timer().count();
+	}
+
+	private static BufferedImage qr(String text) throws Exception {
+		return MatrixToImageWriter.toBufferedImage(new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 200, 200));
+	}
+
+	private static BufferedImage invert(BufferedImage image) {
+		BufferedImage inverted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				inverted.setRGB(x, y, ~image.getRGB(x, y));
+			}
+		}
+		return inverted;
+	}
+}
@@ -0,0 +1,84 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GrayscaleLuminanceSourceTests {
+
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(4, 1 << 20);
+
+	@Test
+	void matchesBufferedImageLuminanceSource() {
+		for (int type : new int[]{BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+				BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY,
+				BufferedImage.TYPE_USHORT_565_RGB}) {
+			BufferedImage image = randomImage(37, 23, type);
+			LuminanceSource expected = new BufferedImageLuminanceSource(image);
+			try (LuminancePlane plane = LuminancePlane.fromImage(image, pool)) {
+				assertArrayEquals(expected.getMatrix(), plane.source().getMatrix(), "type " + type);
+			}
+		}
+	}
+
+	@Test
+	void rotationsAndCropsMatchRotatedCopies() {
+		BufferedImage image = randomImage(31, 17, BufferedImage.TYPE_3BYTE_BGR);
+		LuminanceSource expected = new BufferedImageLuminanceSource(image);
+		try (LuminancePlane plane = LuminancePlane.fromImage(image, pool)) {
+			LuminanceSource ccw90 = expected.rotateCounterClockwise();
+			LuminanceSource ccw180 = ccw90.rotateCounterClockwise();
+			LuminanceSource ccw270 = ccw180.rotateCounterClockwise();
+			assertArrayEquals(ccw90.getMatrix(), plane.source(270).getMatrix());
+			assertArrayEquals(ccw180.getMatrix(), plane.source(180).getMatrix());
+			assertArrayEquals(ccw270.getMatrix(), plane.source(90).getMatrix());
+			assertArrayEquals(ccw90.getMatrix(), plane.source().rotateCounterClockwise().getMatrix());
+			for (int rotation : new int[]{0, 90, 180, 270}) {
+				LuminanceSource view = plane.source(rotation);
+				LuminanceSource cropped = view.crop(3, 5, 7, 9);
+				byte[] row = new byte[7];
+				for (int y = 0; y < 9; y++) {
+					byte[] full = view.getRow(y + 5, null);
+					byte[] expectedRow = java.util.Arrays.copyOfRange(full, 3, 10);
+					assertArrayEquals(expectedRow, cropped.getRow(y, row), "rotation " + rotation);
+				}
+			}
+		}
+	}
+
+	@Test
+	void decodesRotatedCodesWithoutCopies() throws Exception {
+		BufferedImage image = MatrixToImageWriter.toBufferedImage(
+				new QRCodeWriter().encode("qr-scan-api", BarcodeFormat.QR_CODE, 200, 200));
+		try (LuminancePlane plane = LuminancePlane.fromImage(image, pool)) {
+			for (int rotation : new int[]{0, 90, 180, 270}) {
+				Result result = new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(plane.source(rotation))));
+				assertEquals("qr-scan-api", result.getText());
+			}
+		}
+	}
+
+	private static BufferedImage randomImage(int width, int height, int type) {
+		Random random = new Random(width * 31L + type);
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,88 @@
+package com.owner.qrscan.decoder;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageHeaderTests {
+
+	@Test
+	void readsFormatAndSizeFromTheHeader() throws IOException {
+		for (String format : new String[]{"png", "jpg", "gif", "bmp"}) {
+			byte[] image = encode(format, 37, 23);
+			ImageHeader header = ImageHeader.sniff(image, image.length);
+			assertNotNull(header, format);
+			assertEquals(37, header.width(), format);
+			assertEquals(23, header.height(), format);
+			assertEquals(37L * 23, header.pixels(), format);
+		}
+	}
+
+	@Test
+	void readsAnImageInsideALargerArray() throws IOException {
+		for (String format : new String[]{"png", "jpg", "gif", "bmp"}) {
+			byte[] image = encode(format, 41, 17);
+			byte[] message = new byte[image.length + 20];
+			Arrays.fill(message, (byte) 0x7F);
+			System.arraycopy(image, 0, message, 12, image.length);
+			ImageHeader header = ImageHeader.sniff(message, 12, image.length);
+			assertNotNull(header, format);
+			assertEquals(41, header.width(), format);
+			assertEquals(17, header.height(), format);
+		}
+	}
+
+	@Test
+	void asksForMoreBytesUntilTheSizeArrives() throws IOException {
+		byte[] png = encode("png", 37, 23);
+		assertNull(ImageHeader.sniff(png, 3));
+		assertNull(ImageHeader.sniff(png, 23));
+		assertNotNull(ImageHeader.sniff(png, 24));
+
+		// Un segmento APP1 de 1000 bytes (como un EXIF) antes del SOF
+		byte[] jpeg = encode("jpg", 37, 23);
+		byte[] withExif = new byte[jpeg.length + 1004];
+		withExif[0] = (byte) 0xFF;
+		withExif[1] = (byte) 0xD8;
+		withExif[2] = (byte) 0xFF;
+		withExif[3] = (byte) 0xE1;
+		withExif[4] = (byte) (1002 >> 8);
+		withExif[5] = (byte) (1002 & 0xFF);
+		System.arraycopy(jpeg, 2, withExif, 1006, jpeg.length - 2);
+		assertNull(ImageHeader.sniff(withExif, 1000));
+		assertEquals(37, ImageHeader.sniff(withExif, withExif.length).width());
+	}
+
+	@Test
+	void recognizesTiffWithoutItsSize() throws IOException {
+		ImageHeader header = ImageHeader.sniff(new byte[]{'I', 'I', 42, 0, 8, 0, 0, 0}, 8);
+		assertEquals("TIFF", header.format());
+		assertFalse(header.hasDimensions());
+	}
+
+	@Test
+	void rejectsWhatIsNotAnImage() {
+		byte[] text = "hola, esto no es una imagen".getBytes(StandardCharsets.UTF_8);
+		assertThrows(IOException.class, () -> ImageHeader.sniff(text, text.length));
+		// JPEG cuyos segmentos no empiezan con 0xFF
+		assertThrows(IOException.class, () -> ImageHeader.sniff(new byte[]{(byte) 0xFF, (byte) 0xD8, 0x12, 0x34, 0, 0}, 6));
+	}
+
+	static byte[] encode(String format, int width, int height) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format, out);
+		return out.toByteArray();
+	}
+}
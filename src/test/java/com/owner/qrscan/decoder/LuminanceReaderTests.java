@@ -0,0 +1,192 @@
+package com.owner.qrscan.decoder;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LuminanceReaderTests {
+
+	private static final String JPEG_METADATA = "javax_imageio_jpeg_image_1.0";
+
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(8, 1 << 24);
+
+	@Test
+	void choosesTheSmallestSubsamplingThatFits() {
+		assertEquals(1, new LuminanceReader(pool, 0).subsampling(50_000, 50_000));
+		LuminanceReader reader = new LuminanceReader(pool, 1_000_000);
+		assertEquals(1, reader.subsampling(1000, 1000));
+		assertEquals(2, reader.subsampling(1001, 1000));
+		assertEquals(4, reader.subsampling(4000, 3000));
+		// sqrt(12) redondea a 4, pero 4 no alcanza con los bordes redondeados hacia arriba
+		assertEquals(5, new LuminanceReader(pool, 12).subsampling(13, 13));
+	}
+
+	@Test
+	void readsPngsExactly() throws IOException {
+		BufferedImage image = gradient(97, 61);
+		byte[] png = encode(image, "png");
+		try (LuminancePlane expected = LuminancePlane.fromImage(image, pool);
+			 LuminancePlane plane = new LuminanceReader(pool, 0).read(png, png.length).plane()) {
+			assertEquals(97, plane.width());
+			assertEquals(61, plane.height());
+			assertArrayEquals(expected.data(), plane.data());
+		}
+	}
+
+	@Test
+	void readsTheLumaOfJpegsDirectly() throws IOException {
+		BufferedImage image = gradient(80, 64);
+		byte[] jpeg = encode(image, "jpeg");
+		try (LuminancePlane expected = LuminancePlane.fromImage(ImageIO.read(new ByteArrayInputStream(jpeg)), pool);
+			 LuminancePlane plane = new LuminanceReader(pool, 0).read(jpeg, jpeg.length).plane()) {
+			assertEquals(80, plane.width());
+			assertEquals(64, plane.height());
+			// El canal Y del JPEG y la luminancia calculada desde RGB difieren solo por redondeos
+			assertClose(expected.data(), plane.data(), 3);
+		}
+	}
+
+	@Test
+	void fallsBackToRgbForJpegsThatCannotBeReadAsGray() throws IOException {
+		BufferedImage image = gradient(64, 48);
+		byte[] jpeg = encodeAdobeRgbJpeg(image);
+		try (LuminancePlane expected = LuminancePlane.fromImage(ImageIO.read(new ByteArrayInputStream(jpeg)), pool);
+			 LuminancePlane plane = new LuminanceReader(pool, 0).read(jpeg, jpeg.length).plane()) {
+			assertEquals(64, plane.width());
+			assertArrayEquals(expected.data(), plane.data());
+		}
+	}
+
+	@Test
+	void subsamplesLargeImages() throws IOException {
+		BufferedImage image = gradient(400, 300);
+		byte[] png = encode(image, "png");
+		// 120.000 píxeles con un tope de 20.000: uno de cada 3 en cada sentido
+		LuminanceReader.Decoded decoded = new LuminanceReader(pool, 20_000).read(png, png.length);
+		try (LuminancePlane full = LuminancePlane.fromImage(image, pool); LuminancePlane plane = decoded.plane()) {
+			assertEquals(3, decoded.subsampling());
+			assertEquals(134, plane.width());
+			assertEquals(100, plane.height());
+			for (int y = 0; y < plane.height(); y++) {
+				for (int x = 0; x < plane.width(); x++) {
+					assertEquals(full.data()[y * 3 * 400 + x * 3], plane.data()[y * 134 + x]);
+				}
+			}
+		}
+	}
+
+	@Test
+	void readsAnImageAtAnOffset() throws IOException {
+		BufferedImage image = gradient(33, 21);
+		byte[] png = encode(image, "png");
+		byte[] framed = new byte[png.length + 20];
+		System.arraycopy(png, 0, framed, 7, png.length);
+		try (LuminancePlane expected = LuminancePlane.fromImage(image, pool);
+			 LuminancePlane plane = new LuminanceReader(pool, 0).read(framed, 7, png.length).plane()) {
+			assertArrayEquals(expected.data(), plane.data());
+		}
+	}
+
+	@Test
+	void disposesReadersThatFailInsteadOfPoolingThem() throws IOException {
+		LuminanceReader reader = new LuminanceReader(pool, 0);
+		byte[] png = encode(gradient(64, 64), "png");
+		reader.read(png, png.length).plane().close();
+		assertEquals(1, pooled(reader, "PNG").size());
+
+		// Cabecera válida y datos cortados: falla a mitad de la lectura
+		byte[] truncated = Arrays.copyOf(png, png.length / 2);
+		assertThrows(IOException.class, () -> reader.read(truncated, truncated.length));
+		assertTrue(pooled(reader, "PNG").isEmpty());
+
+		assertThrows(IOException.class, () -> reader.read(new byte[]{1, 2, 3, 4}, 4));
+		reader.read(png, png.length).plane().close();
+		assertEquals(1, pooled(reader, "PNG").size());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Queue<ImageReader> pooled(LuminanceReader reader, String format) {
+		Map<String, Queue<ImageReader>> readers = (Map<String, Queue<ImageReader>>) ReflectionTestUtils.getField(reader, "readers");
+		return readers.get(format);
+	}
+
+	private static void assertClose(byte[] expected, byte[] actual, int tolerance) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			int diff = Math.abs((expected[i] & 0xFF) - (actual[i] & 0xFF));
+			assertTrue(diff <= tolerance, "pixel " + i + ": " + (expected[i] & 0xFF) + " vs " + (actual[i] & 0xFF));
+		}
+	}
+
+	private static BufferedImage gradient(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | 128);
+			}
+		}
+		return image;
+	}
+
+	private static byte[] encode(BufferedImage image, String format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * JPEG con los canales en RGB (marcador Adobe con transform 0 y sin JFIF), que libjpeg no pasa a gris
+	 */
+	private static byte[] encodeAdobeRgbJpeg(BufferedImage image) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), param);
+		Node root = metadata.getAsTree(JPEG_METADATA);
+		Node variety = root.getFirstChild();
+		while (variety.hasChildNodes()) {
+			variety.removeChild(variety.getFirstChild());
+		}
+		Node markers = variety.getNextSibling();
+		IIOMetadataNode adobe = new IIOMetadataNode("app14Adobe");
+		adobe.setAttribute("transform", "0");
+		markers.insertBefore(adobe, markers.getFirstChild());
+		NodeList components = ((Element) root).getElementsByTagName("componentSpec");
+		for (int i = 0; i < components.getLength(); i++) {
+			((Element) components.item(i)).setAttribute("componentId", String.valueOf((int) "RGB".charAt(i)));
+		}
+		metadata.setFromTree(JPEG_METADATA, root);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+			writer.setOutput(stream);
+			writer.write(null, new IIOImage(image, null, metadata), param);
+		} finally {
+			writer.dispose();
+		}
+		return out.toByteArray();
+	}
+}
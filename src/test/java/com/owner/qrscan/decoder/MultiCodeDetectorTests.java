@@ -0,0 +1,104 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultiCodeDetectorTests {
+
+	private static final int TILE = 400;
+
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(16, 1 << 26);
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void reportsACodeOnATileBoundaryOnlyOnce() throws Exception {
+		BufferedImage photo = new BufferedImage(1200, 800, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D g = photo.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, 1200, 800);
+		g.drawImage(qr("izquierda", 180), 20, 20, null);
+		g.drawImage(qr("derecha", 180), 980, 580, null);
+		// Cruza los bordes x = 400 e y = 400: lo encuentran el recorte solapado que lo contiene y la pasada reducida
+		g.drawImage(qr("en-el-borde", 180), 310, 310, null);
+		g.dispose();
+
+		List<DetectedCode> codes;
+		try (DecodeContext context = new DecodeContext(LuminancePlane.fromImage(photo, pool), pool, ScanOptions.DEFAULT)) {
+			codes = MultiCodeDetector.detect(context, executor, TILE, System.nanoTime() + TimeUnit.SECONDS.toNanos(30));
+		}
+
+		Map<String, DetectedCode> byText = codes.stream()
+				.collect(Collectors.toMap(DetectedCode::text, Function.identity()));
+		assertEquals(3, codes.size(), codes.stream().map(DetectedCode::text).toList().toString());
+		// Las esquinas vuelven en coordenadas de la foto, no del recorte
+		assertNear(byText.get("izquierda"), 110, 110);
+		assertNear(byText.get("derecha"), 1070, 670);
+		assertNear(byText.get("en-el-borde"), 400, 400);
+		assertEquals(BarcodeFormat.QR_CODE, byText.get("en-el-borde").format());
+	}
+
+	@Test
+	void tilesOverlapByHalfAndCoverTheWholeArea() {
+		Region area = new Region(10, 20, 1300, 900);
+		List<Region> tiles = MultiCodeDetector.tiles(area, TILE);
+
+		for (Region tile : tiles) {
+			assertEquals(TILE, tile.width());
+			assertEquals(TILE, tile.height());
+			assertTrue(tile.x() >= 10 && tile.x() + tile.width() <= 1310, tile.toString());
+			assertTrue(tile.y() >= 20 && tile.y() + tile.height() <= 920, tile.toString());
+		}
+		// Todo código de hasta medio recorte entra entero en alguno
+		int half = TILE / 2;
+		for (int y = 20; y + half <= 920; y += 25) {
+			for (int x = 10; x + half <= 1310; x += 25) {
+				Region code = new Region(x, y, half, half);
+				assertTrue(tiles.stream().anyMatch(tile -> contains(tile, code)), code.toString());
+			}
+		}
+	}
+
+	@Test
+	void usesASingleTileForSmallAreas() {
+		Region area = new Region(0, 0, 600, 500);
+		assertEquals(List.of(area), MultiCodeDetector.tiles(area, TILE));
+	}
+
+	private static boolean contains(Region outer, Region inner) {
+		return inner.x() >= outer.x() && inner.y() >= outer.y()
+				&& inner.x() + inner.width() <= outer.x() + outer.width()
+				&& inner.y() + inner.height() <= outer.y() + outer.height();
+	}
+
+	private static void assertNear(DetectedCode code, float x, float y) {
+		float[] center = code.center();
+		assertTrue(Math.abs(center[0] - x) < 30 && Math.abs(center[1] - y) < 30,
+				code.text() + " en " + center[0] + "," + center[1]);
+	}
+
+	private static BufferedImage qr(String text, int size) throws Exception {
+		return MatrixToImageWriter.toBufferedImage(new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, size, size));
+	}
+}
@@ -0,0 +1,125 @@
+package com.owner.qrscan.decoder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionDetectorTests {
+
+	private final LuminanceBufferPool pool = new LuminanceBufferPool(8, 1 << 24);
+
+	@Test
+	void findsAnOffCentreCodeAndMapsItBackToTheFullImage() throws Exception {
+		BufferedImage photo = canvas(2400, 1600);
+		draw(photo, qr("fuera-del-centro", 240), 1700, 1100);
+
+		try (LuminancePlane plane = LuminancePlane.fromImage(photo, pool);
+			 LuminancePlane reduced = plane.downscale(3, pool)) {
+			List<Region> regions = RegionDetector.detect(reduced, 3, 2400, 1600, 4);
+
+			assertEquals(1, regions.size());
+			Region region = regions.get(0);
+			// Contiene el código entero, con margen, y es mucho más chica que la foto
+			assertTrue(region.x() <= 1700 && region.y() <= 1100, region.toString());
+			assertTrue(region.x() + region.width() >= 1940 && region.y() + region.height() >= 1340, region.toString());
+			assertTrue(region.area() < 2400L * 1600 / 20, region.toString());
+			// El recorte a resolución completa se decodifica
+			assertEquals("fuera-del-centro", new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(
+					plane.source().crop(region.x(), region.y(), region.width(), region.height())))).getText());
+		}
+	}
+
+	@Test
+	void clampsRegionsToTheImageBorders() throws Exception {
+		BufferedImage photo = canvas(900, 600);
+		draw(photo, qr("esquina", 150), 0, 450);
+
+		try (LuminancePlane plane = LuminancePlane.fromImage(photo, pool)) {
+			Region region = RegionDetector.detect(plane, 1, 900, 600, 4).get(0);
+			assertEquals(0, region.x());
+			assertEquals(600, region.y() + region.height());
+			assertTrue(region.y() <= 450);
+		}
+	}
+
+	@Test
+	void returnsTheLargestRegionsFirstUpToTheLimit() throws Exception {
+		BufferedImage photo = canvas(1600, 1200);
+		draw(photo, qr("chico", 120), 100, 100);
+		draw(photo, qr("grande", 300), 900, 700);
+		draw(photo, qr("mediano", 200), 1200, 100);
+
+		try (LuminancePlane plane = LuminancePlane.fromImage(photo, pool)) {
+			List<Region> regions = RegionDetector.detect(plane, 1, 1600, 1200, 2);
+			assertEquals(2, regions.size());
+			assertTrue(contains(regions.get(0), 1050, 850), regions.toString());
+			assertTrue(contains(regions.get(1), 1300, 200), regions.toString());
+		}
+	}
+
+	@Test
+	void ignoresFlatImagesAndZonesTooLargeToHelp() {
+		try (LuminancePlane flat = LuminancePlane.fromImage(canvas(640, 480), pool)) {
+			assertTrue(RegionDetector.detect(flat, 1, 640, 480, 4).isEmpty());
+		}
+		// Ruido en toda la foto: la única zona ocupa casi todo y no ahorra nada frente a la imagen completa
+		BufferedImage noise = new BufferedImage(640, 480, BufferedImage.TYPE_BYTE_GRAY);
+		Random random = new Random(7);
+		for (int y = 0; y < 480; y++) {
+			for (int x = 0; x < 640; x++) {
+				noise.getRaster().setSample(x, y, 0, random.nextBoolean() ? 255 : 0);
+			}
+		}
+		try (LuminancePlane plane = LuminancePlane.fromImage(noise, pool)) {
+			assertTrue(RegionDetector.detect(plane, 1, 640, 480, 4).isEmpty());
+		}
+		try (LuminancePlane tiny = LuminancePlane.fromImage(canvas(12, 12), pool)) {
+			assertTrue(RegionDetector.detect(tiny, 1, 12, 12, 4).isEmpty());
+		}
+	}
+
+	@Test
+	void clampsAndScalesRegions() {
+		assertEquals(new Region(0, 10, 50, 40), new Region(-20, 10, 70, 60).clampTo(50, 50));
+		assertNull(new Region(60, 0, 10, 10).clampTo(50, 50));
+		assertEquals(new Region(3, 1, 4, 3), new Region(10, 5, 12, 7).scaleDown(3));
+		assertEquals(new Region(10, 5, 12, 7), new Region(10, 5, 12, 7).scaleDown(1));
+	}
+
+	private static boolean contains(Region region, int x, int y) {
+		return x >= region.x() && y >= region.y() && x < region.x() + region.width() && y < region.y() + region.height();
+	}
+
+	private static BufferedImage canvas(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+		return image;
+	}
+
+	private static void draw(BufferedImage target, BufferedImage code, int x, int y) {
+		Graphics2D g = target.createGraphics();
+		g.drawImage(code, x, y, null);
+		g.dispose();
+	}
+
+	private static BufferedImage qr(String text, int size) throws Exception {
+		return MatrixToImageWriter.toBufferedImage(new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, size, size));
+	}
+}
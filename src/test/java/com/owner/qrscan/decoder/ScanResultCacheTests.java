@@ -0,0 +1,120 @@
+package com.owner.qrscan.decoder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ScanResultCacheTests {
+
+	private static final ContentHash CONTENT = ContentHash.of(new byte[]{1, 2, 3});
+	private static final Map<String, String> FOUND = Map.of("status", "success", "data", "hola");
+	private static final Map<String, String> NOT_FOUND = Map.of("status", "not_found");
+
+	@Test
+	void concurrentIdenticalLoadsDecodeOnce() throws Exception {
+		ScanResultCache cache = new ScanResultCache(true, 100, 600, 30);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Map<String, String>> owner = executor.submit(() -> cache.get(CONTENT, "", () -> {
+				loads.incrementAndGet();
+				loading.countDown();
+				await(release);
+				return FOUND;
+			}));
+			loading.await();
+			Future<Map<String, String>> waiter = executor.submit(() -> cache.get(CONTENT, "", () -> {
+				loads.incrementAndGet();
+				return FOUND;
+			}));
+			release.countDown();
+			assertEquals(FOUND, owner.get(5, TimeUnit.SECONDS));
+			assertEquals(FOUND, waiter.get(5, TimeUnit.SECONDS));
+			assertEquals(1, loads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void waitersGetTheRejectionOfTheLoader() throws Exception {
+		ScanResultCache cache = new ScanResultCache(true, 100, 600, 30);
+		AdmissionRejectedException rejection = new AdmissionRejectedException(
+				AdmissionRejectedException.Reason.CONCURRENCY, 1, "Demasiadas decodificaciones en curso.");
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<Thread> waiterThread = new AtomicReference<>();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Map<String, String>> owner = executor.submit(() -> cache.get(CONTENT, "", () -> {
+				loading.countDown();
+				await(release);
+				throw rejection;
+			}));
+			loading.await();
+			Future<Map<String, String>> waiter = executor.submit(() -> {
+				waiterThread.set(Thread.currentThread());
+				return cache.get(CONTENT, "", () -> fail("El segundo pedido tenía que esperar al primero"));
+			});
+			// El segundo pedido queda esperando el resultado del primero antes de que este falle
+			while (waiterThread.get() == null || waiterThread.get().getState() != Thread.State.WAITING) {
+				Thread.onSpinWait();
+			}
+			release.countDown();
+			for (Future<Map<String, String>> future : new Future[]{owner, waiter}) {
+				Exception e = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+				assertSame(rejection, e.getCause());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void notFoundExpiresWithTheNegativeTtl() throws Exception {
+		ScanResultCache cache = new ScanResultCache(true, 100, 600, 0);
+		AtomicInteger loads = new AtomicInteger();
+		cache.get(CONTENT, "found", () -> {
+			loads.incrementAndGet();
+			return FOUND;
+		});
+		cache.get(CONTENT, "found", () -> {
+			loads.incrementAndGet();
+			return FOUND;
+		});
+		assertEquals(1, loads.get());
+
+		cache.get(CONTENT, "missing", () -> {
+			loads.incrementAndGet();
+			return NOT_FOUND;
+		});
+		assertEquals(NOT_FOUND, cache.get(CONTENT, "missing", () -> {
+			loads.incrementAndGet();
+			return NOT_FOUND;
+		}));
+		assertEquals(3, loads.get());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.owner.qrscan.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvRowsTests {
+
+	@Test
+	void readsPlainAndQuotedFields() throws IOException {
+		List<CsvRows.Row> rows = readAll(String.join("\n",
+				"https://ejemplo.com/1,uno",
+				"\"a, b y c\",\"con \"\"comillas\"\"\"",
+				"solo-texto",
+				"\"texto \"\"citado\"\"\",",
+				"\"\"\", empieza con comilla\","), false);
+
+		assertEquals(List.of(
+				new CsvRows.Row(1, "https://ejemplo.com/1", "uno"),
+				new CsvRows.Row(2, "a, b y c", "con \"comillas\""),
+				new CsvRows.Row(3, "solo-texto", null),
+				new CsvRows.Row(4, "texto \"citado\"", null),
+				new CsvRows.Row(5, "\", empieza con comilla", null)), rows);
+	}
+
+	@Test
+	void skipsBlankLinesAndKeepsTheirNumbers() throws IOException {
+		List<CsvRows.Row> rows = readAll("texto,nombre\n\nuno\n   \r\ndos,\"\"\n", true);
+
+		assertEquals(List.of(
+				new CsvRows.Row(3, "uno", null),
+				new CsvRows.Row(5, "dos", null)), rows);
+	}
+
+	@Test
+	void dropsTheByteOrderMark() throws IOException {
+		assertEquals(List.of(new CsvRows.Row(1, "hola", "h")), readAll("﻿hola,h\r\n", false));
+		// Con encabezado, el BOM queda en la línea salteada
+		assertEquals(List.of(new CsvRows.Row(2, "hola", null)), readAll("﻿texto\nhola", true));
+	}
+
+	@Test
+	void ignoresWhatFollowsTheClosingQuote() throws IOException {
+		assertEquals(List.of(new CsvRows.Row(1, "abc", "nombre")), readAll("\"abc\"basura,nombre,extra", false));
+	}
+
+	private static List<CsvRows.Row> readAll(String csv, boolean skipHeader) throws IOException {
+		CsvRows reader = new CsvRows(new StringReader(csv), skipHeader);
+		List<CsvRows.Row> rows = new ArrayList<>();
+		CsvRows.Row row;
+		while ((row = reader.next()) != null) {
+			rows.add(row);
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,121 @@
+package com.owner.qrscan.history;
+
+import com.owner.qrscan.models.Qr;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ScanHistoryWriterTests {
+
+	private final ScanHistoryStore store = mock(ScanHistoryStore.class);
+	private final List<Integer> saved = new ArrayList<>();
+	private ScanHistoryWriter writer;
+
+	@AfterEach
+	void stop() throws InterruptedException {
+		if (writer != null) {
+			writer.stop();
+		}
+	}
+
+	@Test
+	void writesAFullBatchWithoutWaitingForTheInterval() {
+		writer = start(true, 100, 3, 60_000);
+		for (int i = 0; i < 3; i++) {
+			assertTrue(writer.record(scan()));
+		}
+
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (writer.written() < 3 && System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+		assertEquals(List.of(3), saved);
+		assertEquals(0, writer.pending());
+	}
+
+	@Test
+	void flushesWhatIsPendingWhenStopping() throws InterruptedException {
+		writer = start(true, 100, 50, 60_000);
+		writer.record(scan());
+		writer.record(scan());
+
+		writer.stop();
+		assertEquals(List.of(2), saved);
+		assertEquals(2, writer.written());
+		assertFalse(writer.record(scan()));
+	}
+
+	@Test
+	void retriesAFailedBatchOneRowAtATime() throws InterruptedException {
+		Qr bad = scan();
+		doAnswer(invocation -> {
+			List<Qr> batch = invocation.getArgument(0);
+			if (batch.contains(bad)) {
+				throw new IllegalStateException("fila inválida");
+			}
+			// El id asignado en el lote fallido no se reutiliza
+			batch.forEach(scan -> assertNull(scan.getId()));
+			saved.add(batch.size());
+			return null;
+		}).when(store).save(anyList());
+		writer = create(true, 100, 50, 60_000);
+
+		Qr first = scan();
+		first.setId(1L);
+		writer.record(first);
+		writer.record(bad);
+		writer.record(scan());
+		writer.stop();
+
+		assertEquals(List.of(1, 1), saved);
+		assertEquals(2, writer.written());
+		assertEquals(1, writer.failed());
+	}
+
+	@Test
+	void dropsScansWhenTheQueueIsFull() {
+		writer = start(true, 2, 50, 60_000);
+		assertTrue(writer.record(scan()));
+		assertTrue(writer.record(scan()));
+		assertFalse(writer.record(scan()));
+		assertEquals(1, writer.dropped());
+	}
+
+	@Test
+	void acceptsNothingWhenDisabled() {
+		writer = start(false, 100, 50, 200);
+		assertFalse(writer.record(scan()));
+		assertEquals(0, writer.pending());
+	}
+
+	private ScanHistoryWriter start(boolean enabled, int capacity, int batchSize, long flushIntervalMs) {
+		doAnswer(invocation -> {
+			saved.add(invocation.<List<Qr>>getArgument(0).size());
+			return null;
+		}).when(store).save(anyList());
+		return create(enabled, capacity, batchSize, flushIntervalMs);
+	}
+
+	private ScanHistoryWriter create(boolean enabled, int capacity, int batchSize, long flushIntervalMs) {
+		ScanHistoryWriter created = new ScanHistoryWriter(enabled, capacity, batchSize, flushIntervalMs);
+		ReflectionTestUtils.setField(created, "store", store);
+		created.start();
+		return created;
+	}
+
+	private static Qr scan() {
+		return new Qr(Qr.Source.PHOTO, Instant.now());
+	}
+}
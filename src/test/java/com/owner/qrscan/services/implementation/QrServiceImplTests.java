@@ -0,0 +1,103 @@
+package com.owner.qrscan.services.implementation;
+
+import com.owner.qrscan.models.Qr;
+import com.owner.qrscan.models.QrScanPage;
+import com.owner.qrscan.models.QrScanView;
+import com.owner.qrscan.respositories.QrRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+class QrServiceImplTests {
+
+	private static final Instant T0 = Instant.parse("2024-05-01T10:00:00Z");
+
+	@Autowired
+	private QrRepository qrRepository;
+
+	private final QrServiceImpl service = new QrServiceImpl();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(service, "qrRepository", qrRepository);
+		ReflectionTestUtils.setField(service, "maxLimit", 500);
+	}
+
+	@Test
+	void walksTheHistoryPageByPage() {
+		// Varias filas en el mismo instante: el id desempata y ninguna se repite ni se pierde entre páginas
+		List<Qr> scans = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			scans.add(scan("client-a", "hola", T0.plusSeconds(i / 3)));
+		}
+		scans.add(scan("client-b", "hola", T0));
+		qrRepository.saveAll(scans);
+
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			QrScanPage page = service.findScans("client-a", null, null, null, cursor, 3);
+			page.items().stream().map(QrScanView::id).forEach(seen::add);
+			cursor = page.nextCursor();
+			pages++;
+		} while (cursor != null);
+
+		List<Long> expected = scans.subList(0, 7).stream()
+				.sorted((a, b) -> a.getScannedAt().equals(b.getScannedAt())
+						? Long.compare(b.getId(), a.getId())
+						: b.getScannedAt().compareTo(a.getScannedAt()))
+				.map(Qr::getId)
+				.toList();
+		assertEquals(expected, seen);
+		assertEquals(3, pages);
+	}
+
+	@Test
+	void filtersByTextAndTimeRange() {
+		qrRepository.saveAll(List.of(
+				scan("client-a", "hola", T0),
+				scan("client-a", "hola", T0.plusSeconds(60)),
+				scan("client-a", "hola", T0.plusSeconds(120)),
+				scan("client-b", "chau", T0.plusSeconds(60))));
+
+		QrScanPage page = service.findScans(null, "hola", T0.plusSeconds(30), T0.plusSeconds(120), null, 10);
+		assertEquals(1, page.items().size());
+		assertEquals(T0.plusSeconds(60), page.items().get(0).scannedAt());
+		assertNull(page.nextCursor());
+
+		QrScanPage exact = service.findScans(null, "hola", null, null, null, 3);
+		assertEquals(3, exact.items().size());
+		assertNull(exact.nextCursor());
+		assertNotNull(service.findScans(null, "hola", null, null, null, 2).nextCursor());
+	}
+
+	@Test
+	void rejectsInvalidQueries() {
+		assertThrows(IllegalArgumentException.class, () -> service.findScans(null, null, null, null, null, 10));
+		assertThrows(IllegalArgumentException.class, () -> service.findScans("a", "b", null, null, null, 10));
+		assertThrows(IllegalArgumentException.class, () -> service.findScans("a", null, null, null, null, 0));
+		assertThrows(IllegalArgumentException.class, () -> service.findScans("a", null, null, null, null, 501));
+		assertThrows(IllegalArgumentException.class, () -> service.findScans("a", null, null, null, "no-es-un-cursor", 10));
+	}
+
+	private static Qr scan(String clientId, String text, Instant scannedAt) {
+		Qr scan = new Qr(Qr.Source.PHOTO, scannedAt);
+		scan.setClientId(clientId);
+		scan.setText(text);
+		scan.setFound(true);
+		return scan;
+	}
+}
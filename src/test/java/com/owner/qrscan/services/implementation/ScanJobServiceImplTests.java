@@ -0,0 +1,128 @@
+package com.owner.qrscan.services.implementation;
+
+import com.owner.qrscan.config.DecoderConfig;
+import com.owner.qrscan.controllers.PhotoController;
+import com.owner.qrscan.decoder.AdmissionRejectedException;
+import com.owner.qrscan.decoder.ScanOptions;
+import com.owner.qrscan.models.ScanJob;
+import com.owner.qrscan.services.PhotoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ScanJobServiceImplTests {
+
+	private final PhotoService photoService = mock(PhotoService.class);
+	// Un solo worker y lugar para cuatro trabajos en la cola
+	private final ThreadPoolExecutor jobExecutor = new DecoderConfig().jobExecutor(1, 4);
+	private final List<Byte> processed = new CopyOnWriteArrayList<>();
+
+	@AfterEach
+	void shutdown() {
+		jobExecutor.shutdownNow();
+	}
+
+	@Test
+	void runsJobsByPriorityAndThenByArrival() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(photoService.processImageInline(any(), any(), any(), any())).thenAnswer(invocation -> {
+			byte[] image = invocation.getArgument(0);
+			if (image[0] == 0) {
+				started.countDown();
+				release.await();
+			}
+			processed.add(image[0]);
+			return Map.of("status", "success");
+		});
+		ScanJobServiceImpl service = service(600);
+
+		// El primero ocupa al worker; los demás esperan en la cola
+		service.submit(new byte[]{0}, null, null, ScanOptions.DEFAULT, ScanJob.Priority.NORMAL);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		ScanJob low = service.submit(new byte[]{1}, null, null, ScanOptions.DEFAULT, ScanJob.Priority.LOW);
+		service.submit(new byte[]{2}, null, null, ScanOptions.DEFAULT, ScanJob.Priority.HIGH);
+		service.submit(new byte[]{3}, null, null, ScanOptions.DEFAULT, ScanJob.Priority.NORMAL);
+		service.submit(new byte[]{4}, null, null, ScanOptions.DEFAULT, ScanJob.Priority.HIGH);
+
+		// Con la cola llena se rechaza enseguida, aun con la prioridad más alta, y la petición responde 503
+		RejectedExecutionException rejected = assertThrows(RejectedExecutionException.class,
+				() -> service.submit(new byte[]{5}, null, null, ScanOptions.DEFAULT, ScanJob.Priority.HIGH));
+		assertEquals(4, jobExecutor.getQueue().size());
+		ResponseEntity<Map<String, String>> response = new PhotoController().handleRejected(rejected);
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+		assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+		release.countDown();
+		await(service, low);
+		assertEquals(List.of((byte) 0, (byte) 2, (byte) 4, (byte) 3, (byte) 1), processed);
+	}
+
+	@Test
+	void retriesAdmissionRejectionsUntilTheJobGetsIn() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		when(photoService.processImageInline(any(), any(), any(), any())).thenAnswer(invocation -> {
+			if (calls.incrementAndGet() == 1) {
+				throw new AdmissionRejectedException(AdmissionRejectedException.Reason.CONCURRENCY, 1, "saturado");
+			}
+			return Map.of("status", "success");
+		});
+		ScanJobServiceImpl service = service(600);
+
+		ScanJob job = service.submit(new byte[]{0}, null, null, ScanOptions.DEFAULT, ScanJob.Priority.NORMAL);
+		await(service, job);
+		assertEquals(ScanJob.Status.DONE, job.getStatus());
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void failsTheJobWhenAdmissionKeepsRejectingPastHalfTheTtl() throws Exception {
+		when(photoService.processImageInline(any(), any(), any(), any())).thenThrow(
+				new AdmissionRejectedException(AdmissionRejectedException.Reason.MEMORY, 1, "sin memoria"));
+		ScanJobServiceImpl service = service(4);
+
+		ScanJob job = service.submit(new byte[]{0}, null, null, ScanOptions.DEFAULT, ScanJob.Priority.NORMAL);
+		await(service, job);
+		assertEquals(ScanJob.Status.FAILED, job.getStatus());
+		assertTrue(job.getResult().get("message").contains("sin memoria"));
+		// Terminó antes de vencer del caché: todavía se puede consultar
+		assertTrue(Duration.between(job.getCreatedAt(), job.getFinishedAt()).toSeconds() <= 2);
+		assertEquals(job, service.getJob(job.getId()).orElseThrow());
+	}
+
+	private ScanJobServiceImpl service(long ttlSeconds) {
+		ScanJobServiceImpl service = new ScanJobServiceImpl(ttlSeconds, 100);
+		ReflectionTestUtils.setField(service, "photoService", photoService);
+		ReflectionTestUtils.setField(service, "jobExecutor", jobExecutor);
+		return service;
+	}
+
+	private static void await(ScanJobServiceImpl service, ScanJob job) throws InterruptedException {
+		Instant deadline = Instant.now().plusSeconds(10);
+		while (job.getStatus().compareTo(ScanJob.Status.DONE) < 0 && Instant.now().isBefore(deadline)) {
+			Thread.sleep(10);
+		}
+		assertTrue(service.getJob(job.getId()).isPresent());
+	}
+}
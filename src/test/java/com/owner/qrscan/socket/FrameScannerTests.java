@@ -0,0 +1,119 @@
+package com.owner.qrscan.socket;
+
+import com.owner.qrscan.decoder.ScanFrame;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameScannerTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final Queue<Runnable> tasks = new ArrayDeque<>();
+	private final List<Long> decoded = new ArrayList<>();
+
+	@Test
+	void decodesOnlyTheLatestFrame() {
+		FrameScanner scanner = new FrameScanner(record(false), tasks::add, SECOND, 0);
+		scanner.offer(frame(1));
+		scanner.offer(frame(2));
+		scanner.offer(frame(3));
+		assertEquals(1, tasks.size());
+
+		runAll();
+		assertEquals(List.of(3L), decoded);
+		assertEquals(3, scanner.received());
+		assertEquals(2, scanner.skipped());
+	}
+
+	@Test
+	void schedulesAgainWhenAFrameArrivesDuringTheDecode() {
+		FrameScanner[] scanner = new FrameScanner[1];
+		scanner[0] = new FrameScanner(frame -> {
+			decoded.add(frame.sequence());
+			if (frame.sequence() == 1) {
+				scanner[0].offer(frame(2));
+			}
+			return false;
+		}, tasks::add, SECOND, 0);
+		scanner[0].offer(frame(1));
+
+		runAll();
+		assertEquals(List.of(1L, 2L), decoded);
+		assertEquals(0, scanner[0].skipped());
+	}
+
+	@Test
+	void dropsFramesThatWaitedTooLong() {
+		FrameScanner scanner = new FrameScanner(record(false), tasks::add, SECOND, 0);
+		scanner.offer(new ScanFrame(1, ScanFrame.Encoding.GRAY8, 1, 1, ByteBuffer.allocate(1), System.nanoTime() - 2 * SECOND));
+
+		runAll();
+		assertTrue(decoded.isEmpty());
+		assertEquals(1, scanner.skipped());
+	}
+
+	@Test
+	void ignoresFramesOfTheSameSceneAfterACode() {
+		FrameScanner scanner = new FrameScanner(record(true), tasks::add, 10 * SECOND, SECOND);
+		scanner.offer(frame(1));
+		runAll();
+
+		scanner.offer(frame(2));
+		assertTrue(tasks.isEmpty());
+		assertEquals(1, scanner.skipped());
+
+		// Un cuadro recibido después de la pausa se vuelve a decodificar
+		scanner.offer(new ScanFrame(3, ScanFrame.Encoding.GRAY8, 1, 1, ByteBuffer.allocate(1), System.nanoTime() + 2 * SECOND));
+		runAll();
+		assertEquals(List.of(1L, 3L), decoded);
+	}
+
+	@Test
+	void keepsTheFrameWhenTheExecutorRejectsIt() {
+		boolean[] reject = {true};
+		Executor executor = task -> {
+			if (reject[0]) {
+				throw new RejectedExecutionException("lleno");
+			}
+			tasks.add(task);
+		};
+		FrameScanner scanner = new FrameScanner(record(false), executor, SECOND, 0);
+		scanner.offer(frame(1));
+		assertTrue(tasks.isEmpty());
+
+		reject[0] = false;
+		scanner.offer(frame(2));
+		runAll();
+		assertEquals(List.of(2L), decoded);
+		assertEquals(1, scanner.skipped());
+	}
+
+	private FrameScanner.Decoder record(boolean found) {
+		return frame -> {
+			decoded.add(frame.sequence());
+			return found;
+		};
+	}
+
+	private void runAll() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+	private static ScanFrame frame(long sequence) {
+		return new ScanFrame(sequence, ScanFrame.Encoding.GRAY8, 1, 1, ByteBuffer.allocate(1), System.nanoTime());
+	}
+}
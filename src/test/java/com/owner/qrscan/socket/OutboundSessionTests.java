@@ -0,0 +1,133 @@
+package com.owner.qrscan.socket;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class OutboundSessionTests {
+
+	private final WebSocketSession delegate = mock(WebSocketSession.class);
+	// El escritor corre recién cuando el test lo pide, así la cola se llena como con un cliente lento
+	private final ManualExecutor writers = new ManualExecutor();
+
+	@Test
+	void dropOldestKeepsTheNewestMessages() throws IOException {
+		OutboundSession session = new OutboundSession(delegate, 2, OutboundSession.OverflowPolicy.DROP_OLDEST, writers);
+		assertTrue(session.send(text("1"), null));
+		assertTrue(session.send(text("2"), null));
+		assertTrue(session.send(text("3"), null));
+		assertEquals(2, session.pending());
+		assertEquals(1, session.dropped());
+
+		writers.runAll();
+		assertEquals(List.of("2", "3"), sent(2));
+		assertEquals(0, session.pending());
+	}
+
+	@Test
+	void coalesceReplacesThePendingMessageWithTheSameKey() throws IOException {
+		OutboundSession session = new OutboundSession(delegate, 4, OutboundSession.OverflowPolicy.COALESCE, writers);
+		assertTrue(session.send(text("Total: 2"), "presence"));
+		assertTrue(session.send(text("hola"), null));
+		assertTrue(session.send(text("Total: 3"), "presence"));
+		assertEquals(2, session.pending());
+		assertEquals(1, session.dropped());
+
+		writers.runAll();
+		assertEquals(List.of("hola", "Total: 3"), sent(2));
+	}
+
+	@Test
+	void coalesceStillDropsTheOldestWhenFull() throws IOException {
+		OutboundSession session = new OutboundSession(delegate, 2, OutboundSession.OverflowPolicy.COALESCE, writers);
+		session.send(text("1"), null);
+		session.send(text("2"), null);
+		session.send(text("3"), "presence");
+
+		writers.runAll();
+		assertEquals(List.of("2", "3"), sent(2));
+	}
+
+	@Test
+	void disconnectClosesTheSessionOnOverflow() throws IOException {
+		OutboundSession session = new OutboundSession(delegate, 1, OutboundSession.OverflowPolicy.DISCONNECT, writers);
+		assertTrue(session.send(text("1"), null));
+		assertFalse(session.send(text("2"), null));
+		verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+		assertFalse(session.send(text("3"), null));
+
+		writers.runAll();
+		verify(delegate, never()).sendMessage(any());
+	}
+
+	@Test
+	void failedWriteClosesTheSession() throws IOException {
+		OutboundSession session = new OutboundSession(delegate, 4, OutboundSession.OverflowPolicy.DROP_OLDEST, writers);
+		doThrow(new IOException("broken pipe")).when(delegate).sendMessage(any());
+		session.send(text("1"), null);
+		session.send(text("2"), null);
+
+		writers.runAll();
+		verify(delegate, times(1)).sendMessage(any());
+		verify(delegate).close(CloseStatus.SERVER_ERROR);
+		assertFalse(session.send(text("3"), null));
+	}
+
+	@Test
+	void oneWriterAtATime() {
+		OutboundSession session = new OutboundSession(delegate, 8, OutboundSession.OverflowPolicy.DROP_OLDEST, writers);
+		session.send(text("1"), null);
+		session.send(text("2"), null);
+		assertEquals(1, writers.tasks.size());
+
+		writers.runAll();
+		session.send(text("3"), null);
+		assertEquals(1, writers.tasks.size());
+	}
+
+	private List<String> sent(int count) throws IOException {
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<WebSocketMessage<?>> messages = ArgumentCaptor.forClass(WebSocketMessage.class);
+		verify(delegate, times(count)).sendMessage(messages.capture());
+		return messages.getAllValues().stream().map(message -> (String) message.getPayload()).toList();
+	}
+
+	private static TextMessage text(String payload) {
+		return new TextMessage(payload);
+	}
+
+	private static final class ManualExecutor implements Executor {
+
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		void runAll() {
+			for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+				task.run();
+			}
+		}
+	}
+}
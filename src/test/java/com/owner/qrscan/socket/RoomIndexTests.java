@@ -0,0 +1,132 @@
+package com.owner.qrscan.socket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoomIndexTests {
+
+	private final RoomIndex<WebSocketSession> rooms = new RoomIndex<>();
+
+	@Test
+	void joinsAndLeavesRooms() {
+		WebSocketSession a = session("a");
+		WebSocketSession b = session("b");
+
+		assertTrue(rooms.join("tienda-1", a));
+		assertFalse(rooms.join("tienda-1", a));
+		assertTrue(rooms.join("tienda-1", b));
+		assertTrue(rooms.join("tienda-2", a));
+
+		assertEquals(2, rooms.size("tienda-1"));
+		assertEquals(Set.of("tienda-1", "tienda-2"), rooms.roomsOf("a"));
+		assertEquals(List.of("a", "b"), ids(rooms.members("tienda-1")).stream().sorted().toList());
+
+		assertTrue(rooms.leave("tienda-1", "a"));
+		assertFalse(rooms.leave("tienda-1", "a"));
+		assertEquals(List.of("b"), ids(rooms.members("tienda-1")));
+		assertEquals(Set.of("tienda-2"), rooms.roomsOf("a"));
+	}
+
+	@Test
+	void dropsRoomsThatBecomeEmpty() {
+		rooms.join("tienda-1", session("a"));
+		rooms.join("tienda-2", session("a"));
+		rooms.join("tienda-2", session("b"));
+		assertEquals(2, rooms.roomCount());
+
+		rooms.leave("tienda-1", "a");
+		assertEquals(1, rooms.roomCount());
+		assertEquals(0, rooms.size("tienda-1"));
+		assertFalse(rooms.members("tienda-1").iterator().hasNext());
+		assertFalse(rooms.leave("tienda-1", "a"));
+	}
+
+	@Test
+	void removesADisconnectedSessionFromAllItsRooms() {
+		rooms.join("tienda-1", session("a"));
+		rooms.join("tienda-2", session("a"));
+		rooms.join("tienda-2", session("b"));
+
+		rooms.leaveAll("a");
+		assertTrue(rooms.roomsOf("a").isEmpty());
+		assertEquals(List.of("b"), ids(rooms.members("tienda-2")));
+		assertEquals(1, rooms.roomCount());
+
+		rooms.leaveAll("b");
+		assertEquals(0, rooms.roomCount());
+		// Sin salas no pasa nada
+		rooms.leaveAll("c");
+	}
+
+	@Test
+	void validatesRoomNames() {
+		assertTrue(RoomIndex.isValidName("tienda-42_norte.b:1"));
+		assertFalse(RoomIndex.isValidName(null));
+		assertFalse(RoomIndex.isValidName(""));
+		assertFalse(RoomIndex.isValidName("con espacio"));
+		assertFalse(RoomIndex.isValidName("x".repeat(65)));
+	}
+
+	@Test
+	void neverLosesAMemberWhileOthersEmptyTheRoom() throws Exception {
+		// Unos entran y salen sin parar (la sala se vacía y se borra muchas veces) mientras otros entran una
+		// sola vez: ninguno de estos puede quedar afuera por un borrado que se cruzó con su alta
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		List<WebSocketSession> stayers = new ArrayList<>();
+		try {
+			for (int t = 0; t < threads; t++) {
+				WebSocketSession churner = session("entra-y-sale-" + t);
+				WebSocketSession stayer = session("se-queda-" + t);
+				stayers.add(stayer);
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < 2_000; i++) {
+						rooms.join("tienda", churner);
+						rooms.leave("tienda", churner.getId());
+						if (i == 1_000) {
+							rooms.join("tienda", stayer);
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(threads, rooms.size("tienda"));
+		assertEquals(ids(stayers).stream().sorted().toList(), ids(rooms.members("tienda")).stream().sorted().toList());
+	}
+
+	private static List<String> ids(Iterable<WebSocketSession> sessions) {
+		List<String> ids = new ArrayList<>();
+		sessions.forEach(session -> ids.add(session.getId()));
+		return ids;
+	}
+
+	private static WebSocketSession session(String id) {
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn(id);
+		return session;
+	}
+}
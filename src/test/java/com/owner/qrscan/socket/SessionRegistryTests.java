@@ -0,0 +1,118 @@
+package com.owner.qrscan.socket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SessionRegistryTests {
+
+	private final SessionRegistry<WebSocketSession> registry = new SessionRegistry<>();
+
+	@Test
+	void findsSessionsBySocketIdAndSessionId() {
+		WebSocketSession session = session("s1");
+		WebSocketSession anonymous = session("s2");
+
+		assertNull(registry.register(session, "caja-1"));
+		assertNull(registry.register(anonymous, null));
+		// Registrar otra vez la misma sesión no la cuenta dos veces ni la informa como reconexión
+		assertNull(registry.register(session, "caja-1"));
+
+		assertEquals(2, registry.size());
+		assertSame(session, registry.find("caja-1"));
+		assertSame(session, registry.find("s1"));
+		assertSame(anonymous, registry.find("s2"));
+		assertEquals("caja-1", registry.socketIdOf("s1"));
+		assertNull(registry.socketIdOf("s2"));
+		assertNull(registry.find("otra"));
+	}
+
+	@Test
+	void rebindsTheSocketIdToTheNewSessionOnReconnect() {
+		WebSocketSession old = session("s1");
+		WebSocketSession reconnected = session("s2");
+		registry.register(old, "caja-1");
+
+		assertSame(old, registry.register(reconnected, "caja-1"));
+		assertSame(reconnected, registry.find("caja-1"));
+
+		// Cuando por fin se cierra la vieja, el socketId sigue en la nueva
+		assertTrue(registry.unregister("s1"));
+		assertSame(reconnected, registry.find("caja-1"));
+		assertEquals(1, registry.size());
+
+		assertTrue(registry.unregister("s2"));
+		assertNull(registry.find("caja-1"));
+		assertFalse(registry.unregister("s2"));
+		assertEquals(0, registry.size());
+	}
+
+	@Test
+	void removesEveryIndexOnDisconnect() {
+		registry.register(session("s1"), "caja-1");
+		registry.register(session("s2"), null);
+
+		registry.unregister("s1");
+		assertNull(registry.find("caja-1"));
+		assertNull(registry.find("s1"));
+		assertNull(registry.socketIdOf("s1"));
+		List<String> remaining = new ArrayList<>();
+		registry.sessions().forEach(session -> remaining.add(session.getId()));
+		assertEquals(List.of("s2"), remaining);
+	}
+
+	@Test
+	void keepsTheCountAndTheLatestBindingUnderConcurrentReconnects() throws Exception {
+		int threads = 8;
+		int rounds = 500;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<WebSocketSession>> last = new ArrayList<>();
+		try {
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				last.add(executor.submit(() -> {
+					start.await();
+					WebSocketSession current = null;
+					for (int i = 0; i < rounds; i++) {
+						WebSocketSession next = session(thread + "-" + i);
+						registry.register(next, "cliente-" + thread);
+						if (current != null) {
+							registry.unregister(current.getId());
+						}
+						current = next;
+					}
+					return current;
+				}));
+			}
+			start.countDown();
+			for (int t = 0; t < threads; t++) {
+				WebSocketSession current = last.get(t).get();
+				assertSame(current, registry.find("cliente-" + t));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(threads, registry.size());
+	}
+
+	private static WebSocketSession session(String id) {
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn(id);
+		return session;
+	}
+}
@@ -0,0 +1,163 @@
+package com.owner.qrscan.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultipartStreamReaderTests {
+
+	private static final String BOUNDARY = "----qrscan7MA4YWxkTrZu0gW";
+
+	@Test
+	void readsPartsAsTheyArrive() throws IOException {
+		// Datos que contienen casi-delimitadores y cruzan varias lecturas del buffer
+		byte[] photo = random(200_000);
+		byte[] tricky = ("a\r\n--" + BOUNDARY.substring(0, 10) + "\r\n-").getBytes(StandardCharsets.ISO_8859_1);
+		byte[] body = new Body()
+				.preamble("se ignora")
+				.field("room", "store-42")
+				.file("photos", "uno.jpg", "image/jpeg", photo)
+				.file("photos", "dos.png", "image/png", tricky)
+				.end();
+
+		for (int chunk : new int[]{body.length, 4096, 7}) {
+			MultipartStreamReader reader = new MultipartStreamReader(new ChunkedInputStream(body, chunk), BOUNDARY, 1 << 20);
+			MultipartStreamReader.Part room = reader.next();
+			assertEquals("room", room.name());
+			assertFalse(room.isFile());
+			assertEquals("store-42", new String(room.data(), StandardCharsets.UTF_8));
+
+			MultipartStreamReader.Part first = reader.next();
+			assertTrue(first.isFile());
+			assertEquals("uno.jpg", first.filename());
+			assertEquals("image/jpeg", first.contentType());
+			assertArrayEquals(photo, first.data(), "chunk " + chunk);
+
+			MultipartStreamReader.Part second = reader.next();
+			assertEquals("dos.png", second.filename());
+			assertArrayEquals(tricky, second.data(), "chunk " + chunk);
+
+			assertNull(reader.next());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void rejectsPartsOverTheMaximumSize() throws IOException {
+		byte[] body = new Body().file("photos", "grande.jpg", "image/jpeg", random(10_000)).end();
+		MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body), BOUNDARY, 9_999);
+		assertThrows(MaxUploadSizeExceededException.class, reader::next);
+
+		MultipartStreamReader exact = new MultipartStreamReader(new ByteArrayInputStream(body), BOUNDARY, 10_000);
+		assertEquals(10_000, exact.next().data().length);
+	}
+
+	@Test
+	void rejectsMalformedBodies() {
+		byte[] withoutBoundary = "no hay partes".getBytes(StandardCharsets.UTF_8);
+		assertThrows(IOException.class,
+				() -> new MultipartStreamReader(new ByteArrayInputStream(withoutBoundary), BOUNDARY, 1024).next());
+
+		byte[] body = new Body().file("photos", "uno.jpg", "image/jpeg", random(1000)).end();
+		byte[] truncated = Arrays.copyOf(body, body.length - BOUNDARY.length() - 10);
+		assertThrows(IOException.class,
+				() -> new MultipartStreamReader(new ByteArrayInputStream(truncated), BOUNDARY, 1 << 20).next());
+
+		String longHeader = "--" + BOUNDARY + "\r\nX-Relleno: " + "x".repeat(20_000) + "\r\n\r\n";
+		assertThrows(IOException.class, () -> new MultipartStreamReader(
+				new ByteArrayInputStream(longHeader.getBytes(StandardCharsets.ISO_8859_1)), BOUNDARY, 1024).next());
+	}
+
+	@Test
+	void extractsTheBoundaryFromTheContentType() {
+		assertEquals("abc", MultipartStreamReader.boundaryOf("multipart/form-data; boundary=abc"));
+		assertEquals("a b", MultipartStreamReader.boundaryOf("multipart/form-data; charset=UTF-8; BOUNDARY=\"a b\""));
+		assertEquals("x-y", MultipartStreamReader.boundaryOf("multipart/form-data;boundary=\"x-y\""));
+		assertNull(MultipartStreamReader.boundaryOf("multipart/form-data"));
+		assertNull(MultipartStreamReader.boundaryOf("multipart/form-data; boundary="));
+		assertNull(MultipartStreamReader.boundaryOf(null));
+	}
+
+	private static byte[] random(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	private static final class Body {
+
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		Body preamble(String text) {
+			write(text + "\r\n");
+			return this;
+		}
+
+		Body field(String name, String value) {
+			write("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n");
+			return this;
+		}
+
+		Body file(String name, String filename, String contentType, byte[] data) {
+			write("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename
+					+ "\"\r\nContent-Type: " + contentType + "\r\n\r\n");
+			out.writeBytes(data);
+			write("\r\n");
+			return this;
+		}
+
+		byte[] end() {
+			write("--" + BOUNDARY + "--\r\n");
+			return out.toByteArray();
+		}
+
+		private void write(String text) {
+			out.writeBytes(text.getBytes(StandardCharsets.ISO_8859_1));
+		}
+	}
+
+	/**
+	 * Entrega el cuerpo de a pedazos de {@code chunk} bytes, como llega por la red
+	 */
+	private static final class ChunkedInputStream extends InputStream {
+
+		private final byte[] data;
+		private final int chunk;
+		private int pos;
+
+		ChunkedInputStream(byte[] data, int chunk) {
+			this.data = data;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read() {
+			return pos < data.length ? data[pos++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (pos >= data.length) {
+				return -1;
+			}
+			int n = Math.min(Math.min(len, chunk), data.length - pos);
+			System.arraycopy(data, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.owner.qrscan.web;
+
+import com.owner.qrscan.decoder.ImageHeader;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RawImageReaderTests {
+
+	private static final long MAX_BYTES = 4 * 1024 * 1024;
+
+	private final UploadBufferPool pool = new UploadBufferPool(4, 16);
+
+	@Test
+	void readsAChunkedBodyIntoAPooledBuffer() throws IOException {
+		byte[] image = noisyPng(300, 200);
+		assertTrue(image.length > 64 * 1024, "La imagen tiene que superar el buffer inicial");
+		RawImageReader.RawImage raw = RawImageReader.read(new TrickleInputStream(image, 1000), -1, MAX_BYTES, pool,
+				header -> {
+				});
+		assertEquals(image.length, raw.length());
+		assertArrayEquals(image, Arrays.copyOf(raw.data(), raw.length()));
+		assertEquals("PNG", raw.header().format());
+		assertEquals(300, raw.header().width());
+		// Los buffers que quedaron chicos en el camino volvieron al pool
+		assertTrue(pool.size() > 0);
+	}
+
+	@Test
+	void rejectsADeclaredLengthOverTheMaximumWithoutReading() {
+		InputStream unread = new InputStream() {
+			@Override
+			public int read() {
+				throw new AssertionError("No tenía que leer el cuerpo");
+			}
+		};
+		assertThrows(MaxUploadSizeExceededException.class,
+				() -> RawImageReader.read(unread, MAX_BYTES + 1, MAX_BYTES, pool, header -> {
+				}));
+	}
+
+	@Test
+	void rejectsAChunkedBodyOverTheMaximum() throws IOException {
+		byte[] image = noisyPng(300, 200);
+		assertThrows(MaxUploadSizeExceededException.class,
+				() -> RawImageReader.read(new ByteArrayInputStream(image), -1, image.length - 1, pool, header -> {
+				}));
+		// Los buffers de 64, 128 y 256 KB por los que fue creciendo, también el último, volvieron al pool
+		assertEquals(3, pool.size());
+	}
+
+	@Test
+	void stopsReadingWhenTheHeaderFailsTheSizeCheck() throws IOException {
+		byte[] image = noisyPng(300, 200);
+		TrickleInputStream in = new TrickleInputStream(image, 1000);
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> RawImageReader.read(in, image.length, MAX_BYTES, pool, header -> {
+					throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, header.pixels() + " píxeles");
+				}));
+		assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatusCode());
+		assertEquals(1000, in.consumed);
+	}
+
+	@Test
+	void rejectsBodiesThatAreNotImages() {
+		byte[] text = "esto no es una imagen".getBytes(StandardCharsets.UTF_8);
+		ResponseStatusException notImage = assertThrows(ResponseStatusException.class,
+				() -> RawImageReader.read(new ByteArrayInputStream(text), text.length, MAX_BYTES, pool, header -> {
+				}));
+		assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, notImage.getStatusCode());
+
+		ResponseStatusException empty = assertThrows(ResponseStatusException.class,
+				() -> RawImageReader.read(new ByteArrayInputStream(new byte[0]), 0, MAX_BYTES, pool, header -> {
+				}));
+		assertEquals(HttpStatus.BAD_REQUEST, empty.getStatusCode());
+
+		byte[] truncated = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n'};
+		ResponseStatusException incomplete = assertThrows(ResponseStatusException.class,
+				() -> RawImageReader.read(new ByteArrayInputStream(truncated), truncated.length, MAX_BYTES, pool, header -> {
+				}));
+		assertEquals(HttpStatus.BAD_REQUEST, incomplete.getStatusCode());
+	}
+
+	@Test
+	void poolRoundsSizesToPowersOfTwo() {
+		assertEquals(64 * 1024, UploadBufferPool.sizeClass(1));
+		assertEquals(2 * 1024 * 1024, UploadBufferPool.sizeClass(1_300_000));
+		assertEquals(2 * 1024 * 1024, UploadBufferPool.sizeClass(2 * 1024 * 1024));
+		byte[] buffer = pool.acquire(1_300_000);
+		pool.release(buffer);
+		// Otra foto del mismo rango reutiliza el mismo arreglo
+		assertTrue(buffer == pool.acquire(1_900_000));
+	}
+
+	private static byte[] noisyPng(int width, int height) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Random random = new Random(7);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Entrega el cuerpo de a pedazos, como llega por la red, y cuenta lo que se leyó
+	 */
+	private static final class TrickleInputStream extends InputStream {
+
+		private final byte[] data;
+		private final int chunk;
+		private int consumed;
+
+		TrickleInputStream(byte[] data, int chunk) {
+			this.data = data;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read() {
+			return consumed < data.length ? data[consumed++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (consumed >= data.length) {
+				return -1;
+			}
+			int n = Math.min(Math.min(len, chunk), data.length - consumed);
+			System.arraycopy(data, consumed, b, off, n);
+			consumed += n;
+			return n;
+		}
+	}
+}